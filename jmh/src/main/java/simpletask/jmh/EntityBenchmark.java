@@ -0,0 +1,136 @@
+package simpletask.jmh;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simpletask.main.entities.Criteria;
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceManager;
+
+/**
+ * Benchmarks summarising a node as NodeData and comparing nodes to a Criteria, through the same
+ * calls the application makes. Each call works on one node picked at random, or on the tasks of one
+ * Task, so the workspace only matters through the nodes picked.
+ *
+ * @author Matthew Taggart
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityBenchmark {
+    //#region [Fields]
+    /**
+     * Number of nodes in the workspace.
+     */
+    @Param({"1000", "100000"})
+    public int size;
+    /**
+     * Shape of the workspace, see Shapes.build.
+     */
+    @Param({"chain", "fan_out", "balanced", "zipf"})
+    public String shape;
+    /**
+     * The workspace.
+     */
+    private WorkspaceManager workspace;
+    /**
+     * Paths to nodes picked at random.
+     */
+    private ArrayList<Integer>[] nodes;
+    /**
+     * Paths to Tasks picked at random.
+     */
+    private ArrayList<Integer>[] tasks;
+    /**
+     * Index of the next picked node to use.
+     */
+    private int next = 0;
+    /**
+     * Matches the actions with one of the generated names.
+     */
+    private Criteria criteria;
+    //#endregion [Fields]
+
+    /**
+     * Builds the workspace, picks the nodes and creates the criteria.
+     */
+    @Setup
+    public void setUp() {
+        workspace = Shapes.build(shape, size);
+        nodes = Shapes.pick(workspace, false);
+        tasks = Shapes.pick(workspace, true);
+        criteria = new Criteria().addAttr(NodeKeys.NAME, "Review report").addAttr(NodeKeys.TYPE, "Action");
+    }
+    /**
+     * Returns the next picked path.
+     *
+     * @param paths The picked paths
+     * @return      The next of them
+     */
+    private ArrayList<Integer> next(final ArrayList<Integer>[] paths) {
+        next = (next + 1) & (Shapes.PICKED - 1);
+        return paths[next];
+    }
+
+    //#region [Benchmarks]
+    /**
+     * Summarises a Task.
+     *
+     * @return  The details
+     */
+    @Benchmark
+    public NodeData detailsOfTask() {
+        return workspace.detailsOf(next(tasks));
+    }
+    /**
+     * Summarises a node, which is most often an Action.
+     *
+     * @return  The details
+     */
+    @Benchmark
+    public NodeData detailsOfNode() {
+        return workspace.detailsOf(next(nodes));
+    }
+    /**
+     * Searches a Task, which summarises each node below it as NodeData and compares it to the
+     * criteria.
+     *
+     * @return  The matches
+     */
+    @Benchmark
+    public ArrayList<NodeData> searchTask() {
+        workspace.stepTo(next(tasks));
+        return workspace.searchWorkspaces(criteria);
+    }
+    /**
+     * Prints the tasks of a Task filtered by the criteria, comparing each of them without
+     * summarising them.
+     *
+     * @return              Number of nodes printed
+     * @throws IOException  Never, as nothing is written
+     */
+    @Benchmark
+    public long printFiltered() throws IOException {
+        workspace.stepTo(next(tasks));
+        return workspace.printTree(Writer.nullWriter(), 1, Integer.MAX_VALUE, criteria);
+    }
+    //#endregion [Benchmarks]
+}
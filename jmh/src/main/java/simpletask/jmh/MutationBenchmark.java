@@ -0,0 +1,128 @@
+package simpletask.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceManager;
+
+/**
+ * Benchmarks adding and deleting nodes. These change the workspace, so each iteration starts from
+ * an empty Task at the end of the root and runs BATCH operations in it, and the time for the whole
+ * batch is reported.
+ *
+ * @author Matthew Taggart
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = MutationBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = MutationBenchmark.BATCH)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MutationBenchmark {
+    //#region [Fields]
+    /**
+     * Number of operations in each iteration.
+     */
+    static final int BATCH = 1_000;
+    /**
+     * Number of nodes in the workspace.
+     */
+    @Param({"1000", "100000"})
+    public int size;
+    /**
+     * Shape of the workspace, see Shapes.build.
+     */
+    @Param({"chain", "fan_out", "balanced", "zipf"})
+    public String shape;
+    /**
+     * The workspace.
+     */
+    private WorkspaceManager workspace;
+    /**
+     * Path to the Task the nodes are added to and deleted from.
+     */
+    private ArrayList<Integer> scratch;
+    /**
+     * Number of nodes left in the scratch Task to delete.
+     */
+    private int remaining;
+    //#endregion [Fields]
+
+    /**
+     * Builds the workspace.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        workspace = Shapes.build(shape, size);
+        scratch = new ArrayList<>(List.of(workspace.getTasks().size()));
+    }
+    /**
+     * Replaces the scratch Task with a new one holding BATCH actions, and makes it the
+     * currentWorkspace.
+     */
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        workspace.home();
+        if (workspace.getTasks().size() > scratch.get(0)) {
+            workspace.deleteWorkspace(scratch.get(0));
+        }
+        workspace.addWorkspace("Scratch", "Task");
+        workspace.stepTo(scratch);
+        for (int i = 0; i < BATCH; i++) {
+            workspace.addWorkspace("Action " + i, "Action");
+        }
+        remaining = BATCH;
+    }
+
+    //#region [Benchmarks]
+    /**
+     * Adds an action by name and type.
+     *
+     * @return  True if it was added
+     */
+    @Benchmark
+    public boolean addWorkspaceByName() {
+        return workspace.addWorkspace("Added", "Action");
+    }
+    /**
+     * Adds an action from its details.
+     *
+     * @return  True if it was added
+     */
+    @Benchmark
+    public boolean addWorkspaceFromNodeData() {
+        NodeData node = new NodeData();
+        node.setAttr(NodeKeys.NAME, "Added");
+        node.setAttr(NodeKeys.TYPE, "Action");
+        node.setAttr(NodeKeys.DESCRIPTION, "Added from NodeData");
+        node.setAttr(NodeKeys.PRIORITY, "3");
+        node.setAttr(NodeKeys.DUEDATE, "2026-12-01T09:00");
+        return workspace.addWorkspace(node);
+    }
+    /**
+     * Deletes the last action in the scratch Task.
+     *
+     * @return  True if it was deleted
+     */
+    @Benchmark
+    public boolean deleteWorkspace() {
+        return workspace.deleteWorkspace(--remaining);
+    }
+    //#endregion [Benchmarks]
+}
@@ -0,0 +1,107 @@
+package simpletask.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simpletask.main.entities.WorkspaceManager;
+import simpletask.main.entities.WorkspaceStore;
+
+/**
+ * Benchmarks saving and loading a workspace with the default store, to a temporary file. To
+ * compare the stores with each other, see simpletask.bench.StoreBenchmark.
+ *
+ * @author Matthew Taggart
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+    //#region [Fields]
+    /**
+     * Number of nodes in the workspace.
+     */
+    @Param({"1000", "100000"})
+    public int size;
+    /**
+     * Shape of the workspace, see Shapes.build.
+     */
+    @Param({"chain", "fan_out", "balanced", "zipf"})
+    public String shape;
+    /**
+     * The workspace.
+     */
+    private WorkspaceManager workspace;
+    /**
+     * Where the workspace is saved.
+     */
+    private Path file;
+    /**
+     * The store for file. save(String) would print a line on every save, so the benchmarks save to
+     * the store instead.
+     */
+    private WorkspaceStore store;
+    //#endregion [Fields]
+
+    /**
+     * Builds the workspace and saves it once, so there is something to load.
+     *
+     * @throws IOException  If the temporary file cannot be created
+     */
+    @Setup
+    public void setUp() throws IOException {
+        workspace = Shapes.build(shape, size);
+        file = Files.createTempFile("jmh", ".ws");
+        store = WorkspaceStore.forPath(file.toString());
+        if (!workspace.save(store)) {
+            throw new IOException("Unable to save to " + file);
+        }
+    }
+    /**
+     * Deletes the saved workspace.
+     *
+     * @throws IOException  If it cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    //#region [Benchmarks]
+    /**
+     * Saves the workspace.
+     *
+     * @return  True if it was saved
+     */
+    @Benchmark
+    public boolean save() {
+        return workspace.save(store);
+    }
+    /**
+     * Loads the workspace.
+     *
+     * @return  The loaded workspace
+     */
+    @Benchmark
+    public WorkspaceManager loadWorkspace() {
+        return WorkspaceManager.load(store);
+    }
+    //#endregion [Benchmarks]
+}
@@ -0,0 +1,81 @@
+package simpletask.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceGenerator;
+import simpletask.main.entities.WorkspaceManager;
+
+/**
+ * Generates the workspaces the benchmarks run against, and picks nodes in them. Every shape is
+ * generated from the same seed each time, so results can be compared between runs.
+ *
+ * @author Matthew Taggart
+ */
+final class Shapes {
+    /**
+     * Seed the workspaces are generated from.
+     */
+    static final long SEED = 1;
+    /**
+     * Number of tasks under each Task of the balanced shape, and the most for zipf.
+     */
+    static final int FAN_OUT = 20;
+    /**
+     * Number of tasks in each chain of the chain shape. Some operations recurse once per level, so
+     * the chains are kept short enough not to overflow the stack.
+     */
+    static final int CHAIN = 1_000;
+    /**
+     * Number of nodes picked for the benchmarks to cycle through.
+     */
+    static final int PICKED = 1024;
+
+    /**
+     * Private constructor as this class only has static methods.
+     */
+    private Shapes() {
+
+    }
+    /**
+     * Generates a workspace and makes it the current one, with the rootWorkspace as
+     * currentWorkspace. The same shape and size always give the same workspace.
+     *
+     * @param shape chain, fan_out, balanced or zipf, see WorkspaceGenerator.Shape
+     * @param size  Number of nodes, not including the root
+     * @return      The workspace
+     */
+    static WorkspaceManager build(final String shape, final int size) {
+        return new WorkspaceGenerator(SEED)
+            .shape(WorkspaceGenerator.Shape.valueOf(shape.toUpperCase()))
+            .nodes(size)
+            .fanOut(FAN_OUT)
+            .depth(CHAIN)
+            .generate();
+    }
+    /**
+     * Picks PICKED nodes at random, the same ones each time for the same workspace.
+     *
+     * @param workspace The workspace
+     * @param tasksOnly Whether to only pick Tasks
+     * @return          Paths to the nodes from the root
+     */
+    @SuppressWarnings("unchecked")
+    static ArrayList<Integer>[] pick(final WorkspaceManager workspace, final boolean tasksOnly) {
+        List<ArrayList<Integer>> all = new ArrayList<>();
+        workspace.findByName("", (path, details) -> {
+            if (!tasksOnly || "Task".equals(details.getAttr(NodeKeys.TYPE))) {
+                all.add(new ArrayList<>(path));
+            }
+            return true;
+        });
+        Random random = new Random(all.size());
+        ArrayList<Integer>[] picked = new ArrayList[PICKED];
+        for (int i = 0; i < PICKED; i++) {
+            picked[i] = all.get(random.nextInt(all.size()));
+        }
+        return picked;
+    }
+}
@@ -0,0 +1,170 @@
+package simpletask.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simpletask.main.entities.Criteria;
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceManager;
+
+/**
+ * Benchmarks the operations that read and move around a workspace, and moving a node, which leave
+ * the workspace as they found it. Each runs against every shape and size.
+ *
+ * @author Matthew Taggart
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkspaceBenchmark {
+    //#region [Fields]
+    /**
+     * Number of nodes in the workspace.
+     */
+    @Param({"1000", "100000"})
+    public int size;
+    /**
+     * Shape of the workspace, see Shapes.build.
+     */
+    @Param({"chain", "fan_out", "balanced", "zipf"})
+    public String shape;
+    /**
+     * The workspace.
+     */
+    private WorkspaceManager workspace;
+    /**
+     * Paths to nodes picked at random.
+     */
+    private ArrayList<Integer>[] nodes;
+    /**
+     * Paths to Tasks picked at random.
+     */
+    private ArrayList<Integer>[] tasks;
+    /**
+     * Index of the next picked node to use.
+     */
+    private int next = 0;
+    /**
+     * Matches the nodes with one of the generated names.
+     */
+    private Criteria criteria;
+    /**
+     * Path to the Task the moved node starts in.
+     */
+    private ArrayList<Integer> moveFrom;
+    /**
+     * Path to the Task the moved node is moved to.
+     */
+    private ArrayList<Integer> moveTo;
+    /**
+     * Whether the moved node is in moveFrom.
+     */
+    private boolean movingForward = true;
+    //#endregion [Fields]
+
+    /**
+     * Builds the workspace, picks the nodes and adds two Tasks to the root for moveCurrentWorkspace
+     * to move a node between.
+     */
+    @Setup
+    public void setUp() {
+        workspace = Shapes.build(shape, size);
+        nodes = Shapes.pick(workspace, false);
+        tasks = Shapes.pick(workspace, true);
+        criteria = new Criteria().addAttr(NodeKeys.NAME, "Review report");
+
+        int end = workspace.getTasks().size();
+        workspace.addWorkspace("Move from", "Task");
+        workspace.addWorkspace("Move to", "Task");
+        moveFrom = new ArrayList<>(List.of(end));
+        moveTo = new ArrayList<>(List.of(end + 1));
+        workspace.stepTo(moveFrom);
+        workspace.addWorkspace("Moved", "Action");
+        workspace.home();
+    }
+    /**
+     * Returns the next picked path.
+     *
+     * @param paths The picked paths
+     * @return      The next of them
+     */
+    private ArrayList<Integer> next(final ArrayList<Integer>[] paths) {
+        next = (next + 1) & (Shapes.PICKED - 1);
+        return paths[next];
+    }
+
+    //#region [Benchmarks]
+    /**
+     * Steps into a Task and back up again.
+     *
+     * @return  The Task stepped into
+     */
+    @Benchmark
+    public Object stepIntoAndUp() {
+        ArrayList<Integer> path = next(tasks);
+        workspace.stepTo(path.subList(0, path.size() - 1));
+        Object stepped = workspace.stepIntoWorkspace(path.get(path.size() - 1));
+        workspace.stepUp();
+        return stepped;
+    }
+    /**
+     * Reads the details of a node.
+     *
+     * @return  The details
+     */
+    @Benchmark
+    public NodeData detailsOf() {
+        return workspace.detailsOf(next(nodes));
+    }
+    /**
+     * Reads the details of the tasks of a Task.
+     *
+     * @return  The details
+     */
+    @Benchmark
+    public ArrayList<NodeData> taskDetailsOf() {
+        return workspace.taskDetailsOf(next(tasks));
+    }
+    /**
+     * Searches the whole workspace for nodes by name.
+     *
+     * @return  The matches
+     */
+    @Benchmark
+    public ArrayList<NodeData> searchWorkspaces() {
+        workspace.home();
+        return workspace.searchWorkspaces(criteria);
+    }
+    /**
+     * Moves a node from one Task to another, and back again on the next call.
+     *
+     * @return  True if it moved
+     */
+    @Benchmark
+    public boolean moveCurrentWorkspace() {
+        ArrayList<Integer> from = movingForward ? moveFrom : moveTo;
+        ArrayList<Integer> to = movingForward ? moveTo : moveFrom;
+        movingForward = !movingForward;
+        workspace.stepTo(from);
+        workspace.stepIntoWorkspace(0);
+        return workspace.moveCurrentWorkspace(to);
+    }
+    //#endregion [Benchmarks]
+}
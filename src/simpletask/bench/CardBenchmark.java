@@ -0,0 +1,162 @@
+package simpletask.bench;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.VBox;
+import simpletask.main.entities.NodeData;
+import simpletask.main.gui.CardFactory;
+import simpletask.main.gui.VBoxWrapper;
+
+/**
+ * Measures how quickly the cards shown in the workspace can be built. Cards are built by parsing
+ * Card.fxml for every card, as the Manager used to, by copying the prototype held by CardFactory
+ * and by reusing cards released back to the CardFactory.
+ * <p>
+ * Usage: CardBenchmark [cards] [iterations]
+ * <p>
+ * Each round builds cards cards (2000 by default) and is repeated iterations times (5 by default),
+ * after one warm up round, and the median is reported. No window is shown, but the JavaFX toolkit
+ * has to be started. On a machine without a display, run it with Monocle on the classpath and
+ * -Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw.
+ *
+ * @author Matthew Taggart
+ */
+public final class CardBenchmark {
+    //#region [Fields]
+    /**
+     * Default number of cards built in each round.
+     */
+    private static final int DEFAULT_CARDS = 2000;
+    /**
+     * Default number of timed rounds.
+     */
+    private static final int DEFAULT_ITERATIONS = 5;
+    /**
+     * Number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /**
+     * Number of nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /**
+     * Ways of building a card, keyed on their name. Each builds a card holding the given list.
+     */
+    private static final Map<String, CardBuilder> BUILDERS = new LinkedHashMap<>();
+    //#endregion [Fields]
+
+    /**
+     * Builds a single card.
+     */
+    @FunctionalInterface
+    private interface CardBuilder {
+        /**
+         * Builds a card holding list.
+         *
+         * @param list          The list to put on the card
+         * @return              The card
+         * @throws IOException  If the card template cannot be read
+         */
+        VBoxWrapper build(ListView<NodeData> list) throws IOException;
+    }
+
+    static {
+        URL template = CardFactory.class.getResource(CardFactory.TEMPLATE);
+        BUILDERS.put("fxml", list -> {
+            VBox card = FXMLLoader.load(template);
+            card.getChildren().remove(1);
+            card.getChildren().add(list);
+            return new VBoxWrapper(card, list);
+        });
+        BUILDERS.put("prototype", list -> {
+            VBox card = CardFactory.getInstance().buildCard();
+            card.getChildren().add(list);
+            return new VBoxWrapper(card, list);
+        });
+        BUILDERS.put("pooled", list -> {
+            VBoxWrapper card = CardFactory.getInstance().newCard(list);
+            CardFactory.getInstance().release(card);
+            return card;
+        });
+    }
+
+    /**
+     * Private constructor as this class is only run from main.
+     */
+    private CardBenchmark() {
+
+    }
+    /**
+     * Runs the benchmark.
+     *
+     * @param args          Optionally the number of cards and the number of iterations
+     * @throws IOException  If the card template cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        int cards = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CARDS;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+        // Controls cannot be created until the toolkit is running
+        Platform.startup(() -> { });
+        try {
+            System.out.printf("%-10s %8s %10s %14s%n", "builder", "cards", "round ms", "cards/s");
+            for (Map.Entry<String, CardBuilder> builder : BUILDERS.entrySet()) {
+                run(builder.getKey(), builder.getValue(), cards, iterations);
+            }
+        } finally {
+            Platform.exit();
+        }
+    }
+    /**
+     * Builds cards with builder and prints the results. The lists are created before the timing
+     * starts, so only the cards themselves are measured.
+     *
+     * @param name          Name of the builder
+     * @param builder       The builder
+     * @param cards         Number of cards built in each round
+     * @param iterations    Number of timed rounds
+     * @throws IOException  If the card template cannot be read
+     */
+    private static void run(final String name, final CardBuilder builder, final int cards,
+                            final int iterations) throws IOException {
+        List<ListView<NodeData>> lists = new ArrayList<>(cards);
+        for (int i = 0; i < cards; i++) {
+            lists.add(new ListView<>());
+        }
+        List<VBoxWrapper> built = new ArrayList<>(cards);
+        long[] rounds = new long[iterations];
+        // The first round warms up the JIT and is not recorded
+        for (int i = -1; i < iterations; i++) {
+            built.clear();
+            long start = System.nanoTime();
+            for (ListView<NodeData> list : lists) {
+                built.add(builder.build(list));
+            }
+            long end = System.nanoTime();
+            if (i >= 0) {
+                rounds[i] = end - start;
+            }
+        }
+        long median = median(rounds);
+        System.out.printf("%-10s %8d %10.1f %14.0f%n", name, cards, median / NANOS_PER_MILLI,
+                          cards * NANOS_PER_SECOND / median);
+    }
+    /**
+     * Returns the median of the values.
+     *
+     * @param values    The values, which are sorted in place
+     * @return          The median
+     */
+    private static long median(final long[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+}
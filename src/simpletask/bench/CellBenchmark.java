@@ -0,0 +1,188 @@
+package simpletask.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import com.sun.management.ThreadMXBean;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.util.Callback;
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.WorkspaceManager;
+import simpletask.main.gui.Manager;
+
+/**
+ * Measures the memory used while scrolling through a large list of tasks. A list is created by
+ * the Manager, with its cell factory, filled with tasks and scrolled from top to bottom a row
+ * at a time. The number of cells created, the bytes allocated on the JavaFX application thread
+ * and the garbage collections during the scroll are reported, so the cost of each row scrolled
+ * can be seen.
+ * <p>
+ * Usage: CellBenchmark [tasks] [passes]
+ * <p>
+ * The list holds tasks tasks (100000 by default) and is scrolled passes times (3 by default),
+ * after one warm up pass. No window is shown, but the JavaFX toolkit has to be started. On a
+ * machine without a display, run it with Monocle on the classpath and -Dglass.platform=Monocle
+ * -Dmonocle.platform=Headless -Dprism.order=sw.
+ *
+ * @author Matthew Taggart
+ */
+public final class CellBenchmark {
+    //#region [Fields]
+    /**
+     * Default number of tasks in the list.
+     */
+    private static final int DEFAULT_TASKS = 100_000;
+    /**
+     * Default number of timed passes.
+     */
+    private static final int DEFAULT_PASSES = 3;
+    /**
+     * Width of the list, in px.
+     */
+    private static final int WIDTH = 200;
+    /**
+     * Height of the list, in px.
+     */
+    private static final int HEIGHT = 600;
+    /**
+     * Number of bytes in a megabyte.
+     */
+    private static final double MB = 1024 * 1024;
+    /**
+     * Number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /**
+     * Number of cells created by the lists cell factory.
+     */
+    private static int cellsCreated = 0;
+    //#endregion [Fields]
+
+    /**
+     * Private constructor as this class is only run from main.
+     */
+    private CellBenchmark() {
+
+    }
+    /**
+     * Runs the benchmark.
+     *
+     * @param args                  Optionally the number of tasks and the number of passes
+     * @throws InterruptedException If interrupted while waiting for the benchmark to finish
+     */
+    public static void main(final String[] args) throws InterruptedException {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TASKS;
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PASSES;
+        ArrayList<NodeData> items = buildTasks(tasks);
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.startup(() -> {
+            try {
+                run(items, passes);
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+        Platform.exit();
+    }
+    /**
+     * Builds a workspace with a single task holding tasks actions and returns their details.
+     *
+     * @param tasks Number of actions
+     * @return      Details of the actions
+     */
+    private static ArrayList<NodeData> buildTasks(final int tasks) {
+        WorkspaceManager workspace = WorkspaceManager.initialise("Benchmark");
+        workspace.addWorkspace("Task", "Task");
+        workspace.stepIntoWorkspace(0);
+        for (int i = 0; i < tasks; i++) {
+            workspace.addWorkspace("Action " + i, "Action");
+        }
+        workspace.home();
+        ArrayList<Integer> path = new ArrayList<>();
+        path.add(0);
+        return workspace.taskDetailsOf(path);
+    }
+    /**
+     * Scrolls a list of items and prints the results. Must be run on the application thread.
+     *
+     * @param items     The tasks to fill the list with
+     * @param passes    Number of timed passes
+     */
+    private static void run(final ArrayList<NodeData> items, final int passes) {
+        ListView<NodeData> list = Manager.getInstance().addNewList();
+        Callback<ListView<NodeData>, ListCell<NodeData>> factory = list.getCellFactory();
+        list.setCellFactory(view -> {
+            cellsCreated++;
+            return factory.call(view);
+        });
+        list.setMinSize(WIDTH, HEIGHT);
+        list.setMaxSize(WIDTH, HEIGHT);
+        new Scene(list, WIDTH, HEIGHT);
+        list.getItems().setAll(items);
+        layout(list);
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        System.out.printf("%-6s %8s %8s %12s %14s %8s %8s%n",
+                          "pass", "rows", "cells", "ms", "alloc MB", "GCs", "GC ms");
+        // The first pass warms up the JIT and is not recorded
+        for (int pass = -1; pass < passes; pass++) {
+            int cellsBefore = cellsCreated;
+            long gcsBefore = gcCount();
+            long gcTimeBefore = gcTime();
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int row = 0; row < items.size(); row++) {
+                list.scrollTo(row);
+                layout(list);
+            }
+            long end = System.nanoTime();
+            if (pass >= 0) {
+                System.out.printf("%-6d %8d %8d %12.1f %14.1f %8d %8d%n", pass, items.size(),
+                                  cellsCreated - cellsBefore, (end - start) / NANOS_PER_MILLI,
+                                  (threads.getThreadAllocatedBytes(thread) - allocatedBefore) / MB,
+                                  gcCount() - gcsBefore, gcTime() - gcTimeBefore);
+            }
+        }
+    }
+    /**
+     * Lays out the list, which creates and updates the cells in view.
+     *
+     * @param list  The list
+     */
+    private static void layout(final ListView<NodeData> list) {
+        list.applyCss();
+        list.layout();
+    }
+    /**
+     * Returns the total number of garbage collections so far.
+     *
+     * @return  Number of collections
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+    /**
+     * Returns the total time spent in garbage collection so far.
+     *
+     * @return  Time in milliseconds
+     */
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,754 @@
+package simpletask.bench;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.management.ThreadMXBean;
+
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceGenerator;
+import simpletask.main.entities.WorkspaceManager;
+
+/**
+ * Drives a workspace with a mix of reads, edits, moves and searches from many threads and reports
+ * the throughput and latency of each, so a release can be checked against the load it will see.
+ * The workspace is either generated in this process, by a WorkspaceGenerator, or is the one served
+ * by a Server at --url. In process, the WorkspaceManager is guarded by a read/write lock the same way the
+ * Server guards it.
+ * <p>
+ * Usage: LoadGenerator [--mix name|read,edit,move,search] [--shape chain|fan_out|balanced|zipf]
+ * [--nodes n] [--threads n] [--rate ops/s] [--warmup s] [--seconds s] [--seed n] [--url url]
+ * <p>
+ * The mix is one of the MIXES, or the percentage of each operation. Nodes are picked at random by
+ * id, and searches look for one of the WORDS that generated names are made from. With --rate, each thread
+ * runs its share of the rate on a fixed schedule and latency is measured from when each operation
+ * should have started, so a stall counts against every operation it delays. Without it, each thread
+ * runs as fast as it can. Latencies are kept in histograms accurate to 1/16 of the value.
+ * <p>
+ * The bytes allocated by the worker threads and the garbage collections during the measurement are
+ * also reported. Against a server, these are the allocations of the client, not the server.
+ *
+ * @author Matthew Taggart
+ */
+public final class LoadGenerator {
+    //#region [Fields]
+    /**
+     * Default number of nodes in a workspace generated in process.
+     */
+    private static final int DEFAULT_NODES = 100_000;
+    /**
+     * Default number of seconds to run before measuring.
+     */
+    private static final int DEFAULT_WARMUP = 5;
+    /**
+     * Default number of seconds to measure for.
+     */
+    private static final int DEFAULT_SECONDS = 30;
+    /**
+     * Number of matches a search stops at.
+     */
+    private static final int SEARCH_LIMIT = 100;
+    /**
+     * Number of tasks read along with a node.
+     */
+    private static final int READ_TASKS = 50;
+    /**
+     * Number of bytes in a megabyte.
+     */
+    private static final double MB = 1024 * 1024;
+    /**
+     * Number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /**
+     * Number of nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /**
+     * Percentiles reported for each operation.
+     */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    /**
+     * Words that generated node names are made from, and searched for.
+     */
+    private static final List<String> WORDS = WorkspaceGenerator.getWords();
+    /**
+     * The named mixes, as the percentage of reads, edits, moves and searches.
+     */
+    private static final Map<String, int[]> MIXES = new LinkedHashMap<>();
+    //#endregion [Fields]
+
+    static {
+        MIXES.put("read", new int[] {90, 8, 1, 1});
+        MIXES.put("edit", new int[] {30, 60, 5, 5});
+        MIXES.put("move", new int[] {20, 10, 70, 0});
+        MIXES.put("search", new int[] {20, 5, 0, 75});
+    }
+
+    /**
+     * Private constructor as this class is only run from main.
+     */
+    private LoadGenerator() {
+
+    }
+    /**
+     * Runs the load.
+     *
+     * @param args                  See the class description
+     * @throws IOException          If the server cannot be reached
+     * @throws InterruptedException If interrupted while waiting for the threads to finish
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        String mixName = "read";
+        String shape = "balanced";
+        int nodes = DEFAULT_NODES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double rate = 0;
+        int warmup = DEFAULT_WARMUP;
+        int seconds = DEFAULT_SECONDS;
+        long seed = 1;
+        String url = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--mix":       mixName = args[++i];                     break;
+                case "--shape":     shape = args[++i];                       break;
+                case "--nodes":     nodes = Integer.parseInt(args[++i]);     break;
+                case "--threads":   threads = Integer.parseInt(args[++i]);   break;
+                case "--rate":      rate = Double.parseDouble(args[++i]);    break;
+                case "--warmup":    warmup = Integer.parseInt(args[++i]);    break;
+                case "--seconds":   seconds = Integer.parseInt(args[++i]);   break;
+                case "--seed":      seed = Long.parseLong(args[++i]);        break;
+                case "--url":       url = args[++i];                         break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(1);
+            }
+        }
+        int[] mix = parseMix(mixName);
+        WorkspaceGenerator.Shape generated = parseShape(shape);
+        if (null == mix || null == generated) {
+            System.err.println("Unknown mix " + mixName + " or shape " + shape);
+            System.exit(1);
+        }
+
+        Target target;
+        if (null == url) {
+            long start = System.nanoTime();
+            new WorkspaceGenerator(seed).shape(generated).nodes(nodes).generate();
+            System.out.printf("Generated a %s workspace of %d nodes in %.1f ms%n", shape, nodes,
+                              (System.nanoTime() - start) / NANOS_PER_MILLI);
+            target = new LocalTarget(WorkspaceManager.getInstance());
+        } else {
+            target = new HttpTarget(url);
+        }
+        long[] ids = target.ids();
+        if (ids.length == 0) {
+            System.err.println("The workspace is empty");
+            System.exit(1);
+        }
+        System.out.printf("Running %s (%d%% read, %d%% edit, %d%% move, %d%% search) over %d nodes on %d threads%s%n",
+                          mixName, mix[0], mix[1], mix[2], mix[3], ids.length, threads,
+                          rate > 0 ? String.format(" at %.0f ops/s", rate) : "");
+        run(target, ids, mix, threads, rate, warmup, seconds, seed);
+    }
+    /**
+     * Reads a mix, either by name or as four comma separated percentages.
+     *
+     * @param mix   The mix
+     * @return      The percentage of reads, edits, moves and searches, or null if it is not valid
+     */
+    private static int[] parseMix(final String mix) {
+        if (MIXES.containsKey(mix)) {
+            return MIXES.get(mix);
+        }
+        String[] parts = mix.split(",");
+        if (parts.length != Op.values().length) {
+            return null;
+        }
+        int[] res = new int[parts.length];
+        int total = 0;
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                res[i] = Integer.parseInt(parts[i].trim());
+                total += res[i];
+            }
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        return total == 100 ? res : null;
+    }
+    /**
+     * Parses a shape of workspace to generate.
+     *
+     * @param shape The name of one of the WorkspaceGenerator shapes, in any case
+     * @return      The shape, or null if there is no such shape
+     */
+    private static WorkspaceGenerator.Shape parseShape(final String shape) {
+        try {
+            return WorkspaceGenerator.Shape.valueOf(shape.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    //#region [Running]
+    /**
+     * Runs the workers, then prints the results.
+     *
+     * @param target                What the operations are run against
+     * @param ids                   Ids of the nodes that can be picked
+     * @param mix                   The percentage of each operation
+     * @param threads               Number of worker threads
+     * @param rate                  Operations per second across all threads, or 0 for no limit
+     * @param warmup                Seconds to run before measuring
+     * @param seconds               Seconds to measure for
+     * @param seed                  Seed for the workers random number generators
+     * @throws InterruptedException If interrupted while waiting for the threads to finish
+     */
+    private static void run(final Target target, final long[] ids, final int[] mix, final int threads,
+                            final double rate, final int warmup, final int seconds, final long seed)
+                            throws InterruptedException {
+        long now = System.nanoTime();
+        long measureFrom = now + TimeUnit.SECONDS.toNanos(warmup);
+        long measureTo = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        long interval = rate > 0 ? (long) (threads * NANOS_PER_SECOND / rate) : 0;
+        Worker[] workers = new Worker[threads];
+        Thread[] running = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(target, ids, mix, new SplittableRandom(seed + i), interval, measureFrom, measureTo);
+            running[i] = new Thread(workers[i], "load-" + i);
+            running[i].setDaemon(true);
+            running[i].start();
+        }
+        long gcCount = 0;
+        long gcMillis = 0;
+        // Collections are counted from when measuring starts
+        Thread.sleep(Math.max(0, TimeUnit.NANOSECONDS.toMillis(measureFrom - System.nanoTime())));
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount -= gc.getCollectionCount();
+            gcMillis -= gc.getCollectionTime();
+        }
+        long gcStart = System.nanoTime();
+        for (Thread thread : running) {
+            thread.join();
+        }
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += gc.getCollectionCount();
+            gcMillis += gc.getCollectionTime();
+        }
+        double elapsed = (System.nanoTime() - gcStart) / NANOS_PER_SECOND;
+
+        System.out.printf("%-8s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                          "op", "count", "failed", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram all = new Histogram();
+        long failed = 0;
+        long allocated = 0;
+        for (Op op : Op.values()) {
+            Histogram merged = new Histogram();
+            long opFailed = 0;
+            for (Worker worker : workers) {
+                merged.add(worker.latencies[op.ordinal()]);
+                opFailed += worker.failures[op.ordinal()];
+            }
+            if (merged.count > 0) {
+                print(op.name().toLowerCase(), merged, opFailed, elapsed);
+            }
+            all.add(merged);
+            failed += opFailed;
+        }
+        print("all", all, failed, elapsed);
+        for (Worker worker : workers) {
+            allocated += worker.allocated;
+        }
+        System.out.printf("allocated %.1f MB/s, %.0f bytes/op, %d collections taking %d ms%n",
+                          allocated / MB / elapsed, (double) allocated / Math.max(1, all.count), gcCount, gcMillis);
+    }
+    /**
+     * Prints the results for an operation.
+     *
+     * @param name      Name of the operation
+     * @param latencies Its latencies
+     * @param failed    Number of times it failed
+     * @param elapsed   Seconds it was measured for
+     */
+    private static void print(final String name, final Histogram latencies, final long failed, final double elapsed) {
+        StringBuilder line = new StringBuilder(String.format("%-8s %10d %8d %10.0f", name, latencies.count, failed,
+                                                             latencies.count / elapsed));
+        for (double p : PERCENTILES) {
+            line.append(String.format(" %9.3f", latencies.percentile(p) / NANOS_PER_MILLI));
+        }
+        line.append(String.format(" %9.3f", latencies.max / NANOS_PER_MILLI));
+        System.out.println(line);
+    }
+    //#endregion [Running]
+
+    /**
+     * The operations that are run.
+     */
+    private enum Op {
+        /**
+         * Reads a node and the first READ_TASKS of its tasks.
+         */
+        READ,
+        /**
+         * Sets the priority of a node.
+         */
+        EDIT,
+        /**
+         * Moves a node into another node.
+         */
+        MOVE,
+        /**
+         * Searches for the nodes whose names contain one of the WORDS.
+         */
+        SEARCH
+    }
+
+    /**
+     * What the operations are run against.
+     */
+    private interface Target {
+        /**
+         * Returns the ids of every node in the workspace, not including the root.
+         *
+         * @return              The ids
+         * @throws IOException  If they cannot be read
+         */
+        long[] ids() throws IOException;
+        /**
+         * Runs an operation.
+         *
+         * @param op            The operation
+         * @param random        Picks the nodes, the priority and the word
+         * @param ids           Ids of the nodes that can be picked
+         * @return              True if it succeeded. A move into an Action or into itself fails
+         * @throws IOException  If the operation could not be sent
+         */
+        boolean apply(Op op, SplittableRandom random, long[] ids) throws IOException;
+    }
+
+    /**
+     * Runs operations against a WorkspaceManager in this process, holding the locks the Server
+     * would. Looking up an id can index the workspace, so it takes the write lock.
+     */
+    private static final class LocalTarget implements Target {
+        /**
+         * The workspace.
+         */
+        private final WorkspaceManager workspace;
+        /**
+         * Guards the workspace.
+         */
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * Creates a target for workspace.
+         *
+         * @param workspace The workspace
+         */
+        LocalTarget(final WorkspaceManager workspace) {
+            this.workspace = workspace;
+        }
+
+        @Override
+        public long[] ids() {
+            List<Long> ids = new ArrayList<>();
+            workspace.findByName("", (path, details) -> ids.add(Long.parseLong(details.getAttr(NodeKeys.ID))));
+            return ids.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        @Override
+        public boolean apply(final Op op, final SplittableRandom random, final long[] ids) {
+            if (Op.SEARCH == op) {
+                int[] found = {0};
+                lock.readLock().lock();
+                try {
+                    workspace.findByName(WORDS.get(random.nextInt(WORDS.size())), (path, details) -> ++found[0] < SEARCH_LIMIT);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                return true;
+            }
+            long id = ids[random.nextInt(ids.length)];
+            if (Op.READ == op) {
+                // The id is looked up under the write lock, which is then downgraded so nothing can
+                // move the node before it is read
+                lock.writeLock().lock();
+                List<Integer> path;
+                try {
+                    path = workspace.pathOfId(id);
+                    lock.readLock().lock();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                try {
+                    if (null == path) {
+                        return false;
+                    }
+                    workspace.detailsOf(new ArrayList<>(path));
+                    workspace.taskDetailsOf(new ArrayList<>(path), 0, READ_TASKS);
+                    return true;
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                List<Integer> path = workspace.pathOfId(id);
+                if (null == path) {
+                    return false;
+                }
+                if (Op.EDIT == op) {
+                    return workspace.stepTo(path) && workspace.setPriority(String.valueOf(random.nextInt(11)));
+                }
+                List<Integer> into = workspace.pathOfId(ids[random.nextInt(ids.length)]);
+                if (path.isEmpty() || null == into) {
+                    return false;
+                }
+                List<Integer> from = new ArrayList<>(path.subList(0, path.size() - 1));
+                return workspace.moveWorkspaces(from, new int[] {path.get(path.size() - 1)}, into);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs operations against a Server.
+     */
+    private static final class HttpTarget implements Target {
+        /**
+         * Finds the ids in a response.
+         */
+        private static final Pattern ID = Pattern.compile("\"ID\":\"(\\d+)\"");
+        /**
+         * The client, shared by every thread.
+         */
+        private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        /**
+         * Address of the server, without a trailing /.
+         */
+        private final String url;
+
+        /**
+         * Creates a target for the server at url.
+         *
+         * @param url   Address of the server, e.g. http://127.0.0.1:8080
+         */
+        HttpTarget(final String url) {
+            this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        }
+
+        @Override
+        public long[] ids() throws IOException {
+            Matcher matcher = ID.matcher(send(get("/search?name=&limit=" + Integer.MAX_VALUE)).body());
+            List<Long> ids = new ArrayList<>();
+            while (matcher.find()) {
+                ids.add(Long.parseLong(matcher.group(1)));
+            }
+            return ids.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        @Override
+        public boolean apply(final Op op, final SplittableRandom random, final long[] ids) throws IOException {
+            String node = "#" + ids[random.nextInt(ids.length)];
+            HttpResponse<String> response;
+            switch (op) {
+                case READ:
+                    response = send(get("/ids/" + node.substring(1)));
+                    break;
+                case EDIT:
+                    response = send(post("[{\"op\":\"edit\",\"path\":\"" + node + "\",\"PRIORITY\":\"" + random.nextInt(11) + "\"}]"));
+                    break;
+                case MOVE:
+                    response = send(post("[{\"op\":\"move\",\"path\":\"" + node + "\",\"target\":\"#"
+                                         + ids[random.nextInt(ids.length)] + "\"}]"));
+                    break;
+                default:
+                    String word = URLEncoder.encode(WORDS.get(random.nextInt(WORDS.size())), StandardCharsets.UTF_8);
+                    response = send(get("/search?name=" + word + "&limit=" + SEARCH_LIMIT));
+                    break;
+            }
+            return 200 == response.statusCode() && !response.body().contains("\"error\"");
+        }
+        /**
+         * Creates a GET request.
+         *
+         * @param path  Path and query of the request
+         * @return      The request
+         */
+        private HttpRequest get(final String path) {
+            return HttpRequest.newBuilder(URI.create(url + path)).GET().build();
+        }
+        /**
+         * Creates a POST of a batch.
+         *
+         * @param batch The batch
+         * @return      The request
+         */
+        private HttpRequest post(final String batch) {
+            return HttpRequest.newBuilder(URI.create(url + "/batch"))
+                              .POST(HttpRequest.BodyPublishers.ofString(batch)).build();
+        }
+        /**
+         * Sends a request and waits for the response.
+         *
+         * @param request       The request
+         * @return              The response
+         * @throws IOException  If it cannot be sent, or the thread is interrupted
+         */
+        private HttpResponse<String> send(final HttpRequest request) throws IOException {
+            try {
+                return client.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Runs operations on one thread until the measurement ends, recording their latencies once it
+     * has started.
+     */
+    private static final class Worker implements Runnable {
+        /**
+         * What the operations are run against.
+         */
+        private final Target target;
+        /**
+         * Ids of the nodes that can be picked.
+         */
+        private final long[] ids;
+        /**
+         * The percentage of each operation, added up, so an operation is picked by the first entry
+         * greater than a random number below 100.
+         */
+        private final int[] cumulative;
+        /**
+         * Picks the operations and their arguments.
+         */
+        private final SplittableRandom random;
+        /**
+         * Nanoseconds between the starts of operations, or 0 to not wait.
+         */
+        private final long interval;
+        /**
+         * When measuring starts, from System.nanoTime.
+         */
+        private final long measureFrom;
+        /**
+         * When measuring ends, from System.nanoTime.
+         */
+        private final long measureTo;
+        /**
+         * Latencies of each operation, in nanoseconds, indexed on Op.ordinal.
+         */
+        private final Histogram[] latencies = new Histogram[Op.values().length];
+        /**
+         * Number of times each operation failed, indexed on Op.ordinal.
+         */
+        private final long[] failures = new long[Op.values().length];
+        /**
+         * Bytes allocated by the thread while measuring.
+         */
+        private long allocated = 0;
+
+        /**
+         * Creates a worker.
+         *
+         * @param target        What the operations are run against
+         * @param ids           Ids of the nodes that can be picked
+         * @param mix           The percentage of each operation
+         * @param random        Picks the operations and their arguments
+         * @param interval      Nanoseconds between the starts of operations, or 0 to not wait
+         * @param measureFrom   When measuring starts, from System.nanoTime
+         * @param measureTo     When measuring ends, from System.nanoTime
+         */
+        Worker(final Target target, final long[] ids, final int[] mix, final SplittableRandom random,
+               final long interval, final long measureFrom, final long measureTo) {
+            this.target = target;
+            this.ids = ids;
+            this.cumulative = new int[mix.length];
+            for (int i = 0, total = 0; i < mix.length; i++) {
+                total += mix[i];
+                cumulative[i] = total;
+            }
+            this.random = random;
+            this.interval = interval;
+            this.measureFrom = measureFrom;
+            this.measureTo = measureTo;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new Histogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            boolean measuring = false;
+            // Spread the first operation of each thread over one interval
+            long next = System.nanoTime() + (interval > 0 ? random.nextLong(interval) : 0);
+            while (true) {
+                long start = System.nanoTime();
+                if (interval > 0 && next > start) {
+                    LockSupport.parkNanos(next - start);
+                    start = System.nanoTime();
+                }
+                if (start >= measureTo) {
+                    break;
+                }
+                if (!measuring && start >= measureFrom) {
+                    measuring = true;
+                    allocated = -threads.getThreadAllocatedBytes(threadId);
+                }
+                // When running at a rate, the operation should have started at next
+                long intended = interval > 0 ? next : start;
+                next += interval;
+                Op op = pick();
+                boolean ok;
+                try {
+                    ok = target.apply(op, random, ids);
+                } catch (IOException | RuntimeException ex) {
+                    ok = false;
+                }
+                if (measuring) {
+                    latencies[op.ordinal()].record(System.nanoTime() - intended);
+                    if (!ok) {
+                        failures[op.ordinal()]++;
+                    }
+                }
+            }
+            allocated += measuring ? threads.getThreadAllocatedBytes(threadId) : 0;
+        }
+        /**
+         * Picks an operation at random, according to the mix.
+         *
+         * @return  The operation
+         */
+        private Op pick() {
+            int n = random.nextInt(100);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (n < cumulative[i]) {
+                    return Op.values()[i];
+                }
+            }
+            return Op.READ;
+        }
+    }
+
+    /**
+     * Histogram of latencies, in the manner of HdrHistogram. Values below 32 have a bucket each,
+     * and above that each power of two is split into 16 buckets, so every value is recorded to
+     * within 1/16 of itself in a fixed 960 buckets.
+     */
+    private static final class Histogram {
+        /**
+         * Number of buckets each power of two is split into.
+         */
+        private static final int SUB_BUCKETS = 16;
+        /**
+         * Number of bits needed to index SUB_BUCKETS.
+         */
+        private static final int SUB_BITS = 4;
+        /**
+         * Number of values recorded in each bucket.
+         */
+        private final long[] buckets = new long[(Long.SIZE - SUB_BITS) * SUB_BUCKETS];
+        /**
+         * Number of values recorded.
+         */
+        private long count = 0;
+        /**
+         * Largest value recorded.
+         */
+        private long max = 0;
+
+        /**
+         * Records a value.
+         *
+         * @param value The value, 0 or more
+         */
+        void record(final long value) {
+            buckets[index(Math.max(0, value))]++;
+            count++;
+            max = Math.max(max, value);
+        }
+        /**
+         * Adds everything recorded by another histogram to this one.
+         *
+         * @param other The other histogram
+         */
+        void add(final Histogram other) {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += other.buckets[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+        }
+        /**
+         * Returns the value that percentile percent of the values are at or below.
+         *
+         * @param percent   The percentile, e.g. 99.9
+         * @return          The largest value in the bucket the percentile falls in, or 0 if
+         *                  nothing was recorded
+         */
+        long percentile(final double percent) {
+            long rank = (long) Math.ceil(percent / 100 * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(max, highest(i));
+                }
+            }
+            return max;
+        }
+        /**
+         * Returns the bucket a value is recorded in.
+         *
+         * @param value The value
+         * @return      Index of its bucket
+         */
+        private static int index(final long value) {
+            int log = Long.SIZE - 1 - Long.numberOfLeadingZeros(value | 1);
+            if (log <= SUB_BITS) {
+                return (int) value;
+            }
+            int shift = log - SUB_BITS;
+            return shift * SUB_BUCKETS + (int) (value >>> shift);
+        }
+        /**
+         * Returns the largest value recorded in a bucket.
+         *
+         * @param index Index of the bucket
+         * @return      The largest value
+         */
+        private static long highest(final int index) {
+            if (index < 2 * SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+            return ((sub + 1) << shift) - 1;
+        }
+    }
+}
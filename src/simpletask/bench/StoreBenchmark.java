@@ -0,0 +1,223 @@
+package simpletask.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import simpletask.main.entities.WorkspaceManager;
+import simpletask.main.entities.WorkspaceStore;
+
+/**
+ * Runs the same synthetic workspaces through every WorkspaceStore and reports how long each
+ * takes to save and load, how big the saved workspace is and the peak heap used while loading.
+ * The results are printed as a table so the storage engine for a deployment can be chosen from data.
+ * <p>
+ * Usage: StoreBenchmark [directory] [iterations]
+ * <p>
+ * The saved workspaces are written to directory (a temporary directory by default) and deleted
+ * afterwards. Each save and load is repeated iterations times (5 by default), after one warm up
+ * round, and the median is reported.
+ *
+ * @author Matthew Taggart
+ */
+public final class StoreBenchmark {
+    //#region [Fields]
+    /**
+     * Default number of timed iterations of each save and load.
+     */
+    private static final int DEFAULT_ITERATIONS = 5;
+    /**
+     * Number of bytes in a megabyte.
+     */
+    private static final double MB = 1024 * 1024;
+    /**
+     * Number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /**
+     * The stores being compared, keyed on their name. Each is created from the path to save to.
+     */
+    private static final Map<String, Function<String, WorkspaceStore>> STORES = new LinkedHashMap<>();
+    /**
+     * The workspaces being saved and loaded, keyed on their name.
+     */
+    private static final Map<String, Runnable> SHAPES = new LinkedHashMap<>();
+    //#endregion [Fields]
+
+    static {
+        STORES.put("binary", WorkspaceStore::binary);
+        STORES.put("serialized", WorkspaceStore::serialized);
+        STORES.put("json", WorkspaceStore::json);
+
+        SHAPES.put("small", () -> buildWide(10, 20, 10));
+        SHAPES.put("wide", () -> buildWide(50, 200, 20));
+        SHAPES.put("deep", () -> buildChain(5_000));
+    }
+
+    /**
+     * Private constructor as this class is only run from main.
+     */
+    private StoreBenchmark() {
+
+    }
+    /**
+     * Runs the benchmark.
+     *
+     * @param args          Optionally the directory to write to and the number of iterations
+     * @throws IOException  If the directory cannot be created
+     */
+    public static void main(final String[] args) throws IOException {
+        Path dir = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("store-bench");
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+        Files.createDirectories(dir);
+
+        System.out.printf("%-8s %-11s %10s %10s %10s %12s %14s%n",
+                          "shape", "store", "nodes", "save ms", "load ms", "size MB", "load heap MB");
+        for (Map.Entry<String, Runnable> shape : SHAPES.entrySet()) {
+            for (Map.Entry<String, Function<String, WorkspaceStore>> store : STORES.entrySet()) {
+                Path file = dir.resolve(shape.getKey() + "." + store.getKey());
+                try (WorkspaceStore s = store.getValue().apply(file.toString())) {
+                    shape.getValue().run();
+                    run(shape.getKey(), store.getKey(), s, iterations);
+                } catch (IOException | StackOverflowError ex) {
+                    System.out.printf("%-8s %-11s failed: %s%n", shape.getKey(), store.getKey(), ex);
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+    /**
+     * Saves and loads the current workspace with store and prints the results.
+     *
+     * @param shape         Name of the workspace
+     * @param name          Name of the store
+     * @param store         The store
+     * @param iterations    Number of timed iterations
+     * @throws IOException  If the workspace cannot be saved or loaded
+     */
+    private static void run(final String shape, final String name, final WorkspaceStore store,
+                            final int iterations) throws IOException {
+        WorkspaceManager workspace = WorkspaceManager.getInstance();
+        long nodes = countNodes(workspace);
+        long[] saves = new long[iterations];
+        long[] loads = new long[iterations];
+        long peakHeap = 0;
+        // The first round warms up the JIT and is not recorded
+        for (int i = -1; i < iterations; i++) {
+            long start = System.nanoTime();
+            store.save(workspace);
+            long saved = System.nanoTime();
+            System.gc();
+            resetPeakHeap();
+            long loadStart = System.nanoTime();
+            store.load();
+            long loaded = System.nanoTime();
+            if (i >= 0) {
+                saves[i] = saved - start;
+                loads[i] = loaded - loadStart;
+                peakHeap = Math.max(peakHeap, peakHeap());
+            }
+        }
+        System.out.printf("%-8s %-11s %10d %10.1f %10.1f %12.2f %14.1f%n", shape, name, nodes,
+                          median(saves) / NANOS_PER_MILLI, median(loads) / NANOS_PER_MILLI,
+                          store.size() / MB, peakHeap / MB);
+    }
+
+    //#region [Workspaces]
+    /**
+     * Builds a workspace of projects, each with tasks, each with actions.
+     *
+     * @param projects  Number of top level tasks
+     * @param tasks     Number of tasks in each project
+     * @param actions   Number of actions in each task
+     */
+    private static void buildWide(final int projects, final int tasks, final int actions) {
+        WorkspaceManager workspace = WorkspaceManager.initialise("Benchmark");
+        for (int p = 0; p < projects; p++) {
+            workspace.addWorkspace("Project " + p, "Task");
+            workspace.stepIntoWorkspace(p);
+            for (int t = 0; t < tasks; t++) {
+                workspace.addWorkspace("Task " + t, "Task");
+                workspace.stepIntoWorkspace(t);
+                workspace.setDescription("Description of task " + t);
+                for (int a = 0; a < actions; a++) {
+                    workspace.addWorkspace("Action " + a, "Action");
+                }
+                workspace.stepUp();
+            }
+            workspace.stepUp();
+        }
+        workspace.home();
+    }
+    /**
+     * Builds a workspace that is a single chain of tasks.
+     *
+     * @param depth Number of tasks in the chain
+     */
+    private static void buildChain(final int depth) {
+        WorkspaceManager workspace = WorkspaceManager.initialise("Benchmark");
+        for (int i = 0; i < depth; i++) {
+            workspace.addWorkspace("Level " + i, "Task");
+            workspace.stepIntoWorkspace(0);
+        }
+        workspace.home();
+    }
+    /**
+     * Counts the nodes in a workspace, not including the root.
+     *
+     * @param workspace     The workspace to count
+     * @return              The number of nodes
+     * @throws IOException  Never, as nothing is written
+     */
+    private static long countNodes(final WorkspaceManager workspace) throws IOException {
+        return workspace.exportJson(Writer.nullWriter()) - 1;
+    }
+    //#endregion [Workspaces]
+
+    //#region [Measurement]
+    /**
+     * Resets the peak usage of every heap memory pool.
+     */
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+    /**
+     * Returns the sum of the peak usage of every heap memory pool since they were last reset.
+     *
+     * @return  Peak heap usage in bytes
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+    /**
+     * Returns the median of the values.
+     *
+     * @param values    The values, which are sorted in place
+     * @return          The median
+     */
+    private static long median(final long[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+    //#endregion [Measurement]
+}
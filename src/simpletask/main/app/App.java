@@ -2,10 +2,27 @@ package simpletask.main.app;
 
 import simpletask.main.entities.NodeData;
 import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceGenerator;
 import simpletask.main.entities.WorkspaceManager;
+import simpletask.main.entities.WorkspaceMetrics;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class from which the commandline application is started. This version of the application will
@@ -16,6 +33,26 @@ import java.util.Scanner;
  */
 public final class App {
     // Application constants
+    /**
+     * Where the workspace is loaded from and saved to, unless --workspace is given.
+     */
+    public static final String DEFAULT_WORKSPACE = "SavedWorkspace/workspace.ser";
+    /**
+     * Port the workspace is served on if --serve is not given one.
+     */
+    public static final int DEFAULT_PORT = 8080;
+    /**
+     * Number of levels below the current workspace shown by PRINT.
+     */
+    private static final int PRINT_DEPTH = 3;
+    /**
+     * Number of tasks shown under each task by PRINT.
+     */
+    private static final int PRINT_SIBLINGS = 50;
+    /**
+     * Size, in bytes, of the buffers used to read scripts and write results.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
     /**
      * Private constroter so the application class cannot be extended.
      */
@@ -24,14 +61,76 @@ public final class App {
     };
 
     /**
-     * Main execution function of application.
+     * Main execution function of application. With no arguments, the user is asked what to do with
+     * the workspace at DEFAULT_WORKSPACE. The arguments are
+     * <pre>
+     * --workspace path     Use the workspace at path, which is created if it does not exist
+     * --batch [script]     Run the commands in script, or read from stdin if it is "-" or not given,
+     *                      then save and exit. See Batch
+     * --checkpoint n       When running a batch, also save after every n commands
+     * --serve [port]       Serve the workspace over HTTP on the loopback address until stopped,
+     *                      on DEFAULT_PORT if no port is given. See Server
+     * --generate shape n   Write a synthetic workspace of n nodes to the workspace path and exit.
+     *                      The shape is chain, fan_out, balanced or zipf. See WorkspaceGenerator
+     * --seed n             Seed for --generate, 1 if not given
+     * </pre>
+     * A batch exits with 0 if every command succeeded and the workspace was saved, otherwise 1, as
+     * does generating a workspace.
      *
-     * @param args  Array of strings from command line. Currently empty
+     * @param args  Array of strings from command line
      */
     public static void main(final String[] args) {
+        String path = DEFAULT_WORKSPACE;
+        String script = null;
+        long checkpoint = 0;
+        int port = -1;
+        String shape = null;
+        int nodes = 0;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workspace":
+                    path = args[++i];
+                    break;
+                case "--batch":
+                    script = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : "-";
+                    break;
+                case "--checkpoint":
+                    checkpoint = Long.parseLong(args[++i]);
+                    break;
+                case "--serve":
+                    port = i + 1 < args.length && !args[i + 1].startsWith("--") ? Integer.parseInt(args[++i]) : DEFAULT_PORT;
+                    break;
+                case "--generate":
+                    shape = args[++i].toUpperCase();
+                    nodes = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        if (null != shape) {
+            WorkspaceGenerator generator = new WorkspaceGenerator(seed).shape(WorkspaceGenerator.Shape.valueOf(shape)).nodes(nodes);
+            System.exit(generate(generator, path) ? 0 : 1);
+        }
+        WorkspaceMetrics.register();
+        if (null != script) {
+            System.exit(runBatch(path, script, checkpoint) ? 0 : 1);
+        }
+        if (port >= 0) {
+            if (!serve(path, port)) {
+                System.exit(1);
+            }
+            return;
+        }
+
         Scanner sc = new Scanner(System.in);
         // Create your initial workspace
-        WorkspaceManager workspace = WorkspaceManager.loadWorkspace("SavedWorkspace/workspace.ser");
+        WorkspaceManager workspace = WorkspaceManager.loadWorkspace(path);
 
         Options option;
         String st;
@@ -58,10 +157,10 @@ public final class App {
                     moveIntoWorkspace(workspace, sc);
                     break;
                 case PRINT:
-                    System.out.println(workspace);
+                    printWorkspace(workspace);
                     break;
                 case SAVE:
-                    saveWorkspace(workspace, "SavedWorkspace/workspace.ser");
+                    saveWorkspace(workspace, path);
                     break;
                 case DELETE:
                     deleteWorkspace(workspace, sc);
@@ -77,6 +176,91 @@ public final class App {
         } while (option != Options.QUIT);
     }
 
+    /**
+     * Generates a workspace and saves it to path, replacing anything already there.
+     *
+     * @param generator The generator, with its settings
+     * @param path      Where to save the workspace
+     * @return          True if it was saved
+     */
+    private static boolean generate(final WorkspaceGenerator generator, final String path) {
+        long start = System.nanoTime();
+        WorkspaceManager workspace = generator.generate();
+        long generated = System.nanoTime();
+        boolean saved = workspace.save(path);
+        long end = System.nanoTime();
+        System.err.printf("Generated %d nodes in %d ms, %s %s in %d ms%n", workspace.countNodes(),
+                          TimeUnit.NANOSECONDS.toMillis(generated - start), saved ? "saved to" : "unable to save to",
+                          path, TimeUnit.NANOSECONDS.toMillis(end - generated));
+        return saved;
+    }
+    /**
+     * Starts serving the workspace at path over HTTP. The workspace is created if there is nothing
+     * at path, and is saved when the JVM shuts down.
+     *
+     * @param path  Path to the workspace
+     * @param port  Port to listen on
+     * @return      True if the server started
+     */
+    private static boolean serve(final String path, final int port) {
+        WorkspaceManager workspace = openWorkspace(path);
+        if (null == workspace) {
+            return false;
+        }
+        try {
+            Server server = new Server(workspace, path, port);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1), "server-shutdown"));
+            System.out.println("Serving " + path + " on http://127.0.0.1:" + server.getPort());
+            return true;
+        } catch (IOException e) {
+            System.err.println("Unable to serve on port " + port);
+            e.printStackTrace();
+            return false;
+        }
+    }
+    /**
+     * Loads the workspace at path, or creates one named after the file if there is nothing there.
+     *
+     * @param path  Path to the workspace
+     * @return      The workspace, or null if it could not be loaded
+     */
+    private static WorkspaceManager openWorkspace(final String path) {
+        return new File(path).exists()
+            ? WorkspaceManager.loadWorkspace(path)
+            : WorkspaceManager.initialise(new File(path).getName());
+    }
+    /**
+     * Runs a script of commands against the workspace at path without asking the user anything. The
+     * workspace is created if there is nothing at path.
+     *
+     * @param path          Path to the workspace
+     * @param script        Path to the script, or "-" to read it from stdin
+     * @param checkpoint    Number of commands between saves, or 0 to only save at the end
+     * @return              True if every command succeeded and the workspace was saved
+     */
+    private static boolean runBatch(final String path, final String script, final long checkpoint) {
+        WorkspaceManager workspace = openWorkspace(path);
+        if (null == workspace) {
+            return false;
+        }
+        // Results are buffered so a script of queries is not slowed down by flushing every line
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BUFFER_SIZE), false);
+        try (BufferedReader in = "-".equals(script)
+                 ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BUFFER_SIZE)
+                 : Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8)) {
+            Batch batch = new Batch(workspace, path, out, checkpoint);
+            boolean ok = batch.run(in);
+            System.err.println(batch.getCommands() + " commands run, " + batch.getFailures() + " failed");
+            return ok;
+        } catch (IOException e) {
+            System.err.println("Unable to run script: " + script);
+            e.printStackTrace();
+            return false;
+        } finally {
+            out.flush();
+        }
+    }
     /**
      * Adds a workspace into the the workspace passed in.
      *
@@ -161,6 +345,21 @@ public final class App {
         int i = Integer.parseInt(sc.nextLine());
         workspace.deleteWorkspace(i);
     }
+    /**
+     * Prints the current workspace as a tree, PRINT_DEPTH levels deep with at most PRINT_SIBLINGS
+     * tasks under each task. System.out is not closed.
+     *
+     * @param workspace The workspace to print
+     */
+    private static void printWorkspace(final WorkspaceManager workspace) {
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            workspace.printTree(out, PRINT_DEPTH, PRINT_SIBLINGS, null);
+        } catch (IOException e) {
+            System.out.println("Unable to print workspace");
+            e.printStackTrace();
+        }
+    }
     /**
      * Save the workspace.
      *
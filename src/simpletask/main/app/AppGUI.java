@@ -1,14 +1,26 @@
 package simpletask.main.app;
 
 import java.io.File;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.scene.input.KeyCombination;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import simpletask.main.entities.AutoSaver;
 import simpletask.main.entities.WorkspaceManager;
+import simpletask.main.entities.WorkspaceMetrics;
+import simpletask.main.entities.WorkspaceStore;
+import simpletask.main.gui.StallMonitor;
 
 /**
  * Runs the GUI. It extends the Application class from the JavaFX package. It's main purpose is to
@@ -26,6 +38,10 @@ public class AppGUI extends Application {
      * Length of the window on initialisation.
      */
     public static final int LENGTH = 800;
+    /**
+     * Keys that print the stall monitor's histograms, when it is on.
+     */
+    public static final KeyCombination STALL_REPORT = KeyCombination.keyCombination("Shortcut+Shift+H");
     /**
      * This is a reference to the current primaryStage. This class maintains the primary stage
      * and allows access/modification via API's.
@@ -33,9 +49,20 @@ public class AppGUI extends Application {
     private static Stage primaryStage;
     /**
      * The Config that the application will be using. It will look for the config file (".config") in
-     * the current dirctory and build an instance off that.
+     * the current dirctory and build an instance off that. It is shared with the rest of the
+     * application through Config.getInstance().
      */
     private static Config config;
+    /**
+     * Threads the workspace is read and written on, if IO_THREADS is set. Otherwise null and the
+     * common ForkJoinPool is used.
+     */
+    private static ExecutorService ioExecutor;
+    /**
+     * Saves the workspace in the background whenever it changes. Created once the workspace
+     * has been loaded.
+     */
+    private static AutoSaver autoSaver;
     /**
      * Returns the primaryStage. Another class may need access to the stage to modify or set
      * it's root. Giving the class direct access in this way means that the AppGUI class does not
@@ -46,6 +73,15 @@ public class AppGUI extends Application {
     public static Stage getStage() {
         return primaryStage;
     }
+    /**
+     * Returns the AutoSaver that is saving the workspace. Classes that want the workspace saved
+     * should ask it to save rather than saving on the FX application thread.
+     *
+     * @return  The AutoSaver
+     */
+    public static AutoSaver getAutoSaver() {
+        return autoSaver;
+    }
     /**
      * Sets the primaryStage to the inputted Stage. Used when moving up or down a level in
      * the workspace.
@@ -69,10 +105,7 @@ public class AppGUI extends Application {
         // Check if config has been set
         if (null == config.getConfig(ConfigKeys.DIR)) {
             // Show file explorer and configure .config
-            FileChooser fileChooser = new FileChooser();
-            fileChooser.setInitialDirectory(new File(System.getProperty("user.dir")));
-            fileChooser.setTitle("Select File To Save your Workspace");
-            File workspace = fileChooser.showSaveDialog(newPrimaryStage);
+            File workspace = chooseWorkspace(newPrimaryStage);
             if (null == workspace) {
                 System.exit(0);     // Exit if user has not entered a workspace
             }
@@ -82,13 +115,55 @@ public class AppGUI extends Application {
             config.setValue(ConfigKeys.DIR, workspace.getAbsolutePath());
             config.saveCurrentSettings();
         }
+        // Snapshots are taken on the FX application thread as that is where the workspace is edited
+        autoSaver = new AutoSaver(config.getConfig(ConfigKeys.DIR), config.getLong(ConfigKeys.AUTOSAVE_DELAY),
+                                  Platform::runLater);
+        config.addListener(() -> autoSaver.setDelay(config.getLong(ConfigKeys.AUTOSAVE_DELAY)));
+        // The stall monitor has to be on before the scene is loaded for the load to be timed
+        if (config.getLong(ConfigKeys.STALL_THRESHOLD) > 0) {
+            StallMonitor.getInstance().start(config.getLong(ConfigKeys.STALL_THRESHOLD));
+        }
         // Set up the Stage to be shown to the user
-        Parent root = FXMLLoader.load(getClass().getResource("../gui/resources/Workspace.fxml"));
+        Parent root = StallMonitor.time("FXML Workspace",
+                                        () -> FXMLLoader.load(getClass().getResource("../gui/resources/Workspace.fxml")));
         setStage(newPrimaryStage);
         newPrimaryStage.setTitle("Simple Task");
-        newPrimaryStage.setScene(new Scene(root, WIDTH, LENGTH));
+        Scene scene = new Scene(root, WIDTH, LENGTH);
+        scene.getAccelerators().put(STALL_REPORT, () -> StallMonitor.getInstance().report(System.out));
+        newPrimaryStage.setScene(scene);
         newPrimaryStage.show();
     }
+    /**
+     * Asks the user where to keep a new workspace. It can either be a single file, or a directory
+     * that each top level task is saved to a file of its own in (see WorkspaceStore.sharded), which
+     * suits large workspaces as only the tasks that changed are written.
+     *
+     * @param stage The stage that owns the dialogs
+     * @return      The chosen file or directory, or null if the user cancelled
+     */
+    private File chooseWorkspace(final Stage stage) {
+        ButtonType file = new ButtonType("Single File");
+        ButtonType folder = new ButtonType("Folder");
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "", file, folder, ButtonType.CANCEL);
+        alert.setTitle("New Workspace");
+        alert.setHeaderText("How should your workspace be saved?");
+        alert.setContentText("A single file is simplest. A folder keeps each top level task in its own file,"
+                             + " so large workspaces save faster.");
+        Optional<ButtonType> result = alert.showAndWait();
+        File initial = new File(System.getProperty("user.dir"));
+        if (result.isPresent() && result.get() == file) {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setInitialDirectory(initial);
+            fileChooser.setTitle("Select File To Save your Workspace");
+            return fileChooser.showSaveDialog(stage);
+        } else if (result.isPresent() && result.get() == folder) {
+            DirectoryChooser directoryChooser = new DirectoryChooser();
+            directoryChooser.setInitialDirectory(initial);
+            directoryChooser.setTitle("Select Folder To Save your Workspace");
+            return directoryChooser.showDialog(stage);
+        }
+        return null;
+    }
     /**
      * On initialisation, the app needs to load in the WorkspaceManager from the saved location.
      * This sets up the singleton instance. The saved location is got from the .config file. If it
@@ -101,18 +176,42 @@ public class AppGUI extends Application {
      */
     @Override
     public void init() throws Exception {
-        config = new Config(".config");
+        config = Config.getInstance();
+        WorkspaceMetrics.register();
+        int threads = config.getInt(ConfigKeys.IO_THREADS);
+        if (threads > 0) {
+            ioExecutor = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "workspace-io");
+                t.setDaemon(true);
+                return t;
+            });
+            WorkspaceStore.setExecutor(ioExecutor);
+        }
         // Load the saved data into the WorkspaceManager
         if (null != config.getConfig(ConfigKeys.DIR)) {
             WorkspaceManager.loadWorkspace(config.getConfig(ConfigKeys.DIR));
         }
     }
     /**
-     * The WorkdspaceManager should be saved on exit.
+     * The WorkdspaceManager should be saved on exit. The background saver is stopped first so the
+     * final save is not racing with it. The config stops being watched once the workspace is saved.
+     * If the stall monitor is on, its histograms are printed.
      */
     @Override
     public void stop() throws Exception {
-        WorkspaceManager.getInstance().save(config.getConfig(ConfigKeys.DIR));
+        if (null != autoSaver) {
+            autoSaver.close();
+            autoSaver.flush();
+        } else {
+            WorkspaceManager.getInstance().save(config.getConfig(ConfigKeys.DIR));
+        }
+        if (null != ioExecutor) {
+            ioExecutor.shutdown();
+        }
+        if (StallMonitor.getInstance().isEnabled()) {
+            StallMonitor.getInstance().report(System.out);
+        }
+        config.close();
     }
     /**
      * The main method simply calls the launch method which is from the Application class.
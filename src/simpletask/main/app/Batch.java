@@ -0,0 +1,340 @@
+package simpletask.main.app;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceManager;
+import simpletask.main.entities.WorkspaceStore;
+
+/**
+ * Applies a script of commands to a workspace without asking the user for anything, so the
+ * workspace can be edited from scripts, cron jobs and generators. Each line of the script is one
+ * command. Blank lines and lines starting with ";" are skipped. The commands are
+ * <pre>
+ * ADD    node Task|Action name       Adds a task or action called name to node
+ * EDIT   node key value              Sets NAME, DESCRIPTION, PRIORITY, COMPLETE, DUEDATE (as
+ *                                    yyyy-mm-dd) or TYPE
+ * MOVE   node target                 Moves node to the end of target's tasks
+ * DELETE node                        Deletes node
+ * QUERY  node                        Prints the path and details of node
+ * PRINT  node [depth [siblings]]     Prints node as a tree, depth levels deep (all by default)
+ *                                    with at most siblings tasks under each task
+ * SAVE                               Saves the workspace now
+ * </pre>
+ * A node is either a path of positions from the root, such as "/" or "/0/3/1", or an id, such as
+ * "#42". Commands go straight to the node rather than stepping through the workspace, and a move
+ * does not search the workspace, so a command given paths only costs as much as the depth of its
+ * nodes. An id is found through an index that is built on first use and kept up to date, and then
+ * costs the number of siblings before each node on its path (see WorkspaceManager.pathOfId).
+ * <p>
+ * A command that fails is reported on System.err with its line number and skipped, and the rest of
+ * the script is still run. The workspace is saved at the end, and every checkpoint commands if
+ * checkpoint is more than 0.
+ *
+ * @author Matthew Taggart
+ */
+public final class Batch {
+    //#region [Fields]
+    /**
+     * The workspace the commands are applied to.
+     */
+    private final WorkspaceManager workspace;
+    /**
+     * Where the workspace is saved to.
+     */
+    private final WorkspaceStore store;
+    /**
+     * Where the results of QUERY are printed.
+     */
+    private final PrintStream out;
+    /**
+     * Number of commands between saves, or 0 to only save at the end.
+     */
+    private final long checkpoint;
+    /**
+     * Number of commands run, including those that failed.
+     */
+    private long commands = 0;
+    /**
+     * Number of commands that failed.
+     */
+    private long failures = 0;
+    //#endregion [Fields]
+
+    /**
+     * Creates a batch that applies commands to workspace.
+     *
+     * @param workspace     The workspace to apply commands to
+     * @param savePath      Where to save the workspace
+     * @param out           Where to print the results of QUERY
+     * @param checkpoint    Number of commands between saves, or 0 to only save at the end
+     */
+    public Batch(final WorkspaceManager workspace, final String savePath, final PrintStream out, final long checkpoint) {
+        this.workspace = workspace;
+        this.store = WorkspaceStore.forPath(savePath);
+        this.out = out;
+        this.checkpoint = checkpoint;
+    }
+
+    //#region [Running]
+    /**
+     * Runs every command in script, then saves the workspace. A batch can only be run once, as the
+     * store it saves to is closed at the end.
+     *
+     * @param script        The script to run
+     * @return              True if every command succeeded and the workspace was saved
+     * @throws IOException  If the script cannot be read, or the store cannot be closed
+     */
+    public boolean run(final BufferedReader script) throws IOException {
+        String line;
+        long lineNumber = 0;
+        while (null != (line = script.readLine())) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith(";")) {
+                continue;
+            }
+            commands++;
+            String error;
+            try {
+                error = apply(line);
+            } catch (RuntimeException ex) {
+                error = ex.toString();
+            }
+            if (null != error) {
+                failures++;
+                System.err.println("Line " + lineNumber + ": " + error + ": " + line);
+            }
+            if (checkpoint > 0 && commands % checkpoint == 0 && !workspace.save(store)) {
+                System.err.println("Unable to save checkpoint after line " + lineNumber);
+            }
+        }
+        out.flush();
+        boolean saved = workspace.save(store);
+        store.close();
+        return saved && 0 == failures;
+    }
+    /**
+     * Applies a single command.
+     *
+     * @param line  The command
+     * @return      null if it succeeded, otherwise why it failed
+     */
+    private String apply(final String line) {
+        String[] words = line.split("\\s+", 2);
+        String args = words.length > 1 ? words[1] : "";
+        switch (words[0].toUpperCase()) {
+            case "ADD":     return add(args.split("\\s+", 3));
+            case "EDIT":    return edit(args.split("\\s+", 3));
+            case "MOVE":    return move(args.split("\\s+"));
+            case "DELETE":  return delete(args.split("\\s+"));
+            case "QUERY":   return query(args.split("\\s+"));
+            case "PRINT":   return print(args.split("\\s+"));
+            case "SAVE":    return workspace.save(store) ? null : "Unable to save";
+            default:        return "Unknown command";
+        }
+    }
+    //#endregion [Running]
+
+    //#region [Commands]
+    /**
+     * Adds a task or action. Takes the node to add to, the type and the name.
+     *
+     * @param args  The arguments
+     * @return      null if it succeeded, otherwise why it failed
+     */
+    private String add(final String[] args) {
+        if (args.length != 3) {
+            return "Expected ADD node type name";
+        }
+        if (!goTo(args[0])) {
+            return "No such node";
+        }
+        return workspace.addWorkspace(args[2], args[1]) ? null : "Unable to add a " + args[1] + " there";
+    }
+    /**
+     * Sets one of a nodes details. Takes the node, the key and the value.
+     *
+     * @param args  The arguments
+     * @return      null if it succeeded, otherwise why it failed
+     */
+    private String edit(final String[] args) {
+        if (args.length != 3) {
+            return "Expected EDIT node key value";
+        }
+        if (!goTo(args[0])) {
+            return "No such node";
+        }
+        switch (args[1].toUpperCase()) {
+            case "NAME":        workspace.setName(args[2]);                                        return null;
+            case "DESCRIPTION": workspace.setDescription(args[2]);                                 return null;
+            case "PRIORITY":    return workspace.setPriority(args[2]) ? null : "Invalid priority";
+            case "COMPLETE":    workspace.setComplete(args[2]);                                    return null;
+            case "DUEDATE":     workspace.setDueDate(args[2]);                                     return null;
+            case "TYPE":        workspace.setType(args[2]);                                        return null;
+            default:            return "Unknown key";
+        }
+    }
+    /**
+     * Moves a node. Takes the node and the Task to move it into.
+     *
+     * @param args  The arguments
+     * @return      null if it succeeded, otherwise why it failed
+     */
+    private String move(final String[] args) {
+        if (args.length != 2) {
+            return "Expected MOVE node target";
+        }
+        List<Integer> from = resolve(workspace, args[0]);
+        List<Integer> to = resolve(workspace, args[1]);
+        if (null == from || from.isEmpty() || null == to) {
+            return "No such node";
+        }
+        int index = from.remove(from.size() - 1);
+        return workspace.moveWorkspaces(from, new int[] {index}, to) ? null : "Unable to move there";
+    }
+    /**
+     * Deletes a node. Takes the node.
+     *
+     * @param args  The arguments
+     * @return      null if it succeeded, otherwise why it failed
+     */
+    private String delete(final String[] args) {
+        if (args.length != 1) {
+            return "Expected DELETE node";
+        }
+        List<Integer> path = resolve(workspace, args[0]);
+        if (null == path || path.isEmpty()) {
+            return "No such node";
+        }
+        int index = path.remove(path.size() - 1);
+        return workspace.stepTo(path) && workspace.deleteWorkspace(index) ? null : "No such node";
+    }
+    /**
+     * Prints the path and details of a node, as tab separated KEY=value pairs. Takes the node.
+     *
+     * @param args  The arguments
+     * @return      null if it succeeded, otherwise why it failed
+     */
+    private String query(final String[] args) {
+        if (args.length != 1) {
+            return "Expected QUERY node";
+        }
+        List<Integer> path = resolve(workspace, args[0]);
+        if (null == path) {
+            return "No such node";
+        }
+        NodeData details = workspace.detailsOf(new ArrayList<>(path));
+        StringBuilder line = new StringBuilder(format(path));
+        for (NodeKeys key : NodeKeys.values()) {
+            line.append('\t').append(key).append('=').append(details.getAttr(key));
+        }
+        out.println(line);
+        return null;
+    }
+    /**
+     * Prints a node as a tree. Takes the node, and optionally the depth and the number of tasks to
+     * print under each task.
+     *
+     * @param args  The arguments
+     * @return      null if it succeeded, otherwise why it failed
+     */
+    private String print(final String[] args) {
+        if (args.length < 1 || args.length > 3) {
+            return "Expected PRINT node [depth [siblings]]";
+        }
+        if (!goTo(args[0])) {
+            return "No such node";
+        }
+        try {
+            int depth = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE;
+            int siblings = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+            workspace.printTree(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), depth, siblings, null);
+            return null;
+        } catch (NumberFormatException ex) {
+            return "Invalid depth or siblings";
+        } catch (IOException ex) {
+            return ex.toString();
+        }
+    }
+    //#endregion [Commands]
+
+    //#region [Nodes]
+    /**
+     * Moves the current workspace to a node.
+     *
+     * @param node  A path or id
+     * @return      True if the node exists
+     */
+    private boolean goTo(final String node) {
+        List<Integer> path = resolve(workspace, node);
+        return null != path && workspace.stepTo(path);
+    }
+    /**
+     * Turns a path, such as "/0/3", or an id, such as "#42", into a path from the root. The path is
+     * not checked, but an id is only found if there is a node with that id.
+     *
+     * @param workspace The workspace the node is in
+     * @param node      A path or id
+     * @return          The path, which can be changed by the caller, or null if it is not valid
+     */
+    static List<Integer> resolve(final WorkspaceManager workspace, final String node) {
+        try {
+            if (node.startsWith("#")) {
+                List<Integer> path = workspace.pathOfId(Long.parseLong(node.substring(1)));
+                return null == path ? null : new ArrayList<>(path);
+            }
+            ArrayList<Integer> path = new ArrayList<>();
+            for (String position : node.split("/")) {
+                if (!position.isEmpty()) {
+                    path.add(Integer.parseInt(position));
+                }
+            }
+            return path;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+    /**
+     * Formats a path the way it is written in scripts.
+     *
+     * @param path  The path
+     * @return      The path, such as "/0/3"
+     */
+    static String format(final List<Integer> path) {
+        if (path.isEmpty()) {
+            return "/";
+        }
+        StringBuilder res = new StringBuilder();
+        for (int i : path) {
+            res.append('/').append(i);
+        }
+        return res.toString();
+    }
+    //#endregion [Nodes]
+
+    /**
+     * Returns the number of commands run so far, including those that failed.
+     *
+     * @return  Number of commands
+     */
+    public long getCommands() {
+        return commands;
+    }
+    /**
+     * Returns the number of commands that have failed so far.
+     *
+     * @return  Number of failures
+     */
+    public long getFailures() {
+        return failures;
+    }
+}
@@ -1,18 +1,49 @@
 package simpletask.main.app;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Class that represents the config.
+ * Class that represents the config. The file is read once and then held in memory, so reading a
+ * value never touches the disk. The application shares a single Config (see getInstance()), which
+ * watches the file and reloads it when it is changed by something else, e.g. a text editor.
+ * <p>
+ * Values are written to a temporary file which is moved over the config file, so the config file
+ * is never left half written.
  */
-public class Config {
+public class Config implements AutoCloseable {
+    //#region [Fields]
+    /**
+     * Path of the config file used by the application.
+     */
+    public static final String DEFAULT_PATH = ".config";
+    /**
+     * Time, in milliseconds, with no further changes to the config file before it is reloaded.
+     */
+    private static final long SETTLE_MILLIS = 100;
+    /**
+     * The Config shared by the application. Created when it is first asked for.
+     */
+    private static Config instance;
     /**
      * Path to where the config file is stored (ususally top level dir). The file at this
      * location should be of the form:
@@ -21,13 +52,24 @@ public class Config {
      * <p>
      * where k is the Key of the config and v is the Value of that key.
      */
-    private final String path;
+    private final Path path;
     /**
      * Map that contains the config info. Keyed on config names with the value being the
-     * value of that partiuclar key.
+     * value of that partiuclar key. The map is never modified once set, a new map replaces it
+     * instead, so it can be read from any thread without locking.
      */
-    private Map<ConfigKeys, String> config;
+    private volatile Map<ConfigKeys, String> config;
+    /**
+     * Listeners that are run after the config file has been reloaded.
+     */
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * Watches the directory of the config file for changes, or null if it is not being watched.
+     */
+    private WatchService watcher;
+    //#endregion [Fields]
 
+    //#region [Constructors]
     /**
      * Constructs the Config given a path. Calls loadWorkspace() to setup the config map
      * correctly.
@@ -35,10 +77,25 @@ public class Config {
      * @param path  Location of the config file to be loaded
      */
     public Config(final String path) {
-        this.path = path;
-        this.config = new HashMap<>();
+        this.path = Paths.get(path).toAbsolutePath();
         loadWorkspace();
     }
+    /**
+     * Returns the Config shared by the application, which is loaded from DEFAULT_PATH and watched
+     * for changes.
+     *
+     * @return  The shared Config
+     */
+    public static synchronized Config getInstance() {
+        if (null == instance) {
+            instance = new Config(DEFAULT_PATH);
+            instance.watch();
+        }
+        return instance;
+    }
+    //#endregion [Constructors]
+
+    //#region [Load/Save]
     /**
      * Using the path, it will setup the config map. If a file exists in that location,
      * it will parse it line by line, populating the config map.
@@ -46,90 +103,227 @@ public class Config {
      * If not, then it will create an empty config file in that location.
      */
     private void loadWorkspace() {
-        // Pass the path to the file as a parameter
-        File file = new File(path);
-        Scanner sc;
+        Map<ConfigKeys, String> loaded = new EnumMap<>(ConfigKeys.class);
         try {
-            sc = new Scanner(file);
-            while (sc.hasNextLine()) {
-                parseLine(sc.nextLine());
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                parseLine(line, loaded);
             }
-
-            sc.close();
-        } catch (FileNotFoundException ex) {
+        } catch (NoSuchFileException ex) {
             System.out.println("File not found, creating empty config now");
-            createEmptyFile(file);
+            createEmptyFile();
+        } catch (IOException ex) {
+            ex.printStackTrace();
         }
+        config = Collections.unmodifiableMap(loaded);
     }
     /**
-     * Creates a file in the given location.
-     *
-     * @param file  A File representing the location of the new config file
+     * Creates an empty file at path.
      */
-    private void createEmptyFile(final File file) {
+    private void createEmptyFile() {
         try {
-            file.createNewFile();
-        } catch (Exception ex) {
+            Files.createFile(path);
+        } catch (IOException ex) {
             ex.printStackTrace();
         }
     }
     /**
      * Given a string containing the "=" character, it will split the string based on "=".
      * The first part will then be the key of config with the second being the value of that
-     * key.
+     * key. Blank lines, lines without a "=" and unknown keys are skipped.
      *
      * @param line  A line in the file located at path.
+     * @param map   The map to add the key and value to
      */
-    private void parseLine(final String line) {
-        String key = line.substring(0, line.indexOf("="));
-        config.put(ConfigKeys.valueOf(key.toUpperCase()), line.substring(line.indexOf("=") + 1));
+    private void parseLine(final String line, final Map<ConfigKeys, String> map) {
+        int split = line.indexOf("=");
+        if (split < 0) {
+            return;
+        }
+        String key = line.substring(0, split).trim();
+        try {
+            map.put(ConfigKeys.valueOf(key.toUpperCase()), line.substring(split + 1));
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Unknown config key: " + key);
+        }
     }
-
     /**
-     * Saves the current config map to the file on path.
+     * Saves the current config map to the file on path. The map is written to a temporary file
+     * which is then moved over the config file.
      *
      * @return  True if file saved correctly, false otherwise.
      */
-    public boolean saveCurrentSettings() {
-        // Pass the path to the file as a parameter
-        FileWriter file;
-        Scanner sc;
+    public synchronized boolean saveCurrentSettings() {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
         try {
-            file = new FileWriter(path);
-            sc = new Scanner(new File(path));
-            while (sc.hasNextLine()) {
-                parseLine(sc.nextLine());
+            try (BufferedWriter file = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Entry<ConfigKeys, String> entry : config.entrySet()) {
+                    file.write(entry.getKey() + "=" + entry.getValue() + "\n");
+                }
             }
-            for (Entry<ConfigKeys, String> entry : config.entrySet()) {
-                file.write(entry.getKey() + "=" + entry.getValue() + "\n");
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
             }
-
-            sc.close();
-            file.close();
             return true;
-        } catch (FileNotFoundException ex) {
-            return false;
         } catch (IOException ex) {
+            ex.printStackTrace();
             return false;
         }
     }
+    //#endregion [Load/Save]
+
+    //#region [Watching]
+    /**
+     * Starts watching the config file. Whenever it is changed the config is reloaded and the
+     * listeners are run, on a background thread. Nothing is polled, the thread waits on the file
+     * system to report a change.
+     */
+    public synchronized void watch() {
+        if (null != watcher) {
+            return;
+        }
+        try {
+            watcher = path.getFileSystem().newWatchService();
+            path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                                      StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return;
+        }
+        WatchService service = watcher;
+        Thread thread = new Thread(() -> watchLoop(service), "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    /**
+     * Waits for changes to the config file until the WatchService is closed.
+     *
+     * @param service   The WatchService to wait on
+     */
+    private void watchLoop(final WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = isConfigEvent(key);
+                // Editors often write a file in several steps, so wait for them to finish
+                while (null != (key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS))) {
+                    changed |= isConfigEvent(key);
+                }
+                if (changed) {
+                    loadWorkspace();
+                    for (Runnable listener : listeners) {
+                        listener.run();
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // Stopped watching
+        }
+    }
     /**
-     * Sets the value for a particular key.
+     * Checks whether any of the events of a WatchKey are for the config file, and resets the key.
+     *
+     * @param key   The key to check
+     * @return      True if the config file was changed
+     */
+    private boolean isConfigEvent(final WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (path.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+    /**
+     * Registers a listener that is run, on a background thread, after the config file has been
+     * changed and reloaded.
+     *
+     * @param listener  The listener to add
+     */
+    public void addListener(final Runnable listener) {
+        listeners.add(listener);
+    }
+    /**
+     * Removes a previously registered listener.
+     *
+     * @param listener  The listener to remove
+     */
+    public void removeListener(final Runnable listener) {
+        listeners.remove(listener);
+    }
+    /**
+     * Stops watching the config file.
+     */
+    @Override
+    public synchronized void close() {
+        if (null != watcher) {
+            try {
+                watcher.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            watcher = null;
+        }
+    }
+    //#endregion [Watching]
+
+    //#region [Getters/Setters]
+    /**
+     * Sets the value for a particular key. The value is not written until saveCurrentSettings() is
+     * called, and is lost if the config file is changed and reloaded before then.
      *
      * @param key   The ConfigKey to set the value of
      * @param value The value to set it to
      */
-    public void setValue(final ConfigKeys key, final String value) {
-        config.put(key, value);
+    public synchronized void setValue(final ConfigKeys key, final String value) {
+        Map<ConfigKeys, String> updated = new EnumMap<>(ConfigKeys.class);
+        updated.putAll(config);
+        updated.put(key, value);
+        config = Collections.unmodifiableMap(updated);
     }
-
     /**
-     * Retrieves the value for a ConfigKey.
+     * Retrieves the value for a ConfigKey. If the key is not in the config file, its default is
+     * returned.
      *
      * @param key   Key to retrieve value fo
-     * @return      The value for the key
+     * @return      The value for the key, which may be null
      */
     public String getConfig(final ConfigKeys key) {
-        return config.get(key);
+        String value = config.get(key);
+        return null == value ? key.getDefault() : value;
+    }
+    /**
+     * Retrieves the value for a ConfigKey as an int. If the value is not a valid int, the keys
+     * default is used instead.
+     *
+     * @param key   Key to retrieve value fo
+     * @return      The value for the key
+     */
+    public int getInt(final ConfigKeys key) {
+        try {
+            return Integer.parseInt(getConfig(key).trim());
+        } catch (NumberFormatException ex) {
+            System.err.println("Invalid value for " + key + ": " + getConfig(key));
+            return Integer.parseInt(key.getDefault());
+        }
+    }
+    /**
+     * Retrieves the value for a ConfigKey as a long. If the value is not a valid long, the keys
+     * default is used instead.
+     *
+     * @param key   Key to retrieve value fo
+     * @return      The value for the key
+     */
+    public long getLong(final ConfigKeys key) {
+        try {
+            return Long.parseLong(getConfig(key).trim());
+        } catch (NumberFormatException ex) {
+            System.err.println("Invalid value for " + key + ": " + getConfig(key));
+            return Long.parseLong(key.getDefault());
+        }
     }
+    //#endregion [Getters/Setters]
 }
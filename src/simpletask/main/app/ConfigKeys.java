@@ -1,11 +1,61 @@
 package simpletask.main.app;
 
 /**
- * Keys that can be used in the config file.
+ * Keys that can be used in the config file. Each key has a default value, which is used when the
+ * key is not in the config file.
  */
 public enum ConfigKeys {
     /**
-     * The directory that the saved workspace is in.
+     * The file or directory that the saved workspace is in. If it is a directory, each top level
+     * task is saved in a file of its own.
      */
-    DIR
-}
\ No newline at end of file
+    DIR(null),
+    /**
+     * Time, in milliseconds, to wait after an edit before the workspace is autosaved.
+     */
+    AUTOSAVE_DELAY("2000"),
+    /**
+     * Number of threads used to read and write the workspace. 0 shares the common ForkJoinPool,
+     * which has one thread fewer than there are processors.
+     */
+    IO_THREADS("0"),
+    /**
+     * Maximum number of cards kept ready to be reused when the workspace is redrawn.
+     */
+    CARD_CACHE_SIZE("32"),
+    /**
+     * Maximum number of lists kept ready to be reused when the workspace is redrawn.
+     */
+    LIST_CACHE_SIZE("32"),
+    /**
+     * Time, in milliseconds, to wait after a key is typed into the search box before searching.
+     */
+    SEARCH_DELAY("100"),
+    /**
+     * Time, in milliseconds, that work on the JavaFX application thread can take before it is
+     * reported as a stall. 0 turns the stall monitor off.
+     */
+    STALL_THRESHOLD("0");
+
+    /**
+     * Value used when the key is not in the config file. May be null.
+     */
+    private final String defaultValue;
+
+    /**
+     * Creates a key with the given default.
+     *
+     * @param defaultValue  Value used when the key is not set
+     */
+    ConfigKeys(final String defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+    /**
+     * Returns the value used when the key is not in the config file.
+     *
+     * @return  The default value, which may be null
+     */
+    public String getDefault() {
+        return defaultValue;
+    }
+}
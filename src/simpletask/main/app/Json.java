@@ -0,0 +1,207 @@
+package simpletask.main.app;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceJson;
+
+/**
+ * The small amount of JSON the Server needs. NodeData is written as an object with a string for
+ * each key, and request bodies are read as an array of flat objects. Nested objects and arrays are
+ * not supported in requests, and numbers, booleans and null are read as strings. Strings are escaped with
+ * WorkspaceJson.appendString, as in exported workspaces.
+ *
+ * @author Matthew Taggart
+ */
+final class Json {
+    /**
+     * Private constructor as this class only has static methods.
+     */
+    private Json() {
+
+    }
+
+    //#region [Writing]
+    /**
+     * Appends a NodeData as a JSON object, with its path as the "path" field.
+     *
+     * @param json      Where to append it
+     * @param path      Path of the node, e.g. "/0/3"
+     * @param details   Details of the node
+     * @return          json
+     */
+    static StringBuilder appendNode(final StringBuilder json, final String path, final NodeData details) {
+        json.append("{\"path\":");
+        WorkspaceJson.appendString(json, path);
+        for (NodeKeys nKeys : NodeKeys.values()) {
+            json.append(',');
+            WorkspaceJson.appendString(json, nKeys.toString());
+            json.append(':');
+            WorkspaceJson.appendString(json, details.getAttr(nKeys));
+        }
+        return json.append('}');
+    }
+    //#endregion [Writing]
+
+    //#region [Reading]
+    /**
+     * Reads an array of flat objects, e.g. [{"op":"delete","path":"/0"}].
+     *
+     * @param text  The JSON
+     * @return      One map for each object, from field name to value
+     * @throws IllegalArgumentException If the JSON is not an array of flat objects
+     */
+    static List<Map<String, String>> parseObjects(final String text) {
+        int[] pos = {0};
+        List<Map<String, String>> objects = new ArrayList<>();
+        expect(text, pos, '[');
+        if (peek(text, pos) == ']') {
+            pos[0]++;
+            return objects;
+        }
+        do {
+            objects.add(parseObject(text, pos));
+        } while (next(text, pos, ',', ']'));
+        return objects;
+    }
+    /**
+     * Reads a flat object starting at pos.
+     *
+     * @param text  The JSON
+     * @param pos   Position to read from, moved past the object
+     * @return      The fields of the object
+     */
+    private static Map<String, String> parseObject(final String text, final int[] pos) {
+        Map<String, String> fields = new HashMap<>();
+        expect(text, pos, '{');
+        if (peek(text, pos) == '}') {
+            pos[0]++;
+            return fields;
+        }
+        do {
+            String key = parseString(text, pos);
+            expect(text, pos, ':');
+            fields.put(key, parseValue(text, pos));
+        } while (next(text, pos, ',', '}'));
+        return fields;
+    }
+    /**
+     * Reads a string, number, boolean or null starting at pos.
+     *
+     * @param text  The JSON
+     * @param pos   Position to read from, moved past the value
+     * @return      The value as a string, or null
+     */
+    private static String parseValue(final String text, final int[] pos) {
+        if (peek(text, pos) == '"') {
+            return parseString(text, pos);
+        }
+        int start = pos[0];
+        while (pos[0] < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos[0])) < 0) {
+            pos[0]++;
+        }
+        String value = text.substring(start, pos[0]);
+        if (value.isEmpty() || value.startsWith("{") || value.startsWith("[")) {
+            throw new IllegalArgumentException("Expected a string, number, boolean or null at " + start);
+        }
+        return "null".equals(value) ? null : value;
+    }
+    /**
+     * Reads a string starting at pos.
+     *
+     * @param text  The JSON
+     * @param pos   Position to read from, moved past the closing quote
+     * @return      The string
+     */
+    private static String parseString(final String text, final int[] pos) {
+        expect(text, pos, '"');
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            if (pos[0] >= text.length()) {
+                throw new IllegalArgumentException("Unterminated string");
+            }
+            char c = text.charAt(pos[0]++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (pos[0] >= text.length()) {
+                throw new IllegalArgumentException("Unterminated string");
+            }
+            char escaped = text.charAt(pos[0]++);
+            switch (escaped) {
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    if (pos[0] + 4 > text.length()) {
+                        throw new IllegalArgumentException("Invalid escape at " + pos[0]);
+                    }
+                    value.append((char) Integer.parseInt(text.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default:  value.append(escaped); break;
+            }
+        }
+    }
+    /**
+     * Skips whitespace and reads either a separator, returning true, or a closing character,
+     * returning false.
+     *
+     * @param text      The JSON
+     * @param pos       Position to read from, moved past the character
+     * @param separator The separator, e.g. ','
+     * @param close     The closing character, e.g. '}'
+     * @return          True if the separator was read
+     */
+    private static boolean next(final String text, final int[] pos, final char separator, final char close) {
+        char c = peek(text, pos);
+        pos[0]++;
+        if (c == separator) {
+            return true;
+        }
+        if (c == close) {
+            return false;
+        }
+        throw new IllegalArgumentException("Expected '" + separator + "' or '" + close + "' at " + (pos[0] - 1));
+    }
+    /**
+     * Skips whitespace and reads c.
+     *
+     * @param text  The JSON
+     * @param pos   Position to read from, moved past c
+     * @param c     The character expected
+     */
+    private static void expect(final String text, final int[] pos, final char c) {
+        if (peek(text, pos) != c) {
+            throw new IllegalArgumentException("Expected '" + c + "' at " + pos[0]);
+        }
+        pos[0]++;
+    }
+    /**
+     * Skips whitespace and returns the next character without reading it.
+     *
+     * @param text  The JSON
+     * @param pos   Position to read from, moved past any whitespace
+     * @return      The next character
+     */
+    private static char peek(final String text, final int[] pos) {
+        while (pos[0] < text.length() && Character.isWhitespace(text.charAt(pos[0]))) {
+            pos[0]++;
+        }
+        if (pos[0] >= text.length()) {
+            throw new IllegalArgumentException("Unexpected end of JSON");
+        }
+        return text.charAt(pos[0]);
+    }
+    //#endregion [Reading]
+}
@@ -0,0 +1,505 @@
+package simpletask.main.app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceJson;
+import simpletask.main.entities.WorkspaceManager;
+import simpletask.main.entities.WorkspaceStore;
+
+/**
+ * Serves a workspace over HTTP on the loopback address, so other programs on the same machine can
+ * read and edit it. Nodes are addressed by their path of positions from the root, as in Batch, and
+ * are sent as JSON objects with a "path" field and one field for each NodeKeys. The endpoints are
+ * <pre>
+ * GET  /nodes/0/3                    The node at /0/3, /nodes on its own is the root
+ * GET  /nodes/0/3/tasks?from=0&amp;to=100 Its tasks, from and to default to all of them
+ * GET  /ids/42                       The node with id 42
+ * GET  /search?name=milk&amp;limit=100   Nodes whose name contains name, ignoring case
+ * POST /batch                        Applies an array of edits, see batch()
+ * POST /save                         Saves the workspace
+ * </pre>
+ * Each request runs on a virtual thread when the JDK has them, otherwise on a cached pool. The
+ * WorkspaceManager keeps a current workspace, so it is guarded by a read/write lock. Reads share
+ * the lock, while a batch holds it for all of its edits, so other clients never see half a batch.
+ * Nodes are resolved under the lock as well, and an id under the write lock, as looking one up can
+ * index the workspace.
+ *
+ * @author Matthew Taggart
+ */
+public final class Server {
+    //#region [Fields]
+    /**
+     * Number of connections that can wait to be accepted.
+     */
+    private static final int BACKLOG = 1024;
+    /**
+     * Number of matches returned by a search when no limit is given.
+     */
+    private static final int DEFAULT_LIMIT = 100;
+    /**
+     * The workspace being served.
+     */
+    private final WorkspaceManager workspace;
+    /**
+     * Where the workspace is saved to.
+     */
+    private final WorkspaceStore store;
+    /**
+     * The HTTP server.
+     */
+    private final HttpServer http;
+    /**
+     * The threads requests are handled on.
+     */
+    private final ExecutorService executor;
+    /**
+     * Guards the workspace. Requests that only read it share the read lock.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    //#endregion [Fields]
+
+    static {
+        // Responses are written as headers then body, which Nagle's algorithm holds back until the
+        // client acknowledges the headers, adding a delayed ACK (~40 ms) to every request
+        if (null == System.getProperty("sun.net.httpserver.nodelay")) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Creates a server for workspace on the loopback address. It does not accept requests until it
+     * is started.
+     *
+     * @param workspace     The workspace to serve
+     * @param savePath      Where to save the workspace
+     * @param port          Port to listen on, or 0 for any free port
+     * @throws IOException  If the port cannot be listened on
+     */
+    public Server(final WorkspaceManager workspace, final String savePath, final int port) throws IOException {
+        this.workspace = workspace;
+        this.store = WorkspaceStore.forPath(savePath);
+        this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        this.executor = newExecutor();
+        http.setExecutor(executor);
+        http.createContext("/", this::handle);
+    }
+
+    //#region [Lifecycle]
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        http.start();
+    }
+    /**
+     * Stops accepting requests, waits up to delay seconds for those in progress and saves the
+     * workspace.
+     *
+     * @param delay Seconds to wait for requests in progress
+     * @return      True if the workspace was saved
+     */
+    public boolean stop(final int delay) {
+        http.stop(delay);
+        executor.shutdown();
+        return save();
+    }
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return  The port
+     */
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+    /**
+     * Creates an executor that runs each task on a new virtual thread. Virtual threads were added in
+     * Java 21, so on older JDKs a cached pool of daemon threads is used instead.
+     *
+     * @return  The executor
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "http-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    //#endregion [Lifecycle]
+
+    //#region [Routing]
+    /**
+     * Handles a request, sending 400 if it is malformed and 500 if handling it fails.
+     *
+     * @param exchange  The request
+     */
+    private void handle(final HttpExchange exchange) {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            try {
+                if ("GET".equals(method) && (path.equals("/nodes") || path.startsWith("/nodes/"))) {
+                    String node = path.substring("/nodes".length());
+                    if (node.endsWith("/tasks")) {
+                        tasks(exchange, node.substring(0, node.length() - "/tasks".length()), query);
+                    } else {
+                        node(exchange, node);
+                    }
+                } else if ("GET".equals(method) && path.startsWith("/ids/")) {
+                    node(exchange, "#" + Long.parseLong(path.substring("/ids/".length())));
+                } else if ("GET".equals(method) && path.equals("/search")) {
+                    search(exchange, query);
+                } else if ("POST".equals(method) && path.equals("/batch")) {
+                    batch(exchange);
+                } else if ("POST".equals(method) && path.equals("/save")) {
+                    boolean saved = save();
+                    respond(exchange, saved ? 200 : 500, "{\"saved\":" + saved + "}");
+                } else {
+                    respond(exchange, 404, error("No such endpoint"));
+                }
+            } catch (IllegalArgumentException ex) {
+                respond(exchange, 400, error(ex.getMessage()));
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+                respond(exchange, 500, error(ex.toString()));
+            }
+        } catch (IOException ex) {
+            // The client has gone, there is no one to tell
+            System.err.println("Unable to respond to " + exchange.getRequestURI() + ": " + ex);
+        }
+    }
+    //#endregion [Routing]
+
+    //#region [Endpoints]
+    /**
+     * Sends the details of a node.
+     *
+     * @param exchange      The request
+     * @param node          Path or id of the node, as in Batch
+     * @throws IOException  If the response cannot be sent
+     */
+    private void node(final HttpExchange exchange, final String node) throws IOException {
+        respondFound(exchange, read(node, path -> {
+            NodeData details = workspace.detailsOf(new ArrayList<>(path));
+            return null == details ? null : Json.appendNode(new StringBuilder(), Batch.format(path), details).toString();
+        }));
+    }
+    /**
+     * Sends the details of some or all of the tasks of a node, as an array.
+     *
+     * @param exchange      The request
+     * @param node          Path or id of the node, as in Batch
+     * @param query         The from and to parameters, both optional
+     * @throws IOException  If the response cannot be sent
+     */
+    private void tasks(final HttpExchange exchange, final String node, final Map<String, String> query) throws IOException {
+        int from = Math.max(0, Integer.parseInt(query.getOrDefault("from", "0")));
+        int to = Integer.parseInt(query.getOrDefault("to", String.valueOf(Integer.MAX_VALUE)));
+        respondFound(exchange, read(node, path -> {
+            ArrayList<NodeData> tasks = workspace.taskDetailsOf(new ArrayList<>(path), from, to);
+            if (null == tasks) {
+                return null;
+            }
+            StringBuilder json = new StringBuilder("[");
+            String prefix = path.isEmpty() ? "" : Batch.format(path);
+            for (int i = 0; i < tasks.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                Json.appendNode(json, prefix + "/" + (from + i), tasks.get(i));
+            }
+            return json.append(']').toString();
+        }));
+    }
+    /**
+     * Resolves a node and reads it without letting go of the lock in between, so the node cannot
+     * move before it is read. A path only needs the read lock. Resolving an id can index the
+     * workspace, so it is done under the write lock, which is then downgraded to the read lock.
+     *
+     * @param node      Path or id of the node, as in Batch
+     * @param reader    Reads the node at the path it is given, returning null if there is no such node
+     * @return          What reader returned, or null if there is no such node
+     */
+    private String read(final String node, final Function<List<Integer>, String> reader) {
+        Lock read = lock.readLock();
+        boolean byId = node.startsWith("#");
+        List<Integer> path = null;
+        if (byId) {
+            Lock write = lock.writeLock();
+            write.lock();
+            try {
+                path = Batch.resolve(workspace, node);
+                read.lock();
+            } finally {
+                write.unlock();
+            }
+        } else {
+            read.lock();
+        }
+        try {
+            if (!byId) {
+                path = Batch.resolve(workspace, node);
+            }
+            return null == path ? null : reader.apply(path);
+        } catch (IndexOutOfBoundsException ex) {
+            return null;
+        } finally {
+            read.unlock();
+        }
+    }
+    /**
+     * Sends a node or its tasks, or 404 if there is no such node.
+     *
+     * @param exchange      The request
+     * @param json          The node or its tasks, or null if there is no such node
+     * @throws IOException  If the response cannot be sent
+     */
+    private static void respondFound(final HttpExchange exchange, final String json) throws IOException {
+        if (null == json) {
+            respond(exchange, 404, error("No such node"));
+            return;
+        }
+        respond(exchange, 200, json);
+    }
+    /**
+     * Sends the nodes whose name contains the name parameter, as an array, up to limit of them.
+     *
+     * @param exchange      The request
+     * @param query         The name parameter, and optionally the limit
+     * @throws IOException  If the response cannot be sent
+     */
+    private void search(final HttpExchange exchange, final Map<String, String> query) throws IOException {
+        String name = query.get("name");
+        if (null == name) {
+            throw new IllegalArgumentException("Expected a name to search for");
+        }
+        int limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT)));
+        StringBuilder json = new StringBuilder("[");
+        int[] found = {0};
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            workspace.findByName(name, (path, details) -> {
+                if (found[0] >= limit) {
+                    return false;
+                }
+                if (found[0]++ > 0) {
+                    json.append(',');
+                }
+                Json.appendNode(json, Batch.format(path), details);
+                return true;
+            });
+        } finally {
+            read.unlock();
+        }
+        respond(exchange, 200, json.append(']').toString());
+    }
+    /**
+     * Applies an array of edits, all while holding the write lock. Each edit is an object with an
+     * "op" and a "path", which can be a path or an id as in Batch:
+     * <pre>
+     * {"op":"add", "path":"/0", "NAME":"Milk", "TYPE":"Action", ...}   Any other NodeKeys are optional
+     * {"op":"edit", "path":"/0/1", "PRIORITY":"3", ...}                Sets each NodeKeys given
+     * {"op":"move", "path":"/0/1", "target":"/1"}
+     * {"op":"delete", "path":"/0/0"}
+     * </pre>
+     * An add takes DUEDATE as a date and time, e.g. "2026-12-01T00:00", while an edit takes just the
+     * date, as the WorkspaceManager does. The edits are applied in order, and one that fails does
+     * not stop the rest. The response has
+     * a result for each edit, which is the path and id of the new node for an add, an error if it
+     * failed and empty otherwise.
+     *
+     * @param exchange      The request
+     * @throws IOException  If the request cannot be read or the response cannot be sent
+     */
+    private void batch(final HttpExchange exchange) throws IOException {
+        List<Map<String, String>> edits = Json.parseObjects(
+            new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        StringBuilder json = new StringBuilder("{\"results\":[");
+        int applied = 0;
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            for (int i = 0; i < edits.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                String result;
+                try {
+                    result = apply(edits.get(i));
+                } catch (RuntimeException ex) {
+                    result = error(ex.toString());
+                }
+                if (!result.startsWith("{\"error\"")) {
+                    applied++;
+                }
+                json.append(result);
+            }
+        } finally {
+            write.unlock();
+        }
+        respond(exchange, 200, json.append("],\"applied\":").append(applied).append('}').toString());
+    }
+    /**
+     * Applies a single edit. The write lock must be held.
+     *
+     * @param edit  The edit
+     * @return      The result, as a JSON object
+     */
+    private String apply(final Map<String, String> edit) {
+        List<Integer> path = Batch.resolve(workspace, String.valueOf(edit.get("path")));
+        if (null == path) {
+            return error("No such node");
+        }
+        switch (String.valueOf(edit.get("op"))) {
+            case "add":
+                if (!workspace.stepTo(path)) {
+                    return error("No such node");
+                }
+                NodeData node = new NodeData();
+                for (NodeKeys nKeys : NodeKeys.values()) {
+                    node.setAttr(nKeys, edit.get(nKeys.toString()));
+                }
+                if (!workspace.addWorkspace(node)) {
+                    return error("Unable to add there");
+                }
+                path.add(Integer.parseInt(workspace.getCurrentWorkspaceDetails().getAttr(NodeKeys.TASKS)) - 1);
+                StringBuilder added = new StringBuilder("{\"path\":");
+                WorkspaceJson.appendString(added, Batch.format(path)).append(",\"ID\":");
+                return WorkspaceJson.appendString(added, workspace.detailsOf(new ArrayList<>(path)).getAttr(NodeKeys.ID)).append('}').toString();
+            case "edit":
+                if (!workspace.stepTo(path)) {
+                    return error("No such node");
+                }
+                return edit(edit);
+            case "move":
+                List<Integer> target = Batch.resolve(workspace, String.valueOf(edit.get("target")));
+                if (path.isEmpty() || null == target) {
+                    return error("No such node");
+                }
+                int index = path.remove(path.size() - 1);
+                return workspace.moveWorkspaces(path, new int[] {index}, target) ? "{}" : error("Unable to move there");
+            case "delete":
+                if (path.isEmpty()) {
+                    return error("The root cannot be deleted");
+                }
+                int position = path.remove(path.size() - 1);
+                return workspace.stepTo(path) && workspace.deleteWorkspace(position) ? "{}" : error("No such node");
+            default:
+                return error("Unknown op");
+        }
+    }
+    /**
+     * Sets each of the current workspaces details that are in an edit.
+     *
+     * @param edit  The edit
+     * @return      The result, as a JSON object
+     */
+    private String edit(final Map<String, String> edit) {
+        for (Map.Entry<String, String> field : edit.entrySet()) {
+            String value = field.getValue();
+            switch (field.getKey()) {
+                case "NAME":        workspace.setName(value);        break;
+                case "DESCRIPTION": workspace.setDescription(value); break;
+                case "COMPLETE":    workspace.setComplete(value);    break;
+                case "DUEDATE":     workspace.setDueDate(value);     break;
+                case "TYPE":        workspace.setType(value);        break;
+                case "PRIORITY":
+                    if (!workspace.setPriority(value)) {
+                        return error("Invalid priority");
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return "{}";
+    }
+    /**
+     * Saves the workspace. Saving clears the record of what has changed, so this takes the write
+     * lock.
+     *
+     * @return  True if it was saved
+     */
+    private boolean save() {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            return workspace.save(store);
+        } finally {
+            write.unlock();
+        }
+    }
+    //#endregion [Endpoints]
+
+    //#region [Helpers]
+    /**
+     * Sends a JSON response.
+     *
+     * @param exchange      The request
+     * @param status        HTTP status
+     * @param json          The body
+     * @throws IOException  If it cannot be sent
+     */
+    private static void respond(final HttpExchange exchange, final int status, final String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    /**
+     * Creates an error result.
+     *
+     * @param message   What went wrong
+     * @return          The error, as a JSON object
+     */
+    private static String error(final String message) {
+        return WorkspaceJson.appendString(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+    /**
+     * Parses a query string, e.g. "name=milk&amp;limit=10".
+     *
+     * @param raw   The query, still URL encoded, or null
+     * @return      The parameters
+     */
+    private static Map<String, String> parseQuery(final String raw) {
+        Map<String, String> query = new HashMap<>();
+        if (null == raw) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                          URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+    //#endregion [Helpers]
+}
@@ -38,7 +38,7 @@ class Action extends WorkspaceNode {
      */
     Action(final String nm) {
         this();
-        this.name = nm;
+        this.name = StringPool.intern(nm);
     }
     //#endregion [Constructors]
 
@@ -145,7 +145,7 @@ class Action extends WorkspaceNode {
      */
     @Override
     protected boolean delete() {
-        parent.getTasks().remove(this);
+        removeFromParent();
         this.setParent(null);
         return true;
     }
@@ -189,6 +189,7 @@ class Action extends WorkspaceNode {
     @Override
     protected Task asTask() {
         Task task = new Task(this.name);
+        task.id = this.id;
         task.setDescription(this.description);
         task.setComplete(String.valueOf(this.complete));
         task.parent = (Task) this.parent;
@@ -201,5 +202,14 @@ class Action extends WorkspaceNode {
 
         return task;
     }
+    /**
+     * Creates an Action with the same attributes as this one.
+     *
+     * @return  A copy of this Action
+     */
+    @Override
+    protected Action copy() {
+        return (Action) copyAttributesTo(new Action());
+    }
     //#endregion [Implementation]
 }
@@ -0,0 +1,310 @@
+package simpletask.main.entities;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves the workspace in the background. Changes made through the WorkspaceManager mark the
+ * workspace as dirty and a save is scheduled after a short delay. Any other changes made during
+ * that delay are saved along with it, so a burst of edits only causes a single save.
+ * <p>
+ * The save itself happens on a dedicated thread. The only work done on the thread that edits the
+ * workspace is copying the top level tasks that changed since the last save (see
+ * WorkspaceManager.snapshot()), which is handed over using the snapshotExecutor. The copy is then
+ * committed to a WorkspaceStore, which never leaves the saved workspace half written.
+ *
+ * @author Matthew Taggart
+ */
+public final class AutoSaver implements AutoCloseable {
+    //#region [Fields]
+    /**
+     * Store to save the workspace to.
+     */
+    private final WorkspaceStore store;
+    /**
+     * How long to wait, in milliseconds, after the first change before saving.
+     */
+    private volatile long delay;
+    /**
+     * Executor that runs on the thread that edits the workspace. The snapshot is taken on it.
+     */
+    private final Executor snapshotExecutor;
+    /**
+     * The thread that the saves happen on.
+     */
+    private final ScheduledExecutorService saver;
+    /**
+     * Set when a save has been scheduled but has not yet taken its snapshot.
+     */
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    /**
+     * Listener registered with the WorkspaceManager.
+     */
+    private final Runnable listener = this::markDirty;
+    /**
+     * Number of changes that were folded into an already scheduled save.
+     */
+    private final AtomicLong coalesced = new AtomicLong();
+    /**
+     * Number of saves that completed successfully.
+     */
+    private final AtomicLong saveCount = new AtomicLong();
+    /**
+     * Number of saves that failed.
+     */
+    private final AtomicLong failureCount = new AtomicLong();
+    /**
+     * Sum of the time taken by all successful saves, in nanoseconds.
+     */
+    private final AtomicLong totalSaveNanos = new AtomicLong();
+    /**
+     * Time taken by the slowest successful save, in nanoseconds.
+     */
+    private final AtomicLong maxSaveNanos = new AtomicLong();
+    /**
+     * Time taken by the last successful save, in nanoseconds.
+     */
+    private volatile long lastSaveNanos;
+    /**
+     * Time the last snapshot held up the editing thread, in nanoseconds.
+     */
+    private volatile long lastSnapshotNanos;
+    /**
+     * Size of the last saved workspace, in bytes.
+     */
+    private volatile long lastBytes;
+    //#endregion [Fields]
+
+    //#region [Constructors]
+    /**
+     * Creates an AutoSaver that saves to the file at path and starts listening for changes to the
+     * current WorkspaceManager. The store is chosen by WorkspaceStore.forPath.
+     *
+     * @param path              Path to save the workspace to
+     * @param delay             Time in milliseconds to wait after a change before saving
+     * @param snapshotExecutor  Executor that runs tasks on the thread that edits the workspace
+     */
+    public AutoSaver(final String path, final long delay, final Executor snapshotExecutor) {
+        this(WorkspaceStore.forPath(path), delay, snapshotExecutor);
+    }
+    /**
+     * Creates an AutoSaver and starts listening for changes to the current WorkspaceManager.
+     *
+     * @param store             Store to save the workspace to
+     * @param delay             Time in milliseconds to wait after a change before saving
+     * @param snapshotExecutor  Executor that runs tasks on the thread that edits the workspace
+     */
+    public AutoSaver(final WorkspaceStore store, final long delay, final Executor snapshotExecutor) {
+        this.store = store;
+        this.delay = delay;
+        this.snapshotExecutor = snapshotExecutor;
+        this.saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "workspace-autosave");
+            t.setDaemon(true);
+            return t;
+        });
+        WorkspaceManager.getInstance().addChangeListener(listener);
+    }
+    //#endregion [Constructors]
+
+    //#region [Getters]
+    /**
+     * Returns the number of saves that completed successfully.
+     *
+     * @return  Number of successful saves
+     */
+    public long getSaveCount() {
+        return saveCount.get();
+    }
+    /**
+     * Returns the number of saves that failed.
+     *
+     * @return  Number of failed saves
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+    /**
+     * Returns the number of changes that did not need a save of their own as one was already scheduled.
+     *
+     * @return  Number of coalesced changes
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+    /**
+     * Returns how long the last save took, from taking the snapshot to the file being in place.
+     *
+     * @return  Duration of the last save in milliseconds
+     */
+    public double getLastSaveMillis() {
+        return lastSaveNanos / 1e6;
+    }
+    /**
+     * Returns how long the slowest save took.
+     *
+     * @return  Duration of the slowest save in milliseconds
+     */
+    public double getMaxSaveMillis() {
+        return maxSaveNanos.get() / 1e6;
+    }
+    /**
+     * Returns the average time taken by a save.
+     *
+     * @return  Average duration of a save in milliseconds, or 0 if nothing has been saved
+     */
+    public double getAverageSaveMillis() {
+        long count = saveCount.get();
+        return count == 0 ? 0 : totalSaveNanos.get() / 1e6 / count;
+    }
+    /**
+     * Returns how long the last snapshot took. This is the only part of a save that holds up editing.
+     *
+     * @return  Duration of the last snapshot in milliseconds
+     */
+    public double getLastSnapshotMillis() {
+        return lastSnapshotNanos / 1e6;
+    }
+    /**
+     * Returns the size of the last saved workspace.
+     *
+     * @return  Bytes written by the last save
+     */
+    public long getLastBytesWritten() {
+        return lastBytes;
+    }
+    //#endregion [Getters]
+
+    /**
+     * Sets how long to wait after the first change before saving. Saves that are already scheduled
+     * keep the delay they were scheduled with.
+     *
+     * @param newDelay  Time in milliseconds to wait after a change before saving
+     */
+    public void setDelay(final long newDelay) {
+        this.delay = newDelay;
+    }
+
+    //#region [Implementation]
+    /**
+     * Marks the workspace as changed. If no save is scheduled, one is scheduled after the delay.
+     * Otherwise the change will be picked up by the save that is already scheduled.
+     */
+    public void markDirty() {
+        if (pending.compareAndSet(false, true)) {
+            saver.schedule(this::saveInBackground, delay, TimeUnit.MILLISECONDS);
+        } else {
+            coalesced.incrementAndGet();
+        }
+    }
+    /**
+     * Schedules a save to happen straight away, without waiting for the delay.
+     */
+    public void saveNow() {
+        pending.set(true);
+        saver.execute(this::saveInBackground);
+    }
+    /**
+     * Saves the workspace on the calling thread. Used when the application is closing, after
+     * close() has been called. This must be called from the thread that edits the workspace.
+     *
+     * @return  True if the workspace saved successfully
+     */
+    public boolean flush() {
+        pending.set(false);
+        long start = System.nanoTime();
+        WorkspaceManager snapshot = WorkspaceManager.getInstance().snapshot();
+        lastSnapshotNanos = System.nanoTime() - start;
+        return write(snapshot, start);
+    }
+    /**
+     * Runs on the save thread. Asks the editing thread for a snapshot and then writes it.
+     */
+    private void saveInBackground() {
+        if (!pending.getAndSet(false)) {
+            return;     // Already saved by an earlier run or a flush
+        }
+        long start = System.nanoTime();
+        WorkspaceManager snapshot;
+        try {
+            snapshot = CompletableFuture.supplyAsync(() -> {
+                long snapStart = System.nanoTime();
+                WorkspaceManager copy = WorkspaceManager.getInstance().snapshot();
+                lastSnapshotNanos = System.nanoTime() - snapStart;
+                return copy;
+            }, snapshotExecutor).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException ex) {
+            failureCount.incrementAndGet();
+            ex.printStackTrace();
+            return;
+        }
+        write(snapshot, start);
+    }
+    /**
+     * Commits a snapshot to the store and updates the save metrics. Synchronised so a flush and a
+     * background save never write to the store at the same time.
+     *
+     * @param snapshot  The copy of the workspace to write
+     * @param start     Time, from System.nanoTime(), that the save started
+     * @return          True if the workspace saved successfully
+     */
+    private synchronized boolean write(final WorkspaceManager snapshot, final long start) {
+        WorkspaceEvents.Save event = new WorkspaceEvents.Save();
+        event.begin();
+        try {
+            lastBytes = store.commit(snapshot);
+        } catch (IOException ex) {
+            WorkspaceMetrics.SAVE.record(start, false);
+            event.end();
+            if (event.shouldCommit()) {
+                event.location = store.getLocation();
+                event.commit();
+            }
+            failureCount.incrementAndGet();
+            System.err.println("Autosave failed for: " + store.getLocation());
+            ex.printStackTrace();
+            return false;
+        }
+        WorkspaceMetrics.saved(start, lastBytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.location = store.getLocation();
+            event.nodes = snapshot.nodeCount();
+            event.bytes = lastBytes;
+            event.succeeded = true;
+            event.commit();
+        }
+        long elapsed = System.nanoTime() - start;
+        lastSaveNanos = elapsed;
+        totalSaveNanos.addAndGet(elapsed);
+        maxSaveNanos.accumulateAndGet(elapsed, Math::max);
+        saveCount.incrementAndGet();
+        return true;
+    }
+    /**
+     * Stops listening for changes and shuts down the save thread. Any save that is waiting for a
+     * snapshot is abandoned, so flush() should be called afterwards if there are unsaved changes.
+     * The store is left open so that it can still be flushed to.
+     */
+    @Override
+    public void close() {
+        WorkspaceManager.getInstance().removeChangeListener(listener);
+        saver.shutdownNow();
+        try {
+            saver.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    //#endregion [Implementation]
+}
@@ -0,0 +1,38 @@
+package simpletask.main.entities;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Stores the workspace in a single file using WorkspaceCodec. Files written with Java
+ * serialisation by older versions are recognised and loaded as well, so switching to this store
+ * does not lose anyones workspace.
+ *
+ * @author Matthew Taggart
+ */
+final class BinaryStore extends FileStore {
+    /**
+     * Creates a store for the file at path.
+     *
+     * @param path  Path of the file
+     */
+    BinaryStore(final String path) {
+        super(path);
+    }
+
+    @Override
+    WorkspaceNode read(final BufferedInputStream in) throws IOException {
+        if (WorkspaceCodec.isEncoded(in)) {
+            return WorkspaceCodec.decode(new DataInputStream(in));
+        }
+        return SerializedStore.readObject(in);
+    }
+
+    @Override
+    void write(final WorkspaceNode root, final OutputStream out) throws IOException {
+        WorkspaceCodec.encode(root, new DataOutputStream(out));
+    }
+}
@@ -7,6 +7,10 @@ package simpletask.main.entities;
  * @author  Matthew Taggart
  */
 public class Criteria {
+    /**
+     * Every key, kept so the keys are not copied each time a node is compared.
+     */
+    private static final NodeKeys[] KEYS = NodeKeys.values();
     /**
      * Dictionary containing the search keys and values. The search keys are defined in
      * the NodeKeys enumeration.
@@ -48,4 +52,25 @@ public class Criteria {
         }
         return res;
     }
+    /**
+     * Compares a node to the dict without summarising it first, so nodes can be filtered without
+     * creating a NodeData for each one. Matches in the same way as compare(NodeData).
+     *
+     * @param node  The node
+     * @return      True if it matches, false otherwise
+     */
+    boolean compare(final WorkspaceNode node) {
+        for (NodeKeys nKeys : KEYS) {
+            String value = dict.getAttr(nKeys);
+            if (null == value) {
+                continue;
+            }
+            // Only the keys being matched are read, as some are built each time they are asked for
+            String actual = node.getAttr(nKeys);
+            if (null != actual && !actual.equalsIgnoreCase(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
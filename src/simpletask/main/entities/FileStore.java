@@ -0,0 +1,152 @@
+package simpletask.main.entities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A WorkspaceStore that keeps the whole workspace in a single file. Subclasses only need to
+ * say how a workspace is read from and written to a stream.
+ * <p>
+ * Saves are written to a temporary file next to the workspace, which is forced to disk and then
+ * moved over it. This way a crash or power cut part way through a save will never leave a half
+ * written workspace behind.
+ *
+ * @author Matthew Taggart
+ */
+abstract class FileStore implements WorkspaceStore {
+    /**
+     * Size of the buffers used to read and write the file.
+     */
+    static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * Path of the file the workspace is stored in.
+     */
+    private final Path path;
+
+    /**
+     * Creates a store for the file at path.
+     *
+     * @param path  Path of the file
+     */
+    FileStore(final String path) {
+        this.path = Paths.get(path).toAbsolutePath();
+    }
+    /**
+     * Reads a workspace from in.
+     *
+     * @param in            Buffered stream positioned at the start of the file
+     * @return              The root of the workspace
+     * @throws IOException  If in cannot be read or does not contain a valid workspace
+     */
+    abstract WorkspaceNode read(BufferedInputStream in) throws IOException;
+    /**
+     * Writes a workspace to out.
+     *
+     * @param root          The root of the workspace
+     * @param out           Buffered stream to write to
+     * @throws IOException  If out cannot be written to
+     */
+    abstract void write(WorkspaceNode root, OutputStream out) throws IOException;
+
+    @Override
+    public WorkspaceManager load() throws IOException {
+        return WorkspaceManager.manage(readFile());
+    }
+
+    @Override
+    public long save(final WorkspaceManager workspace) throws IOException {
+        return writeFile(workspace.getRoot());
+    }
+    /**
+     * Reads the workspace in the file.
+     *
+     * @return              The root of the workspace
+     * @throws IOException  If the file cannot be read or does not contain a valid workspace
+     */
+    final WorkspaceNode readFile() throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(new BufferedInputStream(in, BUFFER_SIZE));
+        }
+    }
+    /**
+     * Writes a workspace to a temporary file, forces it to disk and moves it over the file. The
+     * directory is then forced too, where the platform allows it, so the move survives a power
+     * cut. If anything fails, the temporary file is deleted and the file is left as it was.
+     *
+     * @param root          The root of the workspace
+     * @return              The number of bytes written
+     * @throws IOException  If the workspace could not be written
+     */
+    final long writeFile(final WorkspaceNode root) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                write(root, out);
+                out.flush();
+                channel.force(true);
+            }
+            long bytes = Files.size(temp);
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+            forceDirectory(path.getParent());
+            return bytes;
+        } finally {
+            if (!moved) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+    /**
+     * Forces a directory to disk, so the files moved into it are not lost in a power cut. Some
+     * platforms (e.g. Windows) cannot open a directory, in which case nothing is done.
+     *
+     * @param dir   The directory
+     */
+    static void forceDirectory(final Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // Not supported on this platform, the move is as durable as it can be made
+        }
+    }
+    /**
+     * Returns the path of the file.
+     *
+     * @return  The path
+     */
+    final Path getPath() {
+        return path;
+    }
+
+    @Override
+    public String getLocation() {
+        return path.toString();
+    }
+
+    @Override
+    public long size() throws IOException {
+        return Files.exists(path) ? Files.size(path) : 0;
+    }
+}
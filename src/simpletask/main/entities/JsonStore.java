@@ -0,0 +1,41 @@
+package simpletask.main.entities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stores the workspace in a single file as newline delimited JSON, one line per node. Larger and
+ * slower than the binary store, but it can be read and written by other tools.
+ *
+ * @author Matthew Taggart
+ * @see    WorkspaceJson
+ */
+final class JsonStore extends FileStore {
+    /**
+     * Creates a store for the file at path.
+     *
+     * @param path  Path of the file
+     */
+    JsonStore(final String path) {
+        super(path);
+    }
+
+    @Override
+    WorkspaceNode read(final BufferedInputStream in) throws IOException {
+        return WorkspaceJson.read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE));
+    }
+
+    @Override
+    void write(final WorkspaceNode root, final OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        WorkspaceJson.write(root, writer);
+        writer.flush();
+    }
+}
@@ -38,5 +38,9 @@ public enum NodeKeys {
     /**
      * The type of the node i.e. Task or Action.
      */
-    TYPE
+    TYPE,
+    /**
+     * The id of the node. This is assigned by the workspace and cannot be edited by the user.
+     */
+    ID
 }
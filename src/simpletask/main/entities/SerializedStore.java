@@ -0,0 +1,58 @@
+package simpletask.main.entities;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Stores the workspace in a single file using Java serialisation. This is how SimpleTasks saved
+ * workspaces before WorkspaceCodec. Serialisation follows the references between nodes
+ * recursively, so a deep enough workspace will overflow the stack when saved or loaded with this
+ * store.
+ *
+ * @author Matthew Taggart
+ */
+final class SerializedStore extends FileStore {
+    /**
+     * Creates a store for the file at path.
+     *
+     * @param path  Path of the file
+     */
+    SerializedStore(final String path) {
+        super(path);
+    }
+    /**
+     * Reads a serialised workspace. Workspaces serialised before nodes had ids are given new ones.
+     *
+     * @param in            Where to read from
+     * @return              The root of the workspace
+     * @throws IOException  If in cannot be read or does not contain a workspace
+     */
+    static WorkspaceNode readObject(final InputStream in) throws IOException {
+        try {
+            WorkspaceNode root = (WorkspaceNode) new ObjectInputStream(in).readObject();
+            WorkspaceNode.assignIds(root);
+            return root;
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            InvalidClassException invalid = new InvalidClassException("Not a serialised workspace");
+            invalid.initCause(ex);
+            throw invalid;
+        }
+    }
+
+    @Override
+    WorkspaceNode read(final BufferedInputStream in) throws IOException {
+        return readObject(in);
+    }
+
+    @Override
+    void write(final WorkspaceNode root, final OutputStream out) throws IOException {
+        ObjectOutputStream objectOut = new ObjectOutputStream(out);
+        objectOut.writeObject(root);
+        objectOut.flush();
+    }
+}
@@ -0,0 +1,352 @@
+package simpletask.main.entities;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Stores the workspace in a directory, with each of the rootWorkspaces tasks in a file (shard) of
+ * its own. A small manifest holds the rootWorkspace itself and the order of its tasks. Each shard
+ * is named after the id of its task, e.g. "42.shard", and is written with WorkspaceCodec.
+ * <p>
+ * Shards are read and written in parallel. A commit only writes the shards whose tasks have
+ * changed, along with the manifest if the rootWorkspace or its list of tasks has changed, so a
+ * small edit to a large workspace only writes a small amount. Every file is written to a temporary
+ * file and moved into place, and the manifest is written last. Shards that are no longer in the
+ * manifest are deleted once the new manifest is in place.
+ * <p>
+ * A shard that cannot be read does not stop the workspace from loading. The file is renamed to
+ * "{id}.shard.corrupt", so it can be recovered by hand, and an empty task takes its place.
+ *
+ * @author Matthew Taggart
+ */
+final class ShardedStore implements WorkspaceStore {
+    //#region [Fields]
+    /**
+     * Name of the manifest file.
+     */
+    static final String MANIFEST = "manifest";
+    /**
+     * Extension of shard files.
+     */
+    static final String SHARD_SUFFIX = ".shard";
+    /**
+     * Added to the name of a shard that could not be read. If a shard of that name was already set
+     * aside, a counter is added after it, so every corrupt shard is kept.
+     */
+    static final String CORRUPT_SUFFIX = ".corrupt";
+    /**
+     * The directory the workspace is stored in.
+     */
+    private final Path dir;
+    /**
+     * Executor that shards are read and written on.
+     */
+    private final Executor executor;
+    /**
+     * Set when a commit fails. The changes it was writing are no longer tracked by any
+     * WorkspaceManager, so the next commit has to write everything.
+     */
+    private volatile boolean fullSaveNeeded = false;
+    //#endregion [Fields]
+
+    /**
+     * Creates a store for the directory at path.
+     *
+     * @param path      Path of the directory
+     * @param executor  Executor to read and write shards on
+     */
+    ShardedStore(final String path, final Executor executor) {
+        this.dir = Paths.get(path).toAbsolutePath();
+        this.executor = executor;
+    }
+
+    //#region [Load]
+    /**
+     * Loads the manifest and then every shard in parallel.
+     */
+    @Override
+    public WorkspaceManager load() throws IOException {
+        ManifestFile manifest = new ManifestFile(dir.resolve(MANIFEST));
+        WorkspaceNode root = manifest.readFile();
+        List<CompletableFuture<WorkspaceNode>> shards = new ArrayList<>(manifest.ids.size());
+        List<Long> recovered = new ArrayList<>();
+        for (long id : manifest.ids) {
+            shards.add(CompletableFuture.supplyAsync(() -> readShard(id, recovered), executor));
+        }
+        for (CompletableFuture<WorkspaceNode> shard : shards) {
+            ((Task) root).adopt(shard.join());
+        }
+        WorkspaceManager workspace = WorkspaceManager.manage(root);
+        // The tasks that replaced unreadable shards are written on the next commit
+        synchronized (recovered) {
+            for (long id : recovered) {
+                workspace.markShardDirty(id);
+            }
+        }
+        return workspace;
+    }
+    /**
+     * Reads a shard. If it cannot be read, it is set aside and an empty task is returned in its place.
+     *
+     * @param id        Id of the shards task
+     * @param recovered List to add the id to if the shard was replaced and should be rewritten
+     * @return          The shards task, or the task that replaces it
+     */
+    private WorkspaceNode readShard(final long id, final List<Long> recovered) {
+        Path path = shardPath(id);
+        try {
+            WorkspaceNode task = new ShardFile(path).readFile();
+            if (task.id != id) {
+                throw new IOException("Shard contains task " + task.id + " not " + id);
+            }
+            return task;
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Failed to read shard: " + path);
+            ex.printStackTrace();
+        }
+        Task replacement = new Task("Unreadable shard " + id);
+        replacement.id = id;
+        try {
+            if (Files.exists(path)) {
+                Path corrupt = setAside(path);
+                replacement.setDescription("The contents of this task could not be read. They have been kept in " + corrupt);
+            }
+        } catch (IOException ex) {
+            // Do not write over a shard that has not been set aside
+            ex.printStackTrace();
+            return replacement;
+        }
+        synchronized (recovered) {
+            recovered.add(id);
+        }
+        return replacement;
+    }
+    /**
+     * Moves a shard that could not be read out of the way, to the first of "name.corrupt",
+     * "name.corrupt.1", "name.corrupt.2"... that does not exist yet.
+     *
+     * @param path          Path of the shard
+     * @return              Where the shard was moved to
+     * @throws IOException  If the shard could not be moved
+     */
+    private static Path setAside(final Path path) throws IOException {
+        String name = path.getFileName() + CORRUPT_SUFFIX;
+        for (int i = 0;; i++) {
+            Path corrupt = path.resolveSibling(i == 0 ? name : name + "." + i);
+            try {
+                return Files.move(path, corrupt);
+            } catch (FileAlreadyExistsException ex) {
+                continue;   // Keep the earlier copy and try the next name
+            }
+        }
+    }
+    //#endregion [Load]
+
+    //#region [Save]
+    /**
+     * Writes every shard and then the manifest.
+     */
+    @Override
+    public long save(final WorkspaceManager workspace) throws IOException {
+        Files.createDirectories(dir);
+        WorkspaceNode root = workspace.getRoot();
+        long bytes;
+        try {
+            bytes = writeShards(root.getTasks()) + writeManifest(root);
+        } catch (IOException ex) {
+            fullSaveNeeded = true;
+            throw ex;
+        }
+        fullSaveNeeded = false;
+        workspace.clearDirty();
+        return bytes;
+    }
+    /**
+     * Writes the shards of the tasks that have changed, and the manifest if the rootWorkspace has.
+     * The workspace must have been loaded from, or last saved to, this store. If there is no
+     * manifest yet, or the last commit failed, the whole workspace is saved.
+     */
+    @Override
+    public long commit(final WorkspaceManager workspace) throws IOException {
+        if (fullSaveNeeded || !Files.exists(dir.resolve(MANIFEST))) {
+            return save(workspace);
+        }
+        WorkspaceNode root = workspace.getRoot();
+        Set<Long> dirty = workspace.getDirtyShards();
+        List<WorkspaceNode> changed = new ArrayList<>();
+        for (WorkspaceNode task : root.getTasks()) {
+            if (dirty.contains(task.id)) {
+                changed.add(task);
+            }
+        }
+        long bytes;
+        try {
+            bytes = writeShards(changed);
+            if (workspace.isRootDirty()) {
+                bytes += writeManifest(root);
+            }
+        } catch (IOException ex) {
+            fullSaveNeeded = true;
+            throw ex;
+        }
+        workspace.clearDirty();
+        return bytes;
+    }
+    /**
+     * Writes a shard for each task in parallel.
+     *
+     * @param tasks         The tasks to write
+     * @return              The number of bytes written
+     * @throws IOException  If any shard could not be written
+     */
+    private long writeShards(final List<WorkspaceNode> tasks) throws IOException {
+        List<CompletableFuture<Long>> writes = new ArrayList<>(tasks.size());
+        for (WorkspaceNode task : tasks) {
+            writes.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new ShardFile(shardPath(task.id)).writeFile(task);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, executor));
+        }
+        long bytes = 0;
+        try {
+            for (CompletableFuture<Long> write : writes) {
+                bytes += write.join();
+            }
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) ex.getCause()).getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+        return bytes;
+    }
+    /**
+     * Writes the manifest and then deletes the shards that are no longer in it.
+     *
+     * @param root          The rootWorkspace
+     * @return              The number of bytes written
+     * @throws IOException  If the manifest could not be written
+     */
+    private long writeManifest(final WorkspaceNode root) throws IOException {
+        long bytes = new ManifestFile(dir.resolve(MANIFEST)).writeFile(root);
+        Set<String> current = new HashSet<>();
+        for (WorkspaceNode task : root.getTasks()) {
+            current.add(task.id + SHARD_SUFFIX);
+        }
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(dir, "*" + SHARD_SUFFIX)) {
+            for (Path shard : shards) {
+                if (!current.contains(shard.getFileName().toString())) {
+                    Files.deleteIfExists(shard);
+                }
+            }
+        }
+        return bytes;
+    }
+    //#endregion [Save]
+
+    /**
+     * Returns the path of the shard for a task.
+     *
+     * @param id    Id of the task
+     * @return      Path of its shard
+     */
+    private Path shardPath(final long id) {
+        return dir.resolve(id + SHARD_SUFFIX);
+    }
+
+    @Override
+    public String getLocation() {
+        return dir.toString();
+    }
+    /**
+     * Returns the total size of the manifest and every shard.
+     */
+    @Override
+    public long size() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        long size = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.equals(MANIFEST) || name.endsWith(SHARD_SUFFIX)) {
+                    size += Files.size(file);
+                }
+            }
+        }
+        return size;
+    }
+
+    //#region [Files]
+    /**
+     * A single shard, holding one of the rootWorkspaces tasks and everything under it.
+     */
+    private static final class ShardFile extends FileStore {
+        /**
+         * Creates a shard file.
+         *
+         * @param path  Path of the shard
+         */
+        ShardFile(final Path path) {
+            super(path.toString());
+        }
+
+        @Override
+        WorkspaceNode read(final BufferedInputStream in) throws IOException {
+            return WorkspaceCodec.decodeSubtree(new DataInputStream(in));
+        }
+
+        @Override
+        void write(final WorkspaceNode root, final OutputStream out) throws IOException {
+            WorkspaceCodec.encodeSubtree(root, new DataOutputStream(out));
+        }
+    }
+    /**
+     * The manifest, holding the rootWorkspace and the ids of its tasks.
+     */
+    private static final class ManifestFile extends FileStore {
+        /**
+         * Ids of the rootWorkspaces tasks, in order. Filled in when the manifest is read.
+         */
+        private final List<Long> ids = new ArrayList<>();
+        /**
+         * Creates a manifest file.
+         *
+         * @param path  Path of the manifest
+         */
+        ManifestFile(final Path path) {
+            super(path.toString());
+        }
+
+        @Override
+        WorkspaceNode read(final BufferedInputStream in) throws IOException {
+            return WorkspaceCodec.decodeManifest(new DataInputStream(in), ids);
+        }
+
+        @Override
+        void write(final WorkspaceNode root, final OutputStream out) throws IOException {
+            WorkspaceCodec.encodeManifest(root, new DataOutputStream(out));
+        }
+    }
+    //#endregion [Files]
+}
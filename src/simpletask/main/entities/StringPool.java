@@ -0,0 +1,63 @@
+package simpletask.main.entities;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of the names and descriptions used by WorkspaceNodes. Workspaces often repeat the same text
+ * (e.g. "Default Description" or the descriptions of generated tasks), so rather than every node
+ * holding its own copy, nodes share the copy held in this pool.
+ * <p>
+ * The pool only holds its strings weakly. Once no node uses a string any more, e.g. because the
+ * node was deleted, renamed or its workspace was replaced by a load, the string is removed the
+ * next time it is garbage collected. This keeps a long running server or GUI from holding every
+ * name it has ever seen.
+ *
+ * @author Matthew Taggart
+ */
+final class StringPool {
+    /**
+     * The pooled strings, each mapped to a weak reference to itself. The WeakHashMap drops an
+     * entry once its key is only reachable through the pool.
+     */
+    private static final Map<String, WeakReference<String>> POOL = new WeakHashMap<>();
+    /**
+     * Private constructor as this is a utility class.
+     */
+    private StringPool() {
+
+    }
+    /**
+     * Returns the pooled copy of value, adding value to the pool if it is not already there.
+     * Safe to call from multiple threads.
+     *
+     * @param value The string to intern, may be null
+     * @return      The pooled string equal to value, or null if value is null
+     */
+    static String intern(final String value) {
+        if (null == value) {
+            return null;
+        }
+        synchronized (POOL) {
+            WeakReference<String> ref = POOL.get(value);
+            String pooled = null == ref ? null : ref.get();
+            if (null == pooled) {
+                POOL.put(value, new WeakReference<>(value));
+                pooled = value;
+            }
+            return pooled;
+        }
+    }
+    /**
+     * Returns the number of distinct strings in the pool, including any that are no longer used
+     * but have not yet been garbage collected.
+     *
+     * @return  Size of the pool
+     */
+    static int size() {
+        synchronized (POOL) {
+            return POOL.size();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package simpletask.main.entities;
 import java.io.InvalidClassException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A Task object is a WorkspaceNode that can maintain a list of other nodes. It has
@@ -58,7 +59,7 @@ class Task extends WorkspaceNode {
      */
     Task(final String name) {
         this();
-        this.name = name;
+        this.name = StringPool.intern(name);
     }
     //#endregion [Constructors]
 
@@ -192,7 +193,7 @@ class Task extends WorkspaceNode {
         Task oldParent = this.getParent();
         // Task will be it's own parent if no parent exists
         if (oldParent != this) {
-            oldParent.tasks.remove(this);
+            removeFromParent();
         }
         this.setParent((Task) target);
         ((Task) target).addToTask(this);
@@ -269,21 +270,59 @@ class Task extends WorkspaceNode {
         return this.tasks.add(workspace);
     }
     /**
-     * Deletes Task by first deleting all Workspaces in its list. It then tells its parent
-     * to remove it from their list and sets its parent to null.
+     * Appends a node to the end of the list of tasks and makes this Task its parent. Unlike
+     * moveWorkspace, the node is not removed from any previous parent, so this should only be
+     * used on freshly created nodes, i.e. when building a copy of a workspace or loading one.
+     *
+     * @param workspace Node to add to list of tasks
+     */
+    void adopt(final WorkspaceNode workspace) {
+        if (workspace instanceof Task) {
+            ((Task) workspace).setParent(this);
+        } else {
+            workspace.parent = this;
+        }
+        this.tasks.add(workspace);
+    }
+    /**
+     * Moves several of this Tasks tasks to the end of another Tasks list of tasks, keeping their
+     * order. This Tasks list of tasks is rebuilt once, however many tasks are moved, rather than
+     * searched and shifted once for each of them.
+     *
+     * @param indices   Positions of the tasks to move, which must be valid and distinct
+     * @param target    The Task to move them into
+     * @return          The moved tasks, in the order they were in this Task
+     */
+    List<WorkspaceNode> moveTasks(final int[] indices, final Task target) {
+        boolean[] chosen = new boolean[tasks.size()];
+        for (int i : indices) {
+            chosen[i] = true;
+        }
+        ArrayList<WorkspaceNode> kept = new ArrayList<>(tasks.size() - indices.length);
+        ArrayList<WorkspaceNode> moved = new ArrayList<>(indices.length);
+        for (int i = 0; i < tasks.size(); i++) {
+            (chosen[i] ? moved : kept).add(tasks.get(i));
+        }
+        tasks = kept;
+        for (WorkspaceNode w : moved) {
+            target.adopt(w);
+        }
+        return moved;
+    }
+    /**
+     * Deletes Task, along with every Workspace in its list, by telling its parent to remove it
+     * from their list and setting its parent to null. The Workspaces in its list are left attached
+     * to it, so a delete does not have to visit each node below the Task. A Task that is its own
+     * parent, i.e. the root of a workspace, is emptied instead.
      *
      * @return  True if Task is successfully deleted
      */
     @Override
     protected boolean delete() {
-        boolean fin = false;
-        while (!tasks.isEmpty()) {
-            fin = tasks.get(0).delete();
-            if (!fin) {  // If delete fails, stop immediatly
-                return fin;
-            }
+        if (parent == this) {
+            tasks.clear();
         }
-        parent.getTasks().remove(this);
+        removeFromParent();
         this.setParent(null);
         return true;
     }
@@ -292,6 +331,7 @@ class Task extends WorkspaceNode {
     protected Action asAction() throws InvalidClassException {
         if (tasks.size() == 0) {
             Action action = new Action(this.name);
+            action.id = this.id;
             action.setDescription(this.description);
             action.setComplete(String.valueOf(this.complete));
             action.parent = (Task) this.parent;
@@ -312,4 +352,13 @@ class Task extends WorkspaceNode {
     protected Task asTask() {
         return this;
     }
+    /**
+     * Creates a Task with the same attributes as this one, but with no sub tasks.
+     *
+     * @return  A copy of this Task
+     */
+    @Override
+    protected Task copy() {
+        return (Task) copyAttributesTo(new Task());
+    }
 }
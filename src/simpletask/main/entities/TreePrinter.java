@@ -0,0 +1,156 @@
+package simpletask.main.entities;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Writes a workspace as an indented tree, one node per line, straight to a Writer. Nothing is built
+ * up in memory, the tree is walked with a stack holding one entry per level, so a workspace of any
+ * size streams out as fast as the Writer takes it. The Writer should be buffered.
+ * <p>
+ * Each line is the name of the node followed by its type, the number of tasks a Task has and
+ * whether it is complete, e.g. "  Groceries (Task, 3 tasks, done)". Lines are indented two spaces
+ * for each level, up to MAX_INDENT levels. Deeper lines are prefixed with their depth instead, so
+ * a very deep workspace does not print a square number of spaces.
+ *
+ * @author Matthew Taggart
+ */
+final class TreePrinter {
+    //#region [Fields]
+    /**
+     * Number of levels that are shown by indenting. Deeper levels are shown by their depth.
+     */
+    static final int MAX_INDENT = 32;
+    /**
+     * Spaces written to indent the deepest indented line.
+     */
+    private static final char[] INDENT = new char[2 * MAX_INDENT];
+    static {
+        Arrays.fill(INDENT, ' ');
+    }
+    /**
+     * Where the tree is written.
+     */
+    private final Writer out;
+    /**
+     * Number of levels below the first node to print.
+     */
+    private final int maxDepth;
+    /**
+     * Number of tasks to print under each Task. The rest are summarised in one line.
+     */
+    private final int maxSiblings;
+    /**
+     * Only nodes that match this are printed, or every node if it is null. The tasks of nodes that
+     * do not match are still printed if they match.
+     */
+    private final Criteria filter;
+    //#endregion [Fields]
+
+    /**
+     * Creates a printer.
+     *
+     * @param out           Where to write the tree
+     * @param maxDepth      Number of levels below the first node to print
+     * @param maxSiblings   Number of tasks to print under each Task
+     * @param filter        Only nodes that match are printed, or null to print every node
+     */
+    TreePrinter(final Writer out, final int maxDepth, final int maxSiblings, final Criteria filter) {
+        this.out = out;
+        this.maxDepth = maxDepth;
+        this.maxSiblings = maxSiblings;
+        this.filter = filter;
+    }
+    /**
+     * Writes node and the nodes below it. The Writer is not flushed.
+     *
+     * @param node          The node to start from, printed at depth 0
+     * @return              Number of nodes printed
+     * @throws IOException  If the Writer fails
+     */
+    long print(final WorkspaceNode node) throws IOException {
+        long printed = 0;
+        if (matches(node)) {
+            line(node, 0);
+            printed++;
+        }
+        // Each frame is a Task whose tasks are being printed and the position of the next one
+        ArrayDeque<WorkspaceNode> parents = new ArrayDeque<>();
+        ArrayDeque<int[]> positions = new ArrayDeque<>();
+        if (maxDepth > 0 && node instanceof Task) {
+            parents.push(node);
+            positions.push(new int[] {0});
+        }
+        while (!parents.isEmpty()) {
+            WorkspaceNode parent = parents.peek();
+            int[] next = positions.peek();
+            int depth = parents.size();
+            if (next[0] >= parent.getTasks().size()) {
+                parents.pop();
+                positions.pop();
+                continue;
+            }
+            if (next[0] >= maxSiblings) {
+                indent(depth);
+                out.write("... " + (parent.getTasks().size() - next[0]) + " more\n");
+                parents.pop();
+                positions.pop();
+                continue;
+            }
+            WorkspaceNode w = parent.getTasks().get(next[0]++);
+            if (matches(w)) {
+                line(w, depth);
+                printed++;
+            }
+            if (depth < maxDepth && w instanceof Task && !w.getTasks().isEmpty()) {
+                parents.push(w);
+                positions.push(new int[] {0});
+            }
+        }
+        return printed;
+    }
+    /**
+     * Checks whether a node should be printed.
+     *
+     * @param node  The node
+     * @return      True if there is no filter or the node matches it
+     */
+    private boolean matches(final WorkspaceNode node) {
+        return null == filter || filter.compare(node);
+    }
+    /**
+     * Writes the line for a node.
+     *
+     * @param node          The node
+     * @param depth         Levels below the first node
+     * @throws IOException  If the Writer fails
+     */
+    private void line(final WorkspaceNode node, final int depth) throws IOException {
+        indent(depth);
+        out.write(String.valueOf(node.getName()));
+        if (node instanceof Task) {
+            out.write(" (Task, ");
+            out.write(Integer.toString(node.getTasks().size()));
+            out.write(" tasks");
+        } else {
+            out.write(" (Action");
+        }
+        out.write(node.getComplete() ? ", done)\n" : ")\n");
+    }
+    /**
+     * Writes the indent for a line.
+     *
+     * @param depth         Levels below the first node
+     * @throws IOException  If the Writer fails
+     */
+    private void indent(final int depth) throws IOException {
+        if (depth > MAX_INDENT) {
+            out.write(INDENT);
+            out.write("(" + depth + ") ");
+        } else {
+            out.write(INDENT, 0, 2 * depth);
+        }
+    }
+}
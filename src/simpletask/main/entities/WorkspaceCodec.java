@@ -0,0 +1,667 @@
+package simpletask.main.entities;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Binary format used to save workspaces. Java serialisation follows the parent and tasks
+ * references of each node recursively, so a deep enough workspace overflows the stack when it
+ * is saved or loaded. This format writes the nodes one after another, depth first, with each Task
+ * followed by the number of sub tasks it has. Both directions walk the tree with an explicit stack,
+ * so any depth can be saved and loaded in time linear in the number of nodes.
+ * <p>
+ * The layout is:
+ * <ol>
+ *  <li> MAGIC (int) and VERSION (byte) </li>
+ *  <li> The root node </li>
+ *  <li> One chunk for each of the roots sub tasks. A chunk is its length in bytes (int) followed by
+ *       every node in that sub tasks subtree, depth first. Chunks share nothing with each other, so
+ *       they are encoded and decoded in parallel and then attached to the root in order. </li>
+ * </ol>
+ * Each node is its type (byte), id (long), name, description, due date, priority (int), completion
+ * status (boolean) and, for Tasks, the number of sub tasks (varint).
+ * <p>
+ * Names and descriptions are dictionary encoded, as workspaces tend to repeat the same text. Each
+ * string is written as a varint: 0 for null, 1 for a string that has not been seen before (followed
+ * by its UTF-8 length as a varint and the bytes, and added to the end of the table) or 2 + n for the
+ * nth string in the table. The table is built as the data is read, so it never needs to be written
+ * separately. The root and each chunk have their own table. Decoded strings are shared through the
+ * StringPool, so strings repeated across chunks are still only held once in memory.
+ * <p>
+ * Due dates are the epoch day (long, Long.MIN_VALUE for null) followed by the nano of day (long).
+ * <p>
+ * A workspace can also be split up, as the ShardedStore does. Each sub task of the root is written
+ * as the header followed by its subtree (encodeSubtree), and the root as the header followed by the
+ * root node and the id (long) of each of its sub tasks (encodeManifest).
+ * <p>
+ * Only VERSION is read. Workspaces saved before this format existed used Java serialisation, which
+ * the stores still read. The number of sub tasks read is only used to presize lists up to
+ * MAX_TASKS_HINT, and a chunk or string length is only allocated up front if that many bytes are
+ * known to remain, otherwise the bytes are gathered as they are read. So a corrupt or crafted count
+ * or length cannot force a large allocation. Anything else that is not valid, such as a negative
+ * varint or a due date out of range, is thrown as a StreamCorruptedException.
+ *
+ * @author Matthew Taggart
+ */
+final class WorkspaceCodec {
+    //#region [Fields]
+    /**
+     * Written at the start of every encoded workspace, "STWS". Java serialisation streams start with
+     * 0xACED, so the two formats can be told apart.
+     */
+    static final int MAGIC = 0x53545753;
+    /**
+     * Version of the format that is written.
+     */
+    static final byte VERSION = 3;
+    /**
+     * Largest number of sub tasks that room is made for up front when a Task is read.
+     */
+    private static final int MAX_TASKS_HINT = 1024;
+    /**
+     * String reference for null.
+     */
+    private static final int NULL_STRING = 0;
+    /**
+     * String reference for a string that is not yet in the table.
+     */
+    private static final int NEW_STRING = 1;
+    /**
+     * Amount added to a table index to get its string reference.
+     */
+    private static final int TABLE_OFFSET = 2;
+    /**
+     * Mask for the 7 bits of a number written in each byte of a varint.
+     */
+    private static final int VARINT_BITS = 0x7F;
+    /**
+     * Bit set in a varint byte when more bytes follow.
+     */
+    private static final int VARINT_MORE = 0x80;
+    /**
+     * Type byte for a Task.
+     */
+    private static final byte TASK = 0;
+    /**
+     * Type byte for an Action.
+     */
+    private static final byte ACTION = 1;
+    /**
+     * Executor that chunks are encoded and decoded on.
+     */
+    private static volatile Executor executor = ForkJoinPool.commonPool();
+    //#endregion [Fields]
+
+    /**
+     * Private constructor as this is a utility class.
+     */
+    private WorkspaceCodec() {
+
+    }
+    /**
+     * Sets the executor that chunks are encoded and decoded on. By default the common ForkJoinPool
+     * is used.
+     *
+     * @param chunkExecutor The executor to use
+     */
+    static void setExecutor(final Executor chunkExecutor) {
+        executor = chunkExecutor;
+    }
+    /**
+     * Returns the executor that chunks are encoded and decoded on.
+     *
+     * @return  The executor
+     */
+    static Executor getExecutor() {
+        return executor;
+    }
+
+    //#region [Encode]
+    /**
+     * Writes the header, the root and one chunk per sub task of the root. The chunks are encoded in
+     * parallel and written in order.
+     *
+     * @param root          The root of the workspace
+     * @param out           Where to write to
+     * @throws IOException  If out cannot be written to
+     */
+    static void encode(final WorkspaceNode root, final DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        new TreeWriter(out).writeNode(root);
+        List<CompletableFuture<byte[]>> chunks = new ArrayList<>();
+        for (WorkspaceNode child : root.getTasks()) {
+            chunks.add(submit(() -> encodeChunk(child)));
+        }
+        try {
+            for (CompletableFuture<byte[]> chunk : chunks) {
+                byte[] bytes = chunk.join();
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        } catch (CompletionException ex) {
+            throw unwrap(ex);
+        }
+        out.flush();
+    }
+    /**
+     * Writes the header followed by a whole subtree. Used to store a single top level task on its own.
+     *
+     * @param subtree       The root of the subtree
+     * @param out           Where to write to
+     * @throws IOException  If out cannot be written to
+     */
+    static void encodeSubtree(final WorkspaceNode subtree, final DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        new TreeWriter(out).writeTree(subtree);
+    }
+    /**
+     * Writes the header, the root on its own and then the id of each of its sub tasks. Used along
+     * with encodeSubtree to store each sub task of the root separately.
+     *
+     * @param root          The root of the workspace
+     * @param out           Where to write to
+     * @throws IOException  If out cannot be written to
+     */
+    static void encodeManifest(final WorkspaceNode root, final DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        new TreeWriter(out).writeNode(root);
+        for (WorkspaceNode child : root.getTasks()) {
+            out.writeLong(child.id);
+        }
+        out.flush();
+    }
+    /**
+     * Encodes a subtree into a chunk.
+     *
+     * @param subtree   The root of the subtree
+     * @return          The encoded chunk
+     */
+    private static byte[] encodeChunk(final WorkspaceNode subtree) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            new TreeWriter(new DataOutputStream(bytes)).writeTree(subtree);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);     // Cannot happen when writing to memory
+        }
+        return bytes.toByteArray();
+    }
+    /**
+     * Writes nodes, keeping track of the strings that have been written.
+     */
+    private static final class TreeWriter {
+        /**
+         * Where to write to.
+         */
+        private final DataOutputStream out;
+        /**
+         * The strings written so far, mapped to their index in the table.
+         */
+        private final Map<String, Integer> table = new HashMap<>();
+        /**
+         * Creates a writer with an empty string table.
+         *
+         * @param out   Where to write to
+         */
+        TreeWriter(final DataOutputStream out) {
+            this.out = out;
+        }
+        /**
+         * Writes a subtree depth first.
+         *
+         * @param root          The root of the subtree
+         * @throws IOException  If out cannot be written to
+         */
+        void writeTree(final WorkspaceNode root) throws IOException {
+            writeNode(root);
+            ArrayDeque<Iterator<WorkspaceNode>> stack = new ArrayDeque<>();
+            stack.push(root.getTasks().iterator());
+            while (!stack.isEmpty()) {
+                Iterator<WorkspaceNode> siblings = stack.peek();
+                if (!siblings.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                WorkspaceNode node = siblings.next();
+                writeNode(node);
+                if (!node.getTasks().isEmpty()) {
+                    stack.push(node.getTasks().iterator());
+                }
+            }
+            out.flush();
+        }
+        /**
+         * Writes a single node.
+         *
+         * @param node          The node to write
+         * @throws IOException  If out cannot be written to
+         */
+        void writeNode(final WorkspaceNode node) throws IOException {
+            boolean isTask = node instanceof Task;
+            out.writeByte(isTask ? TASK : ACTION);
+            out.writeLong(node.id);
+            writeString(node.name);
+            writeString(node.description);
+            if (null == node.dueDate) {
+                out.writeLong(Long.MIN_VALUE);
+                out.writeLong(0);
+            } else {
+                out.writeLong(node.dueDate.toLocalDate().toEpochDay());
+                out.writeLong(node.dueDate.toLocalTime().toNanoOfDay());
+            }
+            out.writeInt(node.priority);
+            out.writeBoolean(node.complete);
+            if (isTask) {
+                writeVarInt(node.getTasks().size());
+            }
+        }
+        /**
+         * Writes a nullable string, as a reference into the string table if it has been written before.
+         *
+         * @param value         The string to write
+         * @throws IOException  If out cannot be written to
+         */
+        private void writeString(final String value) throws IOException {
+            if (null == value) {
+                writeVarInt(NULL_STRING);
+                return;
+            }
+            Integer index = table.putIfAbsent(value, table.size());
+            if (null != index) {
+                writeVarInt(index + TABLE_OFFSET);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(NEW_STRING);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+        /**
+         * Writes a non negative int using as few bytes as possible, 7 bits per byte.
+         *
+         * @param value         The value to write
+         * @throws IOException  If out cannot be written to
+         */
+        private void writeVarInt(final int value) throws IOException {
+            int v = value;
+            while ((v & ~VARINT_BITS) != 0) {
+                out.writeByte((v & VARINT_BITS) | VARINT_MORE);
+                v >>>= 7;
+            }
+            out.writeByte(v);
+        }
+    }
+    //#endregion [Encode]
+
+    //#region [Decode]
+    /**
+     * Checks whether the stream starts with an encoded workspace, without consuming anything.
+     *
+     * @param in            The stream to check
+     * @return              True if the stream starts with MAGIC
+     * @throws IOException  If in cannot be read
+     */
+    static boolean isEncoded(final BufferedInputStream in) throws IOException {
+        in.mark(Integer.BYTES);
+        try {
+            return new DataInputStream(in).readInt() == MAGIC;
+        } catch (EOFException ex) {
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+    /**
+     * Reads a workspace written by encode. Each chunk is handed to the executor to decode as soon as
+     * it has been read, so decoding overlaps with reading the rest of the file.
+     *
+     * @param in            Where to read from
+     * @return              The root of the workspace
+     * @throws IOException  If in cannot be read or is not a valid workspace
+     */
+    static WorkspaceNode decode(final DataInputStream in) throws IOException {
+        requireCurrent(readHeader(in));
+        TreeReader rootReader = new TreeReader(in);
+        WorkspaceNode root = rootReader.readNode();
+        long maxId = rootReader.maxId;
+        List<CompletableFuture<TreeReader>> chunks = new ArrayList<>(Math.min(rootReader.count, MAX_TASKS_HINT));
+        for (int i = 0; i < rootReader.count; i++) {
+            int length = in.readInt();
+            byte[] bytes = readBytes(in, length);
+            chunks.add(submit(() -> decodeChunk(bytes)));
+        }
+        try {
+            for (CompletableFuture<TreeReader> chunk : chunks) {
+                TreeReader reader = chunk.join();
+                ((Task) root).adopt(reader.root);
+                maxId = Math.max(maxId, reader.maxId);
+            }
+        } catch (CompletionException ex) {
+            throw unwrap(ex);
+        } catch (RuntimeException ex) {
+            throw corrupt(ex);
+        }
+        WorkspaceNode.reserveId(maxId);
+        return root;
+    }
+    /**
+     * Reads a subtree written by encodeSubtree.
+     *
+     * @param in            Where to read from
+     * @return              The root of the subtree, which has no parent
+     * @throws IOException  If in cannot be read or is not a valid subtree
+     */
+    static WorkspaceNode decodeSubtree(final DataInputStream in) throws IOException {
+        requireCurrent(readHeader(in));
+        TreeReader reader = new TreeReader(in);
+        WorkspaceNode subtree = reader.readTree();
+        WorkspaceNode.reserveId(reader.maxId);
+        return subtree;
+    }
+    /**
+     * Reads a root written by encodeManifest. The root is returned without any sub tasks and the ids
+     * of the sub tasks are added to ids, in order.
+     *
+     * @param in            Where to read from
+     * @param ids           List to add the ids of the sub tasks to
+     * @return              The root
+     * @throws IOException  If in cannot be read or is not a valid manifest
+     */
+    static WorkspaceNode decodeManifest(final DataInputStream in, final List<Long> ids) throws IOException {
+        requireCurrent(readHeader(in));
+        TreeReader reader = new TreeReader(in);
+        WorkspaceNode root = reader.readNode();
+        for (int i = 0; i < reader.count; i++) {
+            ids.add(in.readLong());
+        }
+        WorkspaceNode.reserveId(reader.maxId);
+        return root;
+    }
+    /**
+     * Reads MAGIC and the version.
+     *
+     * @param in            Where to read from
+     * @return              The version
+     * @throws IOException  If in cannot be read or does not start with MAGIC
+     */
+    private static int readHeader(final DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a SimpleTasks workspace");
+        }
+        return in.readByte();
+    }
+    /**
+     * Reads length bytes. If in is known to hold that many bytes they are read into a single array,
+     * otherwise they are read a block at a time, so a length larger than what is left in the
+     * stream fails once the stream ends instead of allocating the whole length first.
+     *
+     * @param in            Where to read from
+     * @param length        Number of bytes to read
+     * @return              The bytes
+     * @throws IOException  If in cannot be read, ends first or length is negative
+     */
+    private static byte[] readBytes(final DataInputStream in, final int length) throws IOException {
+        if (length < 0) {
+            throw new StreamCorruptedException("Negative length " + length);
+        }
+        if (length <= in.available()) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("Expected " + length + " bytes but only " + bytes.length + " remain");
+        }
+        return bytes;
+    }
+    /**
+     * Wraps an exception thrown while building nodes from invalid data, such as a due date out of
+     * range, so it is reported like any other corrupt workspace.
+     *
+     * @param ex    The exception thrown
+     * @return      A StreamCorruptedException caused by ex
+     */
+    private static StreamCorruptedException corrupt(final RuntimeException ex) {
+        StreamCorruptedException corrupt = new StreamCorruptedException(ex.toString());
+        corrupt.initCause(ex);
+        return corrupt;
+    }
+    /**
+     * Checks that version is the version being written, the only one that can be read.
+     *
+     * @param version       The version read
+     * @throws IOException  If it is not VERSION
+     */
+    private static void requireCurrent(final int version) throws IOException {
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported workspace version " + version);
+        }
+    }
+    /**
+     * Decodes a chunk into a detached subtree.
+     *
+     * @param bytes The chunk
+     * @return      The reader used, which holds the subtree and its largest id
+     */
+    private static TreeReader decodeChunk(final byte[] bytes) {
+        TreeReader reader = new TreeReader(new DataInputStream(new ByteArrayInputStream(bytes)));
+        try {
+            reader.readTree();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return reader;
+    }
+    /**
+     * Hands a chunk to the executor. Given the common pool when it has fewer than two threads,
+     * CompletableFuture starts a new thread for every chunk instead, which for a workspace with
+     * thousands of top level tasks costs far more than the chunks themselves. So on those machines
+     * the chunk is run on the calling thread.
+     *
+     * @param <T>   The type of the result
+     * @param chunk Encodes or decodes the chunk
+     * @return      The result of the chunk
+     */
+    private static <T> CompletableFuture<T> submit(final Supplier<T> chunk) {
+        if (executor == ForkJoinPool.commonPool() && ForkJoinPool.getCommonPoolParallelism() < 2) {
+            try {
+                return CompletableFuture.completedFuture(chunk.get());
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+        return CompletableFuture.supplyAsync(chunk, executor);
+    }
+    /**
+     * Gets the IOException that caused a chunk to fail.
+     *
+     * @param ex    The exception thrown by the chunks future
+     * @return      The underlying IOException
+     */
+    private static IOException unwrap(final CompletionException ex) {
+        if (ex.getCause() instanceof UncheckedIOException) {
+            return ((UncheckedIOException) ex.getCause()).getCause();
+        }
+        return new IOException(ex.getCause());
+    }
+    /**
+     * Reads nodes, keeping track of the strings that have been read.
+     */
+    private static final class TreeReader {
+        /**
+         * Where to read from.
+         */
+        private final DataInputStream in;
+        /**
+         * The strings read so far.
+         */
+        private final List<String> table = new ArrayList<>();
+        /**
+         * Number of sub tasks of the last node read.
+         */
+        private int count;
+        /**
+         * The largest id read.
+         */
+        private long maxId;
+        /**
+         * The root of the last tree read.
+         */
+        private WorkspaceNode root;
+        /**
+         * Creates a reader with an empty string table.
+         *
+         * @param in    Where to read from
+         */
+        TreeReader(final DataInputStream in) {
+            this.in = in;
+        }
+        /**
+         * Reads a subtree written depth first.
+         *
+         * @return              The root of the subtree
+         * @throws IOException  If in cannot be read or the subtree is invalid
+         */
+        WorkspaceNode readTree() throws IOException {
+            root = readNode();
+            // Each entry is a Task and the number of its sub tasks still to be read
+            ArrayDeque<Task> parents = new ArrayDeque<>();
+            ArrayDeque<int[]> remaining = new ArrayDeque<>();
+            if (count > 0) {
+                parents.push((Task) root);
+                remaining.push(new int[] {count});
+            }
+            while (!parents.isEmpty()) {
+                int[] left = remaining.peek();
+                if (left[0] == 0) {
+                    parents.pop();
+                    remaining.pop();
+                    continue;
+                }
+                left[0]--;
+                WorkspaceNode node = readNode();
+                parents.peek().adopt(node);
+                if (count > 0) {
+                    parents.push((Task) node);
+                    remaining.push(new int[] {count});
+                }
+            }
+            return root;
+        }
+        /**
+         * Reads a single node. Afterwards count holds the number of sub tasks it has.
+         *
+         * @return              The node
+         * @throws IOException  If in cannot be read or the node is invalid
+         */
+        WorkspaceNode readNode() throws IOException {
+            byte type = in.readByte();
+            WorkspaceNode node;
+            if (type == TASK) {
+                node = new Task();
+            } else if (type == ACTION) {
+                node = new Action();
+            } else {
+                throw new StreamCorruptedException("Unknown node type " + type);
+            }
+            node.id = in.readLong();
+            maxId = Math.max(maxId, node.id);
+            node.name = readString();
+            node.description = readString();
+            long epochDay = in.readLong();
+            long nanoOfDay = in.readLong();
+            try {
+                node.dueDate = epochDay == Long.MIN_VALUE ? null
+                               : LocalDateTime.of(LocalDate.ofEpochDay(epochDay), LocalTime.ofNanoOfDay(nanoOfDay));
+            } catch (RuntimeException ex) {
+                throw corrupt(ex);
+            }
+            node.priority = in.readInt();
+            node.complete = in.readBoolean();
+            count = type == TASK ? readVarInt() : 0;
+            if (count < 0) {
+                throw new StreamCorruptedException("Negative number of sub tasks");
+            }
+            if (count > 0) {
+                node.getTasks().ensureCapacity(Math.min(count, MAX_TASKS_HINT));
+            }
+            return node;
+        }
+        /**
+         * Reads a nullable string. New strings are added to the table and shared through the StringPool.
+         *
+         * @return              The string
+         * @throws IOException  If in cannot be read or refers to a string not in the table
+         */
+        private String readString() throws IOException {
+            int ref = readVarInt();
+            if (ref == NULL_STRING) {
+                return null;
+            } else if (ref == NEW_STRING) {
+                String value = StringPool.intern(readUtf8(readVarInt()));
+                table.add(value);
+                return value;
+            } else if (ref - TABLE_OFFSET < table.size()) {
+                return table.get(ref - TABLE_OFFSET);
+            }
+            throw new StreamCorruptedException("String reference " + ref + " is not in the table");
+        }
+        /**
+         * Reads length bytes of UTF-8.
+         *
+         * @param length        Number of bytes to read
+         * @return              The decoded string
+         * @throws IOException  If in cannot be read, ends first or length is negative
+         */
+        private String readUtf8(final int length) throws IOException {
+            return new String(readBytes(in, length), StandardCharsets.UTF_8);
+        }
+        /**
+         * Reads a varint written by TreeWriter.writeVarInt.
+         *
+         * @return              The value
+         * @throws IOException  If in cannot be read, or the varint is too long or negative
+         */
+        private int readVarInt() throws IOException {
+            final int maxShift = 28;
+            int value = 0;
+            for (int shift = 0; shift <= maxShift; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & VARINT_BITS) << shift;
+                if ((b & VARINT_MORE) == 0) {
+                    if (value < 0) {
+                        throw new StreamCorruptedException("Negative varint " + value);
+                    }
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("Varint is too long");
+        }
+    }
+    //#endregion [Decode]
+}
@@ -0,0 +1,175 @@
+package simpletask.main.entities;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for the slow WorkspaceManager operations, so a latency spike in a
+ * recording can be lined up with the garbage collections and file I/O around it.
+ * <p>
+ * Every event is disabled by default. A disabled event's shouldCommit() is false, so the fields
+ * are never filled in. Once the call is inlined, the event object is not even allocated. To turn
+ * them on, start a recording with the settings in simpletask.jfc, see the ReadMe.
+ *
+ * @author Matthew Taggart
+ */
+final class WorkspaceEvents {
+    /**
+     * Private constructor as this class only holds the events.
+     */
+    private WorkspaceEvents() {
+
+    }
+
+    /**
+     * A save of the whole workspace, either asked for or made by an AutoSaver.
+     */
+    @Name("simpletask.Save")
+    @Label("Workspace Save")
+    @Category({"SimpleTask", "Workspace"})
+    @Description("Saving the workspace to a store")
+    @Enabled(false)
+    static final class Save extends Event {
+        /**
+         * Where the workspace was saved.
+         */
+        @Label("Location")
+        String location;
+        /**
+         * Number of nodes saved, not including the root.
+         */
+        @Label("Nodes")
+        long nodes;
+        /**
+         * Number of bytes written.
+         */
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+        /**
+         * Whether the save succeeded.
+         */
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    /**
+     * A load of a workspace from a store.
+     */
+    @Name("simpletask.Load")
+    @Label("Workspace Load")
+    @Category({"SimpleTask", "Workspace"})
+    @Description("Loading the workspace from a store")
+    @Enabled(false)
+    static final class Load extends Event {
+        /**
+         * Where the workspace was loaded from.
+         */
+        @Label("Location")
+        String location;
+        /**
+         * Number of nodes loaded, not including the root.
+         */
+        @Label("Nodes")
+        long nodes;
+        /**
+         * Size of the stored workspace.
+         */
+        @Label("Bytes Read")
+        @DataAmount
+        long bytes;
+        /**
+         * Whether the load succeeded.
+         */
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    /**
+     * A search of the currentWorkspace with searchWorkspaces.
+     */
+    @Name("simpletask.Search")
+    @Label("Workspace Search")
+    @Category({"SimpleTask", "Workspace"})
+    @Description("Searching the current workspace for nodes matching a Criteria")
+    @Enabled(false)
+    static final class Search extends Event {
+        /**
+         * Depth of the currentWorkspace the search started from.
+         */
+        @Label("Path Depth")
+        int pathDepth;
+        /**
+         * Number of nodes compared to the criteria.
+         */
+        @Label("Nodes Visited")
+        long nodesVisited;
+        /**
+         * Number of nodes that matched.
+         */
+        @Label("Results")
+        int results;
+    }
+
+    /**
+     * A move of the currentWorkspace, or of several tasks at once.
+     */
+    @Name("simpletask.Move")
+    @Label("Workspace Move")
+    @Category({"SimpleTask", "Workspace"})
+    @Description("Moving nodes to another Task")
+    @Enabled(false)
+    static final class Move extends Event {
+        /**
+         * Depth of the Task the nodes were moved out of.
+         */
+        @Label("From Depth")
+        int fromDepth;
+        /**
+         * Depth of the Task the nodes were moved into.
+         */
+        @Label("To Depth")
+        int toDepth;
+        /**
+         * Number of nodes moved, not counting their tasks.
+         */
+        @Label("Tasks")
+        int tasks;
+        /**
+         * Whether the move succeeded.
+         */
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    /**
+     * A delete of a node along with every node below it.
+     */
+    @Name("simpletask.Delete")
+    @Label("Workspace Delete")
+    @Category({"SimpleTask", "Workspace"})
+    @Description("Deleting a node and its tasks")
+    @Enabled(false)
+    static final class Delete extends Event {
+        /**
+         * Depth of the deleted node.
+         */
+        @Label("Path Depth")
+        int pathDepth;
+        /**
+         * Number of nodes deleted, including the node itself.
+         */
+        @Label("Nodes")
+        long nodes;
+        /**
+         * Whether the delete succeeded.
+         */
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+}
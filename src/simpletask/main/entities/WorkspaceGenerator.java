@@ -0,0 +1,424 @@
+package simpletask.main.entities;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic workspaces for tests and benchmarks. The same seed and settings always give
+ * the same workspace, apart from the ids of its nodes, so a benchmark run on one machine can be
+ * repeated on another from nothing more than its settings.
+ * <p>
+ * Nodes are added breadth first, each Task being given tasks according to the Shape, until there
+ * are as many nodes as asked for. Each new node is an Action with probability actionShare, and is
+ * otherwise a Task, so every shape has a mix of Actions and Tasks (some empty) at its leaves.
+ * <p>
+ * Names, descriptions, priorities, due dates and completion are drawn to look like a real
+ * workspace: names are made from short lists of words, most nodes have a low priority, most due
+ * dates are in the next month with some overdue, and overdue nodes are more likely to be complete.
+ * Names and descriptions are drawn from a few thousand combinations rather than numbered, so
+ * millions of nodes share their text through the StringPool rather than each holding its own.
+ * <p>
+ * Nodes are built directly rather than through a WorkspaceManager, so several million nodes can be
+ * generated in seconds. For example
+ * <pre>
+ * new WorkspaceGenerator(42).shape(Shape.ZIPF).nodes(5_000_000).generate("big.ws");
+ * </pre>
+ *
+ * @author Matthew Taggart
+ */
+public final class WorkspaceGenerator {
+    //#region [Fields]
+    /**
+     * Verbs that Action names start with.
+     */
+    private static final String[] VERBS = {
+        "Review", "Write", "Fix", "Plan", "Call", "Buy", "Email", "Update",
+        "Test", "Book", "Prepare", "Clean", "Read", "Schedule", "Pay", "Submit"
+    };
+    /**
+     * What Actions are done to.
+     */
+    private static final String[] OBJECTS = {
+        "report", "budget", "slides", "invoice", "dentist", "groceries", "release notes", "car insurance",
+        "meeting room", "quarterly plan", "backlog", "login bug", "garden", "tax return", "flights", "essay",
+        "newsletter", "contract", "onboarding docs", "bike", "birthday present", "server", "landlord", "chapter"
+    };
+    /**
+     * Endings added to some Action names.
+     */
+    private static final String[] QUALIFIERS = {
+        "", "", "", "", "for Monday", "again", "with Sam", "before Friday", "(draft)", "v2"
+    };
+    /**
+     * What Tasks, which group other nodes, are called. Each is followed by a number.
+     */
+    private static final String[] GROUPS = {
+        "Inbox", "Sprint", "Project", "Home", "Work", "Errands", "Ideas", "Someday",
+        "Backlog", "Assignment", "Chapter", "Milestone"
+    };
+    /**
+     * Largest number following a Task name.
+     */
+    private static final int GROUP_NUMBERS = 50;
+    /**
+     * Sentences that descriptions are made from.
+     */
+    private static final String[] SENTENCES = {
+        "Check with the team first.", "Needs sign off.", "Waiting on a reply.", "Blocked until next week.",
+        "See the notes from the last meeting.", "Only the first part is urgent.", "Keep the receipt.",
+        "Ask for a quote.", "Low effort, do it when there is a gap.", "Split this up if it gets big.",
+        "Carried over from last month.", "Remember to attach the files."
+    };
+    /**
+     * Description given to nodes that were not described, as the application does.
+     */
+    private static final String DEFAULT_DESCRIPTION = "Default Description";
+    /**
+     * Relative weight of each priority, from MINIMPORTANCE to MAXIMPORTANCE.
+     */
+    private static final int[] PRIORITY_WEIGHTS = {30, 20, 15, 10, 8, 6, 4, 3, 2, 1, 1};
+    /**
+     * Date that due dates are drawn around, rather than today, so the workspace does not depend on
+     * when it is generated.
+     */
+    private static final LocalDateTime DEFAULT_NOW = LocalDateTime.of(2026, 1, 1, 0, 0);
+    /**
+     * Seeds the random number generator.
+     */
+    private final long seed;
+    /**
+     * How the workspace is shaped.
+     */
+    private Shape shape = Shape.BALANCED;
+    /**
+     * Number of nodes to generate, not including the root.
+     */
+    private int nodes = 1_000;
+    /**
+     * Number of tasks under each Task for BALANCED, and the most for ZIPF.
+     */
+    private int fanOut = 10;
+    /**
+     * Number of Tasks in each chain for CHAIN.
+     */
+    private int depth = Integer.MAX_VALUE;
+    /**
+     * Probability that a node is an Action.
+     */
+    private double actionShare = 0.6;
+    /**
+     * Exponent of the Zipf distribution for ZIPF. The larger it is, the more Tasks have only a few
+     * tasks.
+     */
+    private double exponent = 1.2;
+    /**
+     * Date that due dates are drawn around.
+     */
+    private LocalDateTime now = DEFAULT_NOW;
+    //#endregion [Fields]
+
+    /**
+     * Creates a generator with the default settings: a BALANCED workspace of 1000 nodes, 10 wide.
+     *
+     * @param seed  Seeds the random number generator
+     */
+    public WorkspaceGenerator(final long seed) {
+        this.seed = seed;
+    }
+
+    //#region [Settings]
+    /**
+     * Sets how the workspace is shaped.
+     *
+     * @param value The shape
+     * @return      This generator
+     */
+    public WorkspaceGenerator shape(final Shape value) {
+        this.shape = value;
+        return this;
+    }
+    /**
+     * Sets the number of nodes to generate, not including the root.
+     *
+     * @param value Number of nodes
+     * @return      This generator
+     */
+    public WorkspaceGenerator nodes(final int value) {
+        this.nodes = value;
+        return this;
+    }
+    /**
+     * Sets the number of tasks under each Task for BALANCED, and the most for ZIPF.
+     *
+     * @param value Number of tasks, at least 1
+     * @return      This generator
+     */
+    public WorkspaceGenerator fanOut(final int value) {
+        this.fanOut = Math.max(1, value);
+        return this;
+    }
+    /**
+     * Sets the number of Tasks in each chain for CHAIN. A workspace deeper than a few thousand
+     * levels cannot be searched or saved by the operations that recurse once per level.
+     *
+     * @param value Number of Tasks in each chain, at least 1
+     * @return      This generator
+     */
+    public WorkspaceGenerator depth(final int value) {
+        this.depth = Math.max(1, value);
+        return this;
+    }
+    /**
+     * Sets the probability that a node is an Action rather than a Task.
+     *
+     * @param value The probability, from 0 to 1
+     * @return      This generator
+     */
+    public WorkspaceGenerator actionShare(final double value) {
+        this.actionShare = Math.min(1, Math.max(0, value));
+        return this;
+    }
+    /**
+     * Sets the exponent of the Zipf distribution for ZIPF.
+     *
+     * @param value The exponent, above 0
+     * @return      This generator
+     */
+    public WorkspaceGenerator exponent(final double value) {
+        this.exponent = value;
+        return this;
+    }
+    /**
+     * Sets the date that due dates are drawn around.
+     *
+     * @param value The date
+     * @return      This generator
+     */
+    public WorkspaceGenerator now(final LocalDateTime value) {
+        this.now = value;
+        return this;
+    }
+    //#endregion [Settings]
+
+    //#region [Generating]
+    /**
+     * Generates a workspace and makes it the one being managed, as initialise does.
+     *
+     * @return  The WorkspaceManager that manages it
+     */
+    public WorkspaceManager generate() {
+        return WorkspaceManager.manage(build());
+    }
+    /**
+     * Generates a workspace, makes it the one being managed and saves it to path. The store is
+     * chosen from the path by WorkspaceStore.forPath.
+     *
+     * @param path  Where to save the workspace
+     * @return      True if it was saved
+     */
+    public boolean generate(final String path) {
+        return generate().save(path);
+    }
+    /**
+     * Builds the nodes of the workspace.
+     *
+     * @return  The root
+     */
+    Task build() {
+        Random random = new Random(seed);
+        double[] zipf = Shape.ZIPF == shape ? zipfCumulative() : null;
+        Task root = new Task("Generated");
+        root.dueDate = now;
+        // Tasks still to be given tasks, in the order they were made
+        ArrayDeque<Task> open = new ArrayDeque<>();
+        open.add(root);
+        // Position of the next node in the current chain for CHAIN
+        int inChain = 0;
+        int made = 0;
+        while (made < nodes) {
+            Task parent = open.poll();
+            if (null == parent) {
+                // Everything made so far was an Action, start again from the root
+                parent = root;
+            }
+            int tasks;
+            switch (shape) {
+                case CHAIN:     tasks = 1;                              break;
+                case FAN_OUT:   tasks = nodes;                          break;
+                case ZIPF:      tasks = zipf(random, zipf);             break;
+                default:        tasks = fanOut;                         break;
+            }
+            for (int i = 0; i < tasks && made < nodes; i++, made++) {
+                boolean chained = Shape.CHAIN == shape && ++inChain < depth && made + 1 < nodes;
+                WorkspaceNode node = chained || random.nextDouble() >= actionShare ? newTask(random) : newAction(random);
+                parent.adopt(node);
+                if (Shape.CHAIN == shape) {
+                    if (node instanceof Task && chained) {
+                        open.add((Task) node);
+                    } else {
+                        // The chain has ended, start the next one at the root
+                        open.add(root);
+                        inChain = 0;
+                    }
+                } else if (node instanceof Task) {
+                    open.add((Task) node);
+                }
+            }
+        }
+        return root;
+    }
+    /**
+     * Makes a Task that groups other nodes.
+     *
+     * @param random    Draws its details
+     * @return          The Task
+     */
+    private Task newTask(final Random random) {
+        Task task = new Task(GROUPS[random.nextInt(GROUPS.length)] + " " + (1 + random.nextInt(GROUP_NUMBERS)));
+        describe(task, random);
+        return task;
+    }
+    /**
+     * Makes an Action.
+     *
+     * @param random    Draws its details
+     * @return          The Action
+     */
+    private Action newAction(final Random random) {
+        String qualifier = QUALIFIERS[random.nextInt(QUALIFIERS.length)];
+        Action action = new Action(VERBS[random.nextInt(VERBS.length)] + " " + OBJECTS[random.nextInt(OBJECTS.length)]
+                                   + (qualifier.isEmpty() ? "" : " " + qualifier));
+        describe(action, random);
+        return action;
+    }
+    /**
+     * Draws the description, priority, due date and completion of a node.
+     *
+     * @param node      The node
+     * @param random    Draws the details
+     */
+    private void describe(final WorkspaceNode node, final Random random) {
+        if (random.nextInt(10) < 3) {
+            node.description = DEFAULT_DESCRIPTION;
+        } else {
+            String first = SENTENCES[random.nextInt(SENTENCES.length)];
+            node.description = StringPool.intern(random.nextBoolean() ? first : first + " " + SENTENCES[random.nextInt(SENTENCES.length)]);
+        }
+        node.priority = weighted(random, PRIORITY_WEIGHTS);
+
+        // Mostly due in the next month, some overdue and a few far off
+        int bucket = random.nextInt(100);
+        int days;
+        if (bucket < 15) {
+            days = -1 - random.nextInt(60);
+        } else if (bucket < 75) {
+            days = random.nextInt(30);
+        } else if (bucket < 95) {
+            days = 30 + random.nextInt(150);
+        } else {
+            days = 180 + random.nextInt(550);
+        }
+        node.dueDate = now.plusDays(days).withHour(8 + random.nextInt(10)).withMinute(15 * random.nextInt(4));
+        node.complete = random.nextInt(100) < (days < 0 ? 60 : 15);
+    }
+    /**
+     * Draws an index with probability proportional to its weight.
+     *
+     * @param random    Draws the index
+     * @param weights   The weights
+     * @return          The index
+     */
+    private static int weighted(final Random random, final int[] weights) {
+        int total = 0;
+        for (int w : weights) {
+            total += w;
+        }
+        int n = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            n -= weights[i];
+            if (n < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+    /**
+     * Works out the cumulative probability of each number of tasks, from 1 to fanOut, for ZIPF.
+     *
+     * @return  The probability that a Task has at most i + 1 tasks, at i
+     */
+    private double[] zipfCumulative() {
+        double[] cumulative = new double[fanOut];
+        double total = 0;
+        for (int k = 1; k <= fanOut; k++) {
+            total += 1 / Math.pow(k, exponent);
+            cumulative[k - 1] = total;
+        }
+        for (int i = 0; i < fanOut; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+    /**
+     * Draws a number of tasks from the Zipf distribution.
+     *
+     * @param random        Draws the number
+     * @param cumulative    From zipfCumulative
+     * @return              Number of tasks, from 1 to fanOut
+     */
+    private static int zipf(final Random random, final double[] cumulative) {
+        double p = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < p) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low + 1;
+    }
+    //#endregion [Generating]
+
+    /**
+     * Returns the words that generated names are made from, e.g. to search for.
+     *
+     * @return  The words
+     */
+    public static List<String> getWords() {
+        List<String> words = new ArrayList<>();
+        Collections.addAll(words, VERBS);
+        Collections.addAll(words, GROUPS);
+        return Collections.unmodifiableList(words);
+    }
+
+    /**
+     * How a generated workspace is shaped.
+     */
+    public enum Shape {
+        /**
+         * Chains of Tasks, each depth long, hanging from the root. The last node of each chain may
+         * be an Action.
+         */
+        CHAIN,
+        /**
+         * Every node is directly under the root.
+         */
+        FAN_OUT,
+        /**
+         * Every Task has fanOut tasks, and each level is filled before the next.
+         */
+        BALANCED,
+        /**
+         * The number of tasks of each Task is drawn from a Zipf distribution from 1 to fanOut, so
+         * most Tasks have a few tasks and a few have many, as in a real workspace.
+         */
+        ZIPF
+    }
+}
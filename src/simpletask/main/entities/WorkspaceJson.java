@@ -0,0 +1,494 @@
+package simpletask.main.entities;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Reads and writes workspaces as newline delimited JSON (NDJSON). Each line is a JSON object
+ * describing one WorkspaceNode, for example:
+ * <p>
+ * {"id":2,"parent":1,"name":"ToDo","description":"","duedate":"2020-05-01T00:00","priority":0,
+ * "complete":false,"tasks":3,"type":"Task"}
+ * <p>
+ * The keys are the lower case names of the NodeKeys, plus "parent" which is the id of the nodes
+ * parent (null for the root). Nodes are written depth first, so a node always comes after its parent
+ * and after all the nodes in its earlier siblings subtrees. Readers rely on this ordering so that
+ * they only need to remember the nodes on the path to the current node rather than every node seen.
+ * <p>
+ * Only appendString is public, so that everything else written as JSON is escaped the same way.
+ *
+ * @author Matthew Taggart
+ */
+public final class WorkspaceJson {
+    /**
+     * Key used for the parents id.
+     */
+    private static final String PARENT = "parent";
+    /**
+     * Largest number of tasks that a line can ask to be made room for up front. The "tasks" value
+     * is only a hint, so a larger (or crafted) value cannot force a huge allocation; lists with
+     * more tasks than this simply grow as they are read.
+     */
+    private static final int MAX_TASKS_HINT = 1024;
+    /**
+     * Keys in the order they are written. Index 0 is the parent, the rest are the NodeKeys.
+     */
+    private static final String[] KEYS = new String[NodeKeys.values().length + 1];
+    static {
+        KEYS[0] = PARENT;
+        for (NodeKeys nKeys : NodeKeys.values()) {
+            KEYS[nKeys.ordinal() + 1] = nKeys.name().toLowerCase();
+        }
+    }
+    /**
+     * Private constructor as this is a utility class.
+     */
+    private WorkspaceJson() {
+
+    }
+
+    //#region [Export]
+    /**
+     * Writes the workspace to out, one node per line. The tree is walked with an explicit stack
+     * so nothing but the path to the current node is held in memory, on top of the workspace itself.
+     *
+     * @param root          The node to start writing from. It is written with a null parent
+     * @param out           Where to write to
+     * @return              The number of nodes written
+     * @throws IOException  If out cannot be written to
+     */
+    static long write(final WorkspaceNode root, final Writer out) throws IOException {
+        StringBuilder line = new StringBuilder();
+        ArrayDeque<Iterator<WorkspaceNode>> stack = new ArrayDeque<>();
+        long count = 1;
+        writeNode(root, null, line, out);
+        stack.push(root.getTasks().iterator());
+        while (!stack.isEmpty()) {
+            Iterator<WorkspaceNode> siblings = stack.peek();
+            if (!siblings.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            WorkspaceNode node = siblings.next();
+            writeNode(node, node.getParent(), line, out);
+            count++;
+            if (!node.getTasks().isEmpty()) {
+                stack.push(node.getTasks().iterator());
+            }
+        }
+        out.flush();
+        return count;
+    }
+    /**
+     * Writes a single node as a line of JSON.
+     *
+     * @param node          Node to write
+     * @param parent        The nodes parent, or null if it is to be written as the root
+     * @param line          Buffer reused between lines
+     * @param out           Where to write the line
+     * @throws IOException  If out cannot be written to
+     */
+    private static void writeNode(final WorkspaceNode node, final WorkspaceNode parent,
+                                  final StringBuilder line, final Writer out) throws IOException {
+        line.setLength(0);
+        line.append("{\"").append(KEYS[NodeKeys.ID.ordinal() + 1]).append("\":").append(node.id);
+        line.append(",\"").append(PARENT).append("\":");
+        if (null == parent) {
+            line.append("null");
+        } else {
+            line.append(parent.id);
+        }
+        for (NodeKeys nKeys : NodeKeys.values()) {
+            if (nKeys == NodeKeys.ID) {
+                continue;
+            }
+            line.append(",\"").append(KEYS[nKeys.ordinal() + 1]).append("\":");
+            switch (nKeys) {
+                case NAME:        appendString(line, node.name);                        break;
+                case DESCRIPTION: appendString(line, node.description);                 break;
+                case DUEDATE:     appendString(line, String.valueOf(node.dueDate));     break;
+                case PRIORITY:    line.append(node.priority);                           break;
+                case COMPLETE:    line.append(node.complete);                           break;
+                case TASKS:       line.append(node.getTasks().size());                  break;
+                case TYPE:        appendString(line, node.getClass().getSimpleName());  break;
+                default:          line.append("null");                                  break;
+            }
+        }
+        line.append("}\n");
+        out.append(line);
+    }
+    /**
+     * Appends a string to the buffer as a quoted and escaped JSON string.
+     *
+     * @param line  The buffer to append to
+     * @param value The string to append. Null is written as a JSON null
+     * @return      line
+     */
+    public static StringBuilder appendString(final StringBuilder line, final String value) {
+        if (null == value) {
+            return line.append("null");
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':  line.append("\\\""); break;
+                case '\\': line.append("\\\\"); break;
+                case '\n': line.append("\\n");  break;
+                case '\r': line.append("\\r");  break;
+                case '\t': line.append("\\t");  break;
+                default:
+                    if (c < ' ') {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                    break;
+            }
+        }
+        return line.append('"');
+    }
+    //#endregion [Export]
+
+    //#region [Import]
+    /**
+     * Builds a workspace from NDJSON in a single pass. Nodes are attached straight to their parent
+     * rather than going through WorkspaceManager.addWorkspace, and only the chain of Tasks from the
+     * root to the current line is remembered, so memory use is the size of the workspace plus its depth.
+     * <p>
+     * Ids may be any JSON value, but numeric ids are kept as the ids of the loaded nodes. Nodes
+     * whose id is not numeric, or is the same as an earlier nodes, are given a new id once the whole
+     * workspace is read, so no two loaded nodes ever share one. A missing name is set to "Default",
+     * type to Task, priority to 0 and due date to now.
+     *
+     * @param in            The NDJSON to read
+     * @return              The root of the workspace
+     * @throws IOException  If in cannot be read, or does not contain a valid workspace
+     */
+    static WorkspaceNode read(final BufferedReader in) throws IOException {
+        ArrayDeque<Object[]> ancestors = new ArrayDeque<>();     // {id, Task} pairs
+        String[] values = new String[KEYS.length];
+        Set<Long> ids = new HashSet<>();
+        WorkspaceNode root = null;
+        long lineNumber = 0;
+        String line;
+        while (null != (line = in.readLine())) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                parseLine(line, values);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Line " + lineNumber + ": " + ex.getMessage());
+            }
+            WorkspaceNode node = createNode(values, ids, lineNumber);
+            String parentId = values[0];
+            if (null == root) {
+                if (null != parentId) {
+                    throw new IOException("Line " + lineNumber + ": first node must be the root and have a null parent");
+                }
+                root = node;
+            } else {
+                if (null == parentId) {
+                    throw new IOException("Line " + lineNumber + ": only the first node can have a null parent");
+                }
+                // Walk back up to the parent. As the nodes are depth first it must be on the stack.
+                while (!ancestors.isEmpty() && !parentId.equals(ancestors.peek()[0])) {
+                    ancestors.pop();
+                }
+                if (ancestors.isEmpty()) {
+                    throw new IOException("Line " + lineNumber + ": parent " + parentId
+                                          + " is not a Task above this node, nodes must be in depth first order");
+                }
+                ((Task) ancestors.peek()[1]).adopt(node);
+            }
+            if (node instanceof Task) {
+                ancestors.push(new Object[] {values[NodeKeys.ID.ordinal() + 1], node});
+            }
+        }
+        if (null == root) {
+            throw new IOException("No workspace found");
+        }
+        WorkspaceNode.assignIds(root);
+        return root;
+    }
+    /**
+     * Creates a node from the parsed values of a line. If the line has no usable id, or its id was
+     * already used, the nodes id is left at 0 so that WorkspaceNode.assignIds gives it a new one.
+     *
+     * @param values        The values of the line, indexed as KEYS is
+     * @param ids           The ids used by the lines read so far, the nodes id is added to it
+     * @param lineNumber    The line number, used in error messages
+     * @return              The new node
+     * @throws IOException  If a value is invalid
+     */
+    private static WorkspaceNode createNode(final String[] values, final Set<Long> ids,
+                                            final long lineNumber) throws IOException {
+        WorkspaceNode node = "Action".equals(value(values, NodeKeys.TYPE)) ? new Action() : new Task();
+        String name = value(values, NodeKeys.NAME);
+        node.name = null == name || name.isEmpty() ? "Default" : StringPool.intern(name);
+        node.description = StringPool.intern(value(values, NodeKeys.DESCRIPTION));
+        node.complete = Boolean.parseBoolean(value(values, NodeKeys.COMPLETE));
+        try {
+            String id = value(values, NodeKeys.ID);
+            node.id = 0;
+            if (null != id && !id.isEmpty() && Character.isDigit(id.charAt(0))) {
+                long parsed = Long.parseLong(id);
+                if (ids.add(parsed)) {
+                    node.id = parsed;
+                    WorkspaceNode.reserveId(parsed);
+                }
+            }
+            String priority = value(values, NodeKeys.PRIORITY);
+            node.setPriority(null == priority ? 0 : Integer.parseInt(priority));
+            String dueDate = value(values, NodeKeys.DUEDATE);
+            if (null != dueDate) {
+                node.dueDate = parseDateTime(dueDate);
+            }
+            String tasks = value(values, NodeKeys.TASKS);
+            if (node instanceof Task && null != tasks) {
+                ((Task) node).getTasks().ensureCapacity(Math.min(Integer.parseInt(tasks), MAX_TASKS_HINT));
+            }
+        } catch (NumberFormatException | DateTimeException | InvalidPriorityException ex) {
+            throw new IOException("Line " + lineNumber + ": " + ex.getMessage(), ex);
+        }
+        return node;
+    }
+    /**
+     * Parses an ISO-8601 local date time, as written by LocalDateTime.toString(). The common form
+     * yyyy-MM-ddTHH:mm[:ss[.fraction]] is parsed by hand as LocalDateTime.parse is a large part of
+     * the cost of importing a line. Anything else is left to LocalDateTime.parse.
+     *
+     * @param text  The date time to parse
+     * @return      The parsed date time
+     */
+    static LocalDateTime parseDateTime(final String text) {
+        final int minLength = 16;
+        final int maxFraction = 9;
+        int len = text.length();
+        if (len < minLength || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+            || text.charAt(13) != ':') {
+            return LocalDateTime.parse(text);
+        }
+        try {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 2);
+            int day = digits(text, 8, 2);
+            int hour = digits(text, 11, 2);
+            int minute = digits(text, 14, 2);
+            int second = 0;
+            int nano = 0;
+            if (len > minLength) {
+                if (text.charAt(16) != ':' || len < 19) {
+                    return LocalDateTime.parse(text);
+                }
+                second = digits(text, 17, 2);
+                if (len > 19) {
+                    int fraction = len - 20;
+                    if (text.charAt(19) != '.' || fraction < 1 || fraction > maxFraction) {
+                        return LocalDateTime.parse(text);
+                    }
+                    nano = digits(text, 20, fraction);
+                    for (int i = fraction; i < maxFraction; i++) {
+                        nano *= 10;
+                    }
+                }
+            }
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (NumberFormatException ex) {
+            return LocalDateTime.parse(text);
+        }
+    }
+    /**
+     * Parses a run of decimal digits.
+     *
+     * @param text      Text containing the digits
+     * @param start     Index of the first digit
+     * @param count     Number of digits
+     * @return          The value of the digits
+     */
+    private static int digits(final String text, final int start, final int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException(text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+    /**
+     * Gets the value for a key from the parsed values of a line.
+     *
+     * @param values    The values of the line
+     * @param nKeys     The key to get
+     * @return          The value, or null if it was missing or null
+     */
+    private static String value(final String[] values, final NodeKeys nKeys) {
+        return values[nKeys.ordinal() + 1];
+    }
+    /**
+     * Parses a flat JSON object. Values of known keys are stored in values (strings unescaped, other
+     * values as their literal text and null as null). Unknown keys are ignored. Nested objects and
+     * arrays are not supported as the format does not use them.
+     *
+     * @param line      The line to parse
+     * @param values    Array to put the values into, indexed as KEYS is. Cleared before parsing
+     */
+    private static void parseLine(final String line, final String[] values) {
+        Arrays.fill(values, null);
+        StringBuilder buffer = new StringBuilder();
+        int[] pos = {skipWhitespace(line, 0)};
+        expect(line, pos, '{');
+        if (peek(line, pos) == '}') {
+            return;
+        }
+        while (true) {
+            String key = readString(line, pos, buffer);
+            expect(line, pos, ':');
+            String value;
+            if (peek(line, pos) == '"') {
+                value = readString(line, pos, buffer);
+            } else {
+                int start = pos[0];
+                while (pos[0] < line.length() && ",} \t".indexOf(line.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                value = line.substring(start, pos[0]);
+                if (value.isEmpty() || value.charAt(0) == '{' || value.charAt(0) == '[') {
+                    throw new IllegalArgumentException("unsupported value for " + key);
+                }
+                if ("null".equals(value)) {
+                    value = null;
+                }
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                values[index] = value;
+            }
+            char c = peek(line, pos);
+            pos[0]++;
+            if (c == '}') {
+                return;
+            } else if (c != ',') {
+                throw new IllegalArgumentException("expected , or } at " + (pos[0] - 1));
+            }
+        }
+    }
+    /**
+     * Finds the index of a key in KEYS.
+     *
+     * @param key   The key to find
+     * @return      Its index or -1 if it is not a known key
+     */
+    private static int indexOf(final String key) {
+        for (int i = 0; i < KEYS.length; i++) {
+            if (KEYS[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    /**
+     * Reads a quoted JSON string starting at pos, leaving pos after the closing quote.
+     *
+     * @param line      The line being parsed
+     * @param pos       Single element array holding the current position
+     * @param buffer    Buffer reused to build the string
+     * @return          The unescaped string
+     */
+    private static String readString(final String line, final int[] pos, final StringBuilder buffer) {
+        expect(line, pos, '"');
+        // Most strings have no escapes, in which case they can be cut straight out of the line
+        int i = pos[0];
+        while (i < line.length() && line.charAt(i) != '"' && line.charAt(i) != '\\') {
+            i++;
+        }
+        if (i < line.length() && line.charAt(i) == '"') {
+            String value = line.substring(pos[0], i);
+            pos[0] = skipWhitespace(line, i + 1);
+            return value;
+        }
+        buffer.setLength(0);
+        buffer.append(line, pos[0], i);
+        while (i < line.length()) {
+            char c = line.charAt(i++);
+            if (c == '"') {
+                pos[0] = skipWhitespace(line, i);
+                return buffer.toString();
+            } else if (c == '\\') {
+                if (i >= line.length()) {
+                    break;
+                }
+                char e = line.charAt(i++);
+                switch (e) {
+                    case 'n': buffer.append('\n'); break;
+                    case 'r': buffer.append('\r'); break;
+                    case 't': buffer.append('\t'); break;
+                    case 'b': buffer.append('\b'); break;
+                    case 'f': buffer.append('\f'); break;
+                    case 'u':
+                        if (i + 4 > line.length()) {
+                            throw new IllegalArgumentException("bad unicode escape at " + i);
+                        }
+                        buffer.append((char) Integer.parseInt(line.substring(i, i + 4), 16));
+                        i += 4;
+                        break;
+                    default:  buffer.append(e);    break;
+                }
+            } else {
+                buffer.append(c);
+            }
+        }
+        throw new IllegalArgumentException("unterminated string");
+    }
+    /**
+     * Checks that the next non whitespace character is c and moves past it.
+     *
+     * @param line  The line being parsed
+     * @param pos   Single element array holding the current position
+     * @param c     The expected character
+     */
+    private static void expect(final String line, final int[] pos, final char c) {
+        if (peek(line, pos) != c) {
+            throw new IllegalArgumentException("expected " + c + " at " + pos[0]);
+        }
+        pos[0] = skipWhitespace(line, pos[0] + 1);
+    }
+    /**
+     * Returns the next non whitespace character, moving pos to it.
+     *
+     * @param line  The line being parsed
+     * @param pos   Single element array holding the current position
+     * @return      The character, or 0 at the end of the line
+     */
+    private static char peek(final String line, final int[] pos) {
+        pos[0] = skipWhitespace(line, pos[0]);
+        return pos[0] < line.length() ? line.charAt(pos[0]) : 0;
+    }
+    /**
+     * Returns the position of the first non whitespace character at or after pos.
+     *
+     * @param line  The line being parsed
+     * @param pos   Position to start from
+     * @return      Position of the next non whitespace character
+     */
+    private static int skipWhitespace(final String line, final int pos) {
+        int i = pos;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    //#endregion [Import]
+}
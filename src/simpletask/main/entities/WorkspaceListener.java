@@ -0,0 +1,21 @@
+package simpletask.main.entities;
+
+import java.util.List;
+
+/**
+ * Listener that is told which part of the workspace has changed, so a view of the workspace can
+ * update just that part rather than redrawing everything.
+ *
+ * @author Matthew Taggart
+ */
+@FunctionalInterface
+public interface WorkspaceListener {
+    /**
+     * Called after a node in the workspace has changed. Either the details of the node have changed,
+     * or its list of tasks has (a task added, removed, moved or converted). Called on the thread that
+     * made the change.
+     *
+     * @param path  Path, from the rootWorkspace, of the node that changed, as it is after the change
+     */
+    void workspaceChanged(List<Integer> path);
+}
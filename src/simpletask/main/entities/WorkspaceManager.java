@@ -1,13 +1,22 @@
 package simpletask.main.entities;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InvalidClassException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiPredicate;
 
 /**
  * This class will be responsible for managing the workspace. Through it, you can add
@@ -34,6 +43,51 @@ public final class WorkspaceManager {
      * Variable to keep check of the currentWorkspace's path relative to the root.
      */
     private ArrayList<Integer> pathFromRoot = new ArrayList<>();
+    /**
+     * Listeners that are notified whenever the workspace is modified. Used by the AutoSaver to
+     * know when a save is needed.
+     */
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Listeners that are told which node changed whenever the workspace is modified. Used by views
+     * of the workspace to update only the part that changed.
+     */
+    private final List<WorkspaceListener> workspaceListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Ids of the rootWorkspaces tasks whose subtrees have changed since the workspace was last
+     * committed. Used by the ShardedStore to only write the shards that have changed.
+     */
+    private Set<Long> dirtyShards = new HashSet<>();
+    /**
+     * Set when the rootWorkspace itself, or its list of tasks, has changed since the workspace was
+     * last committed.
+     */
+    private boolean rootDirty = false;
+    /**
+     * Nodes keyed on their id, used by pathOfId. Built the first time it is needed, and then kept
+     * up to date: nodes are added as they are added or converted, and removed along with everything
+     * below them when they are deleted, so a deleted subtree is not kept in memory by the index.
+     */
+    private Map<Long, WorkspaceNode> idIndex = null;
+    /**
+     * Copies of the rootWorkspaces tasks made by the last snapshot, keyed on their id. Nothing ever
+     * changes a copy, so the next snapshot reuses the copies of the tasks that have not changed.
+     */
+    private Map<Long, ShardCopy> shardCopies = new HashMap<>();
+    /**
+     * Ids of the rootWorkspaces tasks that have changed since the last snapshot, and so need to be
+     * copied again. Kept apart from dirtyShards, which stores clear when they save.
+     */
+    private Set<Long> staleCopies = new HashSet<>();
+    /**
+     * Number of nodes in the workspace, not including the root, when it was copied by snapshot().
+     * -1 if this manager is not a snapshot.
+     */
+    private long snapshotNodes = -1;
+    /**
+     * Number of changes made through this manager, see getVersion().
+     */
+    private volatile long version;
     //#endregion [Fields]
 
     //#region [Constructors]
@@ -173,55 +227,544 @@ public final class WorkspaceManager {
 
         return array;
     }
+    /**
+     * Returns a list of details for some of the tasks of the Task at the given path, so a Task
+     * with a large number of tasks can be read a batch at a time. Nothing is changed, so it can
+     * be called from a thread other than the one editing the workspace, although the result may
+     * be inconsistent (or an exception thrown) if the workspace is edited at the same time. Use
+     * getVersion() to tell whether it was.
+     *
+     * @param   path    Path to workspace
+     * @param   from    Index of the first task to return
+     * @param   to      Index after the last task to return
+     * @return          List of dictionaries containing details of the tasks from from up to to,
+     *                  which is shorter than to - from if the Task runs out of tasks
+     */
+    public ArrayList<NodeData> taskDetailsOf(final ArrayList<Integer> path, final int from, final int to) {
+        WorkspaceNode w = rootWorkspace;
+        for (Integer i: path) {
+            w = w.getTasks().get(i);
+        }
+
+        List<WorkspaceNode> tasks = w.getTasks();
+        int end = Math.min(to, tasks.size());
+        ArrayList<NodeData> array = new ArrayList<NodeData>(Math.max(0, end - from));
+        for (int i = from; i < end; i++) {
+            array.add(getDetails(tasks.get(i)));
+        }
+
+        return array;
+    }
+    /**
+     * Returns the number of changes made to the workspace through this manager. It goes up once a
+     * change is complete, just before the listeners are told. A thread that reads the workspace
+     * while another edits it can get the version before it reads, and then check on the editing
+     * thread that it has not changed. If so, nothing was changed while it read and what it read is
+     * consistent. Otherwise it should throw away what it read.
+     *
+     * @return  The version of the workspace
+     */
+    public long getVersion() {
+        return version;
+    }
+    /**
+     * Counts the nodes in the workspace, not including the rootWorkspace. The workspace is walked
+     * with a stack rather than recursion, so a very deep workspace cannot overflow the call stack.
+     *
+     * @return  Number of nodes
+     */
+    public int countNodes() {
+        return countBelow(rootWorkspace);
+    }
+    /**
+     * Returns the number of nodes in the workspace, not including the rootWorkspace, without walking
+     * it where it is already known. For the workspace returned by getInstance() this is the count
+     * kept by WorkspaceMetrics, and for a snapshot it is the count the snapshot was made with. Any
+     * other workspace is counted. Used to fill the Save and Load events.
+     *
+     * @return  Number of nodes
+     */
+    long nodeCount() {
+        if (this == workspaceManager) {
+            return WorkspaceMetrics.getInstance().getNodeCount();
+        }
+        return snapshotNodes >= 0 ? snapshotNodes : countNodes();
+    }
+    /**
+     * Counts the nodes below node, not including node itself.
+     *
+     * @param node  The node to count below
+     * @return      Number of nodes
+     */
+    private static int countBelow(final WorkspaceNode node) {
+        int count = 0;
+        ArrayDeque<WorkspaceNode> todo = new ArrayDeque<>();
+        todo.push(node);
+        while (!todo.isEmpty()) {
+            WorkspaceNode w = todo.pop();
+            if (w instanceof Task) {
+                for (WorkspaceNode child : w.getTasks()) {
+                    count++;
+                    todo.push(child);
+                }
+            }
+        }
+        return count;
+    }
     //#endregion [Getters]
 
+    //#region [Listeners]
+    /**
+     * Registers a listener that is run every time the workspace is modified through this manager.
+     * Listeners are run on the thread that made the change, so they should return quickly.
+     *
+     * @param listener  The listener to add
+     */
+    public void addChangeListener(final Runnable listener) {
+        changeListeners.add(listener);
+    }
+    /**
+     * Removes a previously registered change listener.
+     *
+     * @param listener  The listener to remove
+     */
+    public void removeChangeListener(final Runnable listener) {
+        changeListeners.remove(listener);
+    }
+    /**
+     * Registers a listener that is told which node changed every time the workspace is modified
+     * through this manager. Listeners are run on the thread that made the change.
+     *
+     * @param listener  The listener to add
+     */
+    public void addWorkspaceListener(final WorkspaceListener listener) {
+        workspaceListeners.add(listener);
+    }
+    /**
+     * Removes a previously registered workspace listener.
+     *
+     * @param listener  The listener to remove
+     */
+    public void removeWorkspaceListener(final WorkspaceListener listener) {
+        workspaceListeners.remove(listener);
+    }
+    /**
+     * Notifies all listeners that the workspace has been modified. Workspace listeners are given
+     * the path of each node that changed, unless it is no longer in the workspace.
+     *
+     * @param changed   The nodes whose details or list of tasks changed
+     */
+    private void fireChanged(final WorkspaceNode... changed) {
+        version++;      // Only ever changed by the thread that edits the workspace
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+        if (workspaceListeners.isEmpty()) {
+            return;
+        }
+        for (WorkspaceNode node : changed) {
+            List<Integer> path = pathOf(node);
+            if (null == path) {
+                continue;
+            }
+            for (WorkspaceListener listener : workspaceListeners) {
+                listener.workspaceChanged(path);
+            }
+        }
+    }
+    /**
+     * Finds the path from the rootWorkspace to a node by walking up its parents. Each step searches
+     * the parents list of tasks for the node, so this costs the number of siblings before each node
+     * on the path, not just its depth.
+     *
+     * @param node  The node
+     * @return      The path, or null if the node is not in the workspace
+     */
+    private List<Integer> pathOf(final WorkspaceNode node) {
+        ArrayDeque<Integer> path = new ArrayDeque<>();
+        WorkspaceNode w = node;
+        while (null != w && w != rootWorkspace) {
+            WorkspaceNode parent = w.getParent();
+            if (null == parent) {
+                return null;
+            }
+            // Tasks are equal by value, so siblings with the same details are told apart by identity
+            int index = identityIndexOf(parent.getTasks(), w);
+            if (index < 0) {
+                return null;
+            }
+            path.push(index);
+            w = parent;
+        }
+        return null == w ? null : new ArrayList<>(path);
+    }
+    /**
+     * Finds the position of a node in a list of tasks, comparing by identity rather than equals.
+     *
+     * @param tasks The list of tasks
+     * @param node  The node to find
+     * @return      Its position, or -1 if it is not in the list
+     */
+    private static int identityIndexOf(final List<WorkspaceNode> tasks, final WorkspaceNode node) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i) == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    //#endregion [Listeners]
+
+    //#region [Dirty Tracking]
+    /**
+     * Records that the node at path, relative to the rootWorkspace, has changed. If path is empty,
+     * the rootWorkspace has changed. Otherwise the top level task that path goes through has changed.
+     * If path is no longer valid (e.g. the node has been moved) every top level task is marked, as
+     * the change cannot be placed.
+     *
+     * @param path  Path to the node that changed
+     */
+    private void markDirty(final List<Integer> path) {
+        if (path.isEmpty()) {
+            rootDirty = true;
+        } else if (path.get(0) < rootWorkspace.getTasks().size()) {
+            markShardDirty(rootWorkspace.getTasks().get(path.get(0)).id);
+        } else {
+            rootDirty = true;
+            for (WorkspaceNode w : rootWorkspace.getTasks()) {
+                markShardDirty(w.id);
+            }
+        }
+    }
+    /**
+     * Records that a node has been added to, or removed from, the workspace under the node at path.
+     * If that is the rootWorkspace, the list of top level tasks has changed and so has the added node.
+     *
+     * @param path  Path to the parent of the node
+     * @param node  The node added or removed
+     */
+    private void markChildDirty(final List<Integer> path, final WorkspaceNode node) {
+        markDirty(path);
+        if (path.isEmpty()) {
+            markShardDirty(node.id);
+        }
+    }
+    /**
+     * Marks a top level task as changed. Used by stores to make sure it is written on the next commit.
+     *
+     * @param id    Id of the top level task
+     */
+    void markShardDirty(final long id) {
+        dirtyShards.add(id);
+        staleCopies.add(id);
+    }
+    /**
+     * Returns the ids of the top level tasks that have changed since the last commit.
+     *
+     * @return  Ids of the changed top level tasks
+     */
+    Set<Long> getDirtyShards() {
+        return dirtyShards;
+    }
+    /**
+     * Returns whether the rootWorkspace or its list of tasks has changed since the last commit.
+     *
+     * @return  True if the root has changed
+     */
+    boolean isRootDirty() {
+        return rootDirty;
+    }
+    /**
+     * Forgets all changes. Called by stores once the workspace has been committed.
+     */
+    void clearDirty() {
+        dirtyShards.clear();
+        rootDirty = false;
+    }
+    /**
+     * Returns the number of nodes in the index used by pathOfId. Used by WorkspaceMetrics.
+     *
+     * @return  Size of the index, 0 if it has not been built
+     */
+    int idIndexSize() {
+        Map<Long, WorkspaceNode> index = idIndex;
+        return null == index ? 0 : index.size();
+    }
+    //#endregion [Dirty Tracking]
+
     //#region [Load/Save]
     /**
      * Given a path to a file containing a valid WorkspaceNode, it will load it in. That workspace
      * will become the rootWorkspace.
+     * <p>
+     * The store is chosen from the path by WorkspaceStore.forPath, so path can be a directory of
+     * shards. Workspaces are saved using WorkspaceCodec, but workspaces saved with Java serialisation
+     * by older versions can still be loaded.
      *
      * @param path  Path to workspace
      * @return      The WorkspaceManager that manages the loaded WorkspaceNode
      */
     public static WorkspaceManager loadWorkspace(final String path) {
+        return load(WorkspaceStore.forPath(path));
+    }
+    /**
+     * Loads the workspace held in store. That workspace will become the rootWorkspace.
+     *
+     * @param store The store to load from
+     * @return      The WorkspaceManager that manages the loaded workspace, or null if it failed
+     */
+    public static WorkspaceManager load(final WorkspaceStore store) {
+        long start = System.nanoTime();
+        WorkspaceEvents.Load event = new WorkspaceEvents.Load();
+        event.begin();
         try {
-            FileInputStream fileIn = new FileInputStream(path);
-            ObjectInputStream in = new ObjectInputStream(fileIn);
-            WorkspaceNode w = (WorkspaceNode) in.readObject();
-            in.close();
-            fileIn.close();
-            workspaceManager = new WorkspaceManager(w);
-            return workspaceManager;
+            WorkspaceManager loaded = store.load();
+            WorkspaceMetrics.LOAD.record(start, true);
+            event.end();
+            if (event.shouldCommit()) {
+                event.location = store.getLocation();
+                event.nodes = loaded.nodeCount();
+                event.bytes = store.size();
+                event.succeeded = true;
+                event.commit();
+            }
+            return loaded;
         } catch (IOException i) {
+            WorkspaceMetrics.LOAD.record(start, false);
+            event.end();
+            if (event.shouldCommit()) {
+                event.location = store.getLocation();
+                event.commit();
+            }
+            System.out.println("Failed to load workspace from: " + store.getLocation());
             i.printStackTrace();
             return null;
-        } catch (ClassNotFoundException c) {
-            System.out.println("Class not found");
-            c.printStackTrace();
-            return null;
         }
     }
     /**
-     * Given a path to a valid location, it will save the rootWorkspace to that location.
+     * Given a path to a valid location, it will save the rootWorkspace to that location. The store
+     * is chosen from the path by WorkspaceStore.forPath.
      *
      * @param   path    Path to save rootWorkspace to.
      * @return          True if workspace saved successfully.
      */
     public boolean save(final String path) {
-        try {
-            FileOutputStream fileOut = new FileOutputStream(path);
-            ObjectOutputStream out = new ObjectOutputStream(fileOut);
-            out.writeObject(this.rootWorkspace);
-            out.close();
-            fileOut.close();
+        if (save(WorkspaceStore.forPath(path))) {
             System.out.println("Serialized data is saved in: " + path);
             return true;
+        }
+        return false;
+    }
+    /**
+     * Saves the rootWorkspace to store.
+     *
+     * @param   store   The store to save to
+     * @return          True if workspace saved successfully.
+     */
+    public boolean save(final WorkspaceStore store) {
+        long start = System.nanoTime();
+        WorkspaceEvents.Save event = new WorkspaceEvents.Save();
+        event.begin();
+        try {
+            long bytes = store.save(this);
+            WorkspaceMetrics.saved(start, bytes);
+            event.end();
+            if (event.shouldCommit()) {
+                event.location = store.getLocation();
+                event.nodes = nodeCount();
+                event.bytes = bytes;
+                event.succeeded = true;
+                event.commit();
+            }
+            return true;
         } catch (IOException i) {
-            System.out.println("Failed to save workspace to: " + path);
+            WorkspaceMetrics.SAVE.record(start, false);
+            event.end();
+            if (event.shouldCommit()) {
+                event.location = store.getLocation();
+                event.commit();
+            }
+            System.out.println("Failed to save workspace to: " + store.getLocation());
             i.printStackTrace();
             return false;
         }
     }
+    /**
+     * Writes the whole workspace, starting at the rootWorkspace, to out as newline delimited JSON.
+     * One line is written per node, so the output can be streamed into other tools.
+     *
+     * @param out           Where to write the workspace
+     * @return              The number of nodes written
+     * @throws IOException  If out cannot be written to
+     * @see                 WorkspaceJson
+     */
+    public long exportJson(final Writer out) throws IOException {
+        return WorkspaceJson.write(rootWorkspace, out);
+    }
+    /**
+     * Writes the whole workspace to the file at path as newline delimited JSON.
+     *
+     * @param path  Path of the file to write to
+     * @return      True if the workspace was exported successfully
+     */
+    public boolean exportJson(final String path) {
+        return save(WorkspaceStore.json(path));
+    }
+    /**
+     * Reads a workspace written by exportJson (or any other tool using the same format) and makes it
+     * the workspace being managed. The input is read one line at a time and the nodes are added to
+     * the tree in bulk, so very large files can be imported.
+     *
+     * @param in            The newline delimited JSON to read
+     * @return              The WorkspaceManager that manages the imported workspace
+     * @throws IOException  If in cannot be read or does not contain a valid workspace
+     */
+    public static WorkspaceManager importJson(final Reader in) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+        return manage(WorkspaceJson.read(reader));
+    }
+    /**
+     * Imports the newline delimited JSON workspace in the file at path.
+     *
+     * @param path  Path to the file to import
+     * @return      The WorkspaceManager that manages the imported workspace, or null if it failed
+     */
+    public static WorkspaceManager importJson(final String path) {
+        return load(WorkspaceStore.json(path));
+    }
+    /**
+     * Makes a loaded workspace the one being managed.
+     *
+     * @param root  Root of the loaded workspace
+     * @return      The WorkspaceManager that manages it
+     */
+    static WorkspaceManager manage(final WorkspaceNode root) {
+        workspaceManager = new WorkspaceManager(root);
+        measure(root);
+        return workspaceManager;
+    }
+    /**
+     * Walks a workspace that is about to be managed and hands its size and depth to
+     * WorkspaceMetrics. The workspace is walked with a stack rather than recursion, so a very deep
+     * workspace cannot overflow the call stack.
+     *
+     * @param root  Root of the workspace
+     */
+    private static void measure(final WorkspaceNode root) {
+        long count = 0;
+        int depth = 0;
+        ArrayDeque<WorkspaceNode> todo = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        todo.push(root);
+        depths.push(0);
+        while (!todo.isEmpty()) {
+            WorkspaceNode w = todo.pop();
+            int d = depths.pop();
+            depth = Math.max(depth, d);
+            for (WorkspaceNode child : w.getTasks()) {
+                count++;
+                todo.push(child);
+                depths.push(d + 1);
+            }
+        }
+        WorkspaceMetrics.measured(count, depth);
+    }
+    /**
+     * Returns the root of the workspace. Used by stores to save it.
+     *
+     * @return  The rootWorkspace
+     */
+    WorkspaceNode getRoot() {
+        return rootWorkspace;
+    }
+    /**
+     * Creates a deep copy of the rootWorkspace. The copy shares no nodes with the live workspace, so
+     * it can be saved on another thread while the user keeps editing.
+     * <p>
+     * Only the rootWorkspaces tasks that have changed since the last snapshot are copied. The
+     * others reuse the copies made last time, which nothing changes, so a small edit to a large
+     * workspace only copies the task it was made in. This keeps a copy of the whole workspace in
+     * memory between snapshots.
+     * <p>
+     * The copy is wrapped in its own WorkspaceManager, which does not replace the one returned by
+     * getInstance(). The changes made since the last commit are handed over to the copy, as it is
+     * the copy that will be committed. This must be called from the thread that modifies the
+     * workspace, so the copy is consistent. The size and depth of each task are kept with its
+     * copy, so the size and depth in WorkspaceMetrics are brought up to date as well.
+     *
+     * @return  A WorkspaceManager managing a copy of the rootWorkspace
+     */
+    WorkspaceManager snapshot() {
+        WorkspaceNode copy = rootWorkspace.copy();
+        Map<Long, ShardCopy> copies = new HashMap<>();
+        long count = 0;
+        int depth = 0;
+        for (WorkspaceNode task : rootWorkspace.getTasks()) {
+            ShardCopy shard = staleCopies.contains(task.id) ? null : shardCopies.get(task.id);
+            if (null == shard) {
+                shard = new ShardCopy(task);
+            }
+            ((Task) copy).adopt(shard.copy);
+            copies.put(task.id, shard);
+            count += shard.nodes;
+            depth = Math.max(depth, shard.depth);
+        }
+        shardCopies = copies;
+        staleCopies = new HashSet<>();
+        if (this == workspaceManager) {
+            WorkspaceMetrics.measured(count, depth);
+        }
+        WorkspaceManager snapshot = new WorkspaceManager(copy);
+        snapshot.snapshotNodes = count;
+        snapshot.dirtyShards = dirtyShards;
+        snapshot.rootDirty = rootDirty;
+        dirtyShards = new HashSet<>();
+        rootDirty = false;
+        return snapshot;
+    }
+    /**
+     * A deep copy of one of the rootWorkspaces tasks, along with its size and depth.
+     */
+    private static final class ShardCopy {
+        /**
+         * The copy of the task.
+         */
+        private final WorkspaceNode copy;
+        /**
+         * Number of nodes in the copy, including the task itself.
+         */
+        private long nodes;
+        /**
+         * Depth of the deepest node in the copy, with the task at depth 1.
+         */
+        private int depth;
+
+        /**
+         * Copies a task and everything under it. The tree is walked with an explicit stack so
+         * that deep workspaces cannot overflow the call stack.
+         *
+         * @param task  The task to copy
+         */
+        ShardCopy(final WorkspaceNode task) {
+            copy = task.copy();
+            ArrayDeque<WorkspaceNode[]> stack = new ArrayDeque<>();
+            ArrayDeque<Integer> depths = new ArrayDeque<>();
+            stack.push(new WorkspaceNode[] {task, copy});
+            depths.push(1);
+            while (!stack.isEmpty()) {
+                WorkspaceNode[] pair = stack.pop();
+                int d = depths.pop();
+                nodes++;
+                depth = Math.max(depth, d);
+                for (WorkspaceNode child : pair[0].getTasks()) {
+                    WorkspaceNode childCopy = child.copy();
+                    ((Task) pair[1]).adopt(childCopy);
+                    stack.push(new WorkspaceNode[] {child, childCopy});
+                    depths.push(d + 1);
+                }
+            }
+        }
+    }
     //#endregion [Load/Save]
 
     //#region [Movement]
@@ -242,6 +785,79 @@ public final class WorkspaceManager {
         }
         return currentWorkspace;
     }
+    /**
+     * Moves currentWorkspace straight to the node at path, without stepping through each node on the
+     * way. Nothing happens if the path is not valid.
+     *
+     * @param path  Path from the rootWorkspace
+     * @return      True if currentWorkspace was moved, false if the path is not valid
+     */
+    public boolean stepTo(final List<Integer> path) {
+        WorkspaceNode w = nodeAt(path);
+        if (null == w) {
+            return false;
+        }
+        currentWorkspace = w;
+        pathFromRoot = new ArrayList<>(path);
+        return true;
+    }
+    /**
+     * Finds the path to the node with the given id. The first lookup indexes every node by id. The
+     * index is kept up to date from then on, so later lookups, including those for ids that are not
+     * in the workspace, only walk up from the node to the rootWorkspace. Finding the position of each
+     * node on the way up means searching its parents list of tasks, so a lookup costs the number of
+     * siblings before each node on the path rather than just its depth.
+     *
+     * @param id    Id of the node
+     * @return      Path to the node from the rootWorkspace, or null if there is no node with that id
+     */
+    public List<Integer> pathOfId(final long id) {
+        if (null == idIndex) {
+            indexIds();
+        }
+        return pathOf(idIndex.get(id));
+    }
+    /**
+     * Builds idIndex from every node in the workspace.
+     */
+    private void indexIds() {
+        idIndex = new HashMap<>();
+        ArrayDeque<WorkspaceNode> todo = new ArrayDeque<>();
+        todo.push(rootWorkspace);
+        while (!todo.isEmpty()) {
+            WorkspaceNode w = todo.pop();
+            idIndex.put(w.id, w);
+            if (w instanceof Task) {
+                for (WorkspaceNode child : w.getTasks()) {
+                    todo.push(child);
+                }
+            }
+        }
+    }
+    /**
+     * Removes a node that is being deleted, and every node below it, from idIndex, and counts them
+     * for WorkspaceMetrics. Both are done in the same walk, which is made even if the index has not
+     * been built so the count is exact. Called before the node is deleted.
+     *
+     * @param node  The node being deleted
+     * @return      Number of nodes deleted, including node
+     */
+    private long unindexIds(final WorkspaceNode node) {
+        long removed = 0;
+        ArrayDeque<WorkspaceNode> todo = new ArrayDeque<>();
+        todo.push(node);
+        while (!todo.isEmpty()) {
+            WorkspaceNode w = todo.pop();
+            removed++;
+            if (null != idIndex) {
+                idIndex.remove(w.id);
+            }
+            for (WorkspaceNode child : w.getTasks()) {
+                todo.push(child);
+            }
+        }
+        return removed;
+    }
     /**
      * Moves currentWorkspace back to root workspace.
      */
@@ -269,6 +885,7 @@ public final class WorkspaceManager {
      */
     public static WorkspaceManager initialise(final String name) {
         workspaceManager = new WorkspaceManager(name);
+        WorkspaceMetrics.measured(0, 0);
         return workspaceManager;
     }
     /**
@@ -277,7 +894,32 @@ public final class WorkspaceManager {
      * @return  True if workspace is removed, false otherwise.
      */
     public boolean deleteCurrentWorkspace() {
-        return currentWorkspace.delete();
+        long start = System.nanoTime();
+        WorkspaceEvents.Delete event = new WorkspaceEvents.Delete();
+        event.begin();
+        markChildDirty(pathFromRoot.subList(0, Math.max(0, pathFromRoot.size() - 1)), currentWorkspace);
+        WorkspaceNode parent = currentWorkspace.getParent();
+        long removed = unindexIds(currentWorkspace);
+        boolean root = currentWorkspace == rootWorkspace;
+        boolean deleted = currentWorkspace.delete();
+        if (deleted) {
+            // Deleting the rootWorkspace empties it
+            if (root) {
+                WorkspaceMetrics.measured(0, 0);
+            } else {
+                WorkspaceMetrics.removed(removed);
+            }
+            fireChanged(parent);
+        }
+        WorkspaceMetrics.DELETE.record(start, deleted);
+        event.end();
+        if (event.shouldCommit()) {
+            event.pathDepth = pathFromRoot.size();
+            event.nodes = removed;
+            event.succeeded = deleted;
+            event.commit();
+        }
+        return deleted;
     }
     /**
      * Deletes the workspace in the currentWorkspaces list of workspaces at position pos. If the currentWorkspace
@@ -287,12 +929,41 @@ public final class WorkspaceManager {
      * @return          True if workspace is removed, false if not or if currentWorkspace is an Action
      */
     public boolean deleteWorkspace(final int pos) {
+        long start = System.nanoTime();
+        boolean deleted = removeTask(pos);
+        WorkspaceMetrics.DELETE.record(start, deleted);
+        return deleted;
+    }
+    /**
+     * Removes the workspace at position pos in the currentWorkspaces list of workspaces.
+     *
+     * @param pos   Position of workspace to remove
+     * @return      True if workspace is removed, false if not or if currentWorkspace is an Action
+     */
+    private boolean removeTask(final int pos) {
         try {
             WorkspaceNode workspace = currentWorkspace.getTasks().get(pos);
             if (!(currentWorkspace instanceof Task)) {
                 return false;
             }
-            return ((Task) currentWorkspace).removeWorkspace(workspace);
+            WorkspaceEvents.Delete event = new WorkspaceEvents.Delete();
+            event.begin();
+            markChildDirty(pathFromRoot, workspace);
+            long removed = unindexIds(workspace);
+            // The node came from currentWorkspaces list, so there is no need to search for it first
+            boolean deleted = workspace.delete();
+            if (deleted) {
+                WorkspaceMetrics.removed(removed);
+                fireChanged(currentWorkspace);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.pathDepth = pathFromRoot.size() + 1;
+                event.nodes = removed;
+                event.succeeded = deleted;
+                event.commit();
+            }
+            return deleted;
         } catch (IndexOutOfBoundsException e) {
             return false;
         }
@@ -305,6 +976,7 @@ public final class WorkspaceManager {
      * @return      True if workspace added successfully, false otherwise
      */
     public boolean addWorkspace(final String name, final String type) {
+        long start = System.nanoTime();
         WorkspaceNode newWorkspace;
         switch (type) {
             case ("Action"):
@@ -314,14 +986,10 @@ public final class WorkspaceManager {
                 newWorkspace = new Task(name);
                 break;
             default:
+                WorkspaceMetrics.ADD.record(start, false);
                 return false;
         }
-        if (currentWorkspace instanceof Task) {
-            ((Task) currentWorkspace).createWorkspace(newWorkspace);
-            return true;
-        } else {
-            return false;
-        }
+        return attach(newWorkspace, start);
     }
     /**
      * Adds the new node to the current workspace.
@@ -330,6 +998,7 @@ public final class WorkspaceManager {
      * @return      True if successful, false otherwise
      */
     public boolean addWorkspace(final NodeData node) {
+        long start = System.nanoTime();
         WorkspaceNode newWorkspace;
         validateInputs(node);
         String name = node.getAttr(NodeKeys.NAME);
@@ -348,11 +1017,28 @@ public final class WorkspaceManager {
             ex.printStackTrace();
         }
         newWorkspace.setDueDate(LocalDateTime.parse(node.getAttr(NodeKeys.DUEDATE)));
-
+        return attach(newWorkspace, start);
+    }
+    /**
+     * Adds a new node to the end of the currentWorkspaces tasks, if it is a Task.
+     *
+     * @param newWorkspace  The node to add
+     * @param start         Time, from System.nanoTime(), that the add started
+     * @return              True if the node was added
+     */
+    private boolean attach(final WorkspaceNode newWorkspace, final long start) {
         if (currentWorkspace instanceof Task) {
             ((Task) currentWorkspace).createWorkspace(newWorkspace);
+            if (null != idIndex) {
+                idIndex.put(newWorkspace.id, newWorkspace);
+            }
+            markChildDirty(pathFromRoot, newWorkspace);
+            WorkspaceMetrics.added(pathFromRoot.size() + 1);
+            fireChanged(currentWorkspace);
+            WorkspaceMetrics.ADD.record(start, true);
             return true;
         } else {
+            WorkspaceMetrics.ADD.record(start, false);
             return false;
         }
     }
@@ -373,6 +1059,7 @@ public final class WorkspaceManager {
                     case PRIORITY   : node.setAttr(nKeys, "0");                            break;
                     case COMPLETE   : node.setAttr(nKeys, "false");                        break;
                     case TASKS      : node.setAttr(nKeys, "0");                            break;
+                    case ID         :                                                      break;
                     default         : System.err.println("NYI");                           break;
                 }
             }
@@ -388,6 +1075,29 @@ public final class WorkspaceManager {
      * @return True if workspace is move successfully
      */
     public boolean moveCurrentWorkspace(final ArrayList<Integer> path) {
+        long start = System.nanoTime();
+        WorkspaceEvents.Move event = new WorkspaceEvents.Move();
+        event.begin();
+        int fromDepth = pathFromRoot.size() - 1;
+        boolean moved = moveCurrentTo(path);
+        WorkspaceMetrics.MOVE.record(start, moved);
+        event.end();
+        if (event.shouldCommit()) {
+            event.fromDepth = fromDepth;
+            event.toDepth = path.size();
+            event.tasks = 1;
+            event.succeeded = moved;
+            event.commit();
+        }
+        return moved;
+    }
+    /**
+     * Moves currentWorkspace into the Task at path, see moveCurrentWorkspace.
+     *
+     * @param path  Path to Task
+     * @return      True if workspace is move successfully
+     */
+    private boolean moveCurrentTo(final ArrayList<Integer> path) {
         WorkspaceNode target = rootWorkspace;
         for (Integer i: path) {
             target = target.getTasks().get(i);
@@ -396,7 +1106,110 @@ public final class WorkspaceManager {
         if (!(target instanceof Task) || !rootWorkspace.searchWorkspaces(target)) {
             return false;
         }
-        return currentWorkspace.moveWorkspace((Task) target);
+        // Both the old and new parent change, so mark them before the move changes any paths
+        markChildDirty(pathFromRoot.subList(0, Math.max(0, pathFromRoot.size() - 1)), currentWorkspace);
+        markChildDirty(path, currentWorkspace);
+        WorkspaceNode oldParent = currentWorkspace.getParent();
+        boolean moved = currentWorkspace.moveWorkspace((Task) target);
+        if (moved) {
+            // The current workspace is now at the end of the targets list of tasks
+            List<Integer> current = pathOf(currentWorkspace);
+            if (null != current) {
+                pathFromRoot = new ArrayList<>(current);
+            }
+            fireChanged(oldParent, target);
+        }
+        return moved;
+    }
+    /**
+     * Moves several tasks of the Task at from into the Task at to in a single operation. The tasks
+     * keep their order and are added to the end of the targets list of tasks. Both paths are from
+     * the rootWorkspace, as they are before the move.
+     * <p>
+     * Unlike moveCurrentWorkspace, the workspace is not searched. The target is only checked not to
+     * be one of the moved tasks, or inside one, by walking up its parents. Listeners are told once,
+     * however many tasks are moved.
+     *
+     * @param from      Path to the Task that holds the tasks
+     * @param indices   Positions of the tasks to move in the Task at from
+     * @param to        Path to the Task to move them into
+     * @return          True if the tasks were moved, false if a path or position is not valid, the
+     *                  target is not a Task or the target is inside one of the moved tasks
+     */
+    public boolean moveWorkspaces(final List<Integer> from, final int[] indices, final List<Integer> to) {
+        long start = System.nanoTime();
+        WorkspaceEvents.Move event = new WorkspaceEvents.Move();
+        event.begin();
+        boolean moved = moveTasks(from, indices, to);
+        WorkspaceMetrics.MOVE.record(start, moved);
+        event.end();
+        if (event.shouldCommit()) {
+            event.fromDepth = from.size();
+            event.toDepth = to.size();
+            event.tasks = indices.length;
+            event.succeeded = moved;
+            event.commit();
+        }
+        return moved;
+    }
+    /**
+     * Moves several tasks of the Task at from into the Task at to, see moveWorkspaces.
+     *
+     * @param from      Path to the Task that holds the tasks
+     * @param indices   Positions of the tasks to move in the Task at from
+     * @param to        Path to the Task to move them into
+     * @return          True if the tasks were moved
+     */
+    private boolean moveTasks(final List<Integer> from, final int[] indices, final List<Integer> to) {
+        WorkspaceNode source = nodeAt(from);
+        WorkspaceNode target = nodeAt(to);
+        if (!(source instanceof Task) || !(target instanceof Task)) {
+            return false;
+        }
+        // Tasks are equal by value, so the moved tasks are compared by identity
+        Set<WorkspaceNode> moving = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i : indices) {
+            if (i < 0 || i >= source.getTasks().size() || !moving.add(source.getTasks().get(i))) {
+                return false;
+            }
+        }
+        for (WorkspaceNode w = target; null != w; w = w.getParent() == w ? null : w.getParent()) {
+            if (moving.contains(w)) {
+                return false;
+            }
+        }
+        // Both parents change, so mark them before the move changes any paths
+        markDirty(from);
+        markDirty(to);
+        if (from.isEmpty() || to.isEmpty()) {
+            for (WorkspaceNode w : moving) {
+                markShardDirty(w.id);
+            }
+        }
+        ((Task) source).moveTasks(indices, (Task) target);
+        // The current workspace may have been moved, or be inside a moved task
+        List<Integer> current = pathOf(currentWorkspace);
+        if (null != current) {
+            pathFromRoot = new ArrayList<>(current);
+        }
+        fireChanged(source, target);
+        return true;
+    }
+    /**
+     * Returns the node at path.
+     *
+     * @param path  Path from the rootWorkspace
+     * @return      The node, or null if the path is not valid
+     */
+    private WorkspaceNode nodeAt(final List<Integer> path) {
+        WorkspaceNode w = rootWorkspace;
+        for (Integer i : path) {
+            if (i < 0 || i >= w.getTasks().size()) {
+                return null;
+            }
+            w = w.getTasks().get(i);
+        }
+        return w;
     }
     /**
      * Used to search for tasks in the currentWorkspace given a search Criteria.
@@ -405,17 +1218,116 @@ public final class WorkspaceManager {
      * @return          A list of Tasks matching the criteria
      */
     public ArrayList<NodeData> searchWorkspaces(final Criteria criteria) {
+        long start = System.nanoTime();
+        WorkspaceEvents.Search event = new WorkspaceEvents.Search();
+        event.begin();
+        long[] visited = {0};
+        ArrayList<NodeData> res = search(criteria, visited);
+        WorkspaceMetrics.SEARCH.record(start, true);
+        event.end();
+        if (event.shouldCommit()) {
+            event.pathDepth = pathFromRoot.size();
+            event.nodesVisited = visited[0];
+            event.results = res.size();
+            event.commit();
+        }
+        return res;
+    }
+    /**
+     * Searches the tasks in the currentWorkspace, and their tasks, for those matching criteria.
+     *
+     * @param criteria  The search Criteria
+     * @param visited   Holds the number of nodes compared to criteria, which is added to
+     * @return          A list of Tasks matching the criteria
+     */
+    private ArrayList<NodeData> search(final Criteria criteria, final long[] visited) {
         ArrayList<NodeData> res = new ArrayList<>();
         for (int i = 0; i <  currentWorkspace.getTasks().size(); i++) {
             this.stepIntoWorkspace(i);
-            res.addAll(this.searchWorkspaces(criteria));
+            res.addAll(this.search(criteria, visited));
             this.stepUp();
+            visited[0]++;
             if (criteria.compare(this.getTasks().get(i))) {
                 res.add(this.getTasks().get(i));
             }
         }
         return res;
     }
+    /**
+     * Searches the whole workspace for nodes whose name contains query, ignoring case, and hands
+     * each match to onMatch as it is found. Nodes are visited depth first in the order they are
+     * shown, starting from the rootWorkspace, which is not itself matched.
+     * <p>
+     * Unlike searchWorkspaces, the currentWorkspace is not moved and nothing is changed, so it can
+     * be called from a thread other than the one editing the workspace. Details are only built for
+     * the nodes that match. The search stops as soon as onMatch returns false, so a search that is
+     * no longer wanted can be abandoned part way through. The workspace is walked with a stack
+     * rather than recursion, so a very deep workspace cannot overflow the call stack.
+     *
+     * @param query     Text the name has to contain
+     * @param onMatch   Given the path, from the rootWorkspace, and details of each match. The path
+     *                  is only valid for the call. Returns false to stop searching
+     * @return          True if the whole workspace was searched, false if onMatch stopped it
+     */
+    public boolean findByName(final String query, final BiPredicate<List<Integer>, NodeData> onMatch) {
+        long start = System.nanoTime();
+        boolean completed = findFrom(query, onMatch);
+        WorkspaceMetrics.SEARCH.record(start, true);
+        return completed;
+    }
+    /**
+     * Walks the whole workspace for findByName.
+     *
+     * @param query     Text the name has to contain
+     * @param onMatch   Given the path and details of each match. Returns false to stop searching
+     * @return          True if the whole workspace was searched, false if onMatch stopped it
+     */
+    private boolean findFrom(final String query, final BiPredicate<List<Integer>, NodeData> onMatch) {
+        ArrayList<Integer> path = new ArrayList<>();
+        ArrayDeque<WorkspaceNode> parents = new ArrayDeque<>();
+        WorkspaceNode parent = rootWorkspace;
+        int next = 0;
+        while (true) {
+            if (next < parent.getTasks().size()) {
+                WorkspaceNode w = parent.getTasks().get(next);
+                path.add(next);
+                if (containsIgnoreCase(w.getName(), query) && !onMatch.test(path, getDetails(w))) {
+                    return false;
+                }
+                if (w instanceof Task && !w.getTasks().isEmpty()) {
+                    parents.push(parent);
+                    parent = w;
+                    next = 0;
+                } else {
+                    path.remove(path.size() - 1);
+                    next++;
+                }
+            } else if (parents.isEmpty()) {
+                return true;
+            } else {
+                parent = parents.pop();
+                next = path.remove(path.size() - 1) + 1;
+            }
+        }
+    }
+    /**
+     * Checks whether text contains query, ignoring case, without copying either of them.
+     *
+     * @param text  The text to look in, may be null
+     * @param query The text to look for
+     * @return      True if query is in text
+     */
+    private static boolean containsIgnoreCase(final String text, final String query) {
+        if (null == text) {
+            return false;
+        }
+        for (int i = 0; i <= text.length() - query.length(); i++) {
+            if (text.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
     //#endregion [Workspace Management]
 
     //#region [Setters]
@@ -426,6 +1338,8 @@ public final class WorkspaceManager {
      */
     public void setName(final String name) {
         currentWorkspace.setName(name);
+        markDirty(pathFromRoot);
+        fireChanged(currentWorkspace);
     }
     /**
      * Sets the dueDate for the currentWorkspace.
@@ -438,6 +1352,8 @@ public final class WorkspaceManager {
      */
     public void setDueDate(final int year, final int month, final int day, final int hour, final int minute) {
         currentWorkspace.setDueDate(year, month, day, hour, minute);
+        markDirty(pathFromRoot);
+        fireChanged(currentWorkspace);
     }
     /**
      * Set description of currentWorkspace.
@@ -446,6 +1362,8 @@ public final class WorkspaceManager {
      */
     public void setDescription(final String msg) {
         currentWorkspace.setDescription(msg);
+        markDirty(pathFromRoot);
+        fireChanged(currentWorkspace);
     }
     /**
      * Set priority of currentWorkspace.
@@ -456,6 +1374,8 @@ public final class WorkspaceManager {
     public boolean setPriority(final String priority) {
         try {
             currentWorkspace.setPriority(Integer.parseInt(priority));
+            markDirty(pathFromRoot);
+            fireChanged(currentWorkspace);
             return true;
         } catch (InvalidPriorityException ex) {
             ex.printStackTrace();
@@ -473,6 +1393,8 @@ public final class WorkspaceManager {
      */
     public void setComplete(final String complete) {
         currentWorkspace.setComplete(complete);
+        markDirty(pathFromRoot);
+        fireChanged(currentWorkspace);
     }
     /**
      * Setter for due date. Sets the due date to the string that is passed in.
@@ -481,6 +1403,8 @@ public final class WorkspaceManager {
      */
     public void setDueDate(final String dueDate) {
         currentWorkspace.setDueDate(dueDate + "T00:00:00.000000000");
+        markDirty(pathFromRoot);
+        fireChanged(currentWorkspace);
     }
     /**
      * Sets the type of the current workspace. If it is not Action or Task then
@@ -499,9 +1423,39 @@ public final class WorkspaceManager {
         } else if (type.equals("Task")) {
             currentWorkspace = currentWorkspace.asTask();
         }
+        if (null != idIndex) {
+            idIndex.put(currentWorkspace.id, currentWorkspace);
+        }
+        // Converting a node moves it to the end of its parents list of tasks
+        markChildDirty(pathFromRoot.subList(0, Math.max(0, pathFromRoot.size() - 1)), currentWorkspace);
+        List<Integer> current = pathOf(currentWorkspace);
+        if (null != current) {
+            pathFromRoot = new ArrayList<>(current);
+        }
+        fireChanged(currentWorkspace.getParent());
     }
     //#endregion [Setters]
 
+    /**
+     * Writes the currentWorkspace and the nodes below it to out as an indented tree, one node per
+     * line. Nodes are written as they are visited, so a workspace of any size can be printed without
+     * building it up in memory. out should be buffered, and is flushed at the end.
+     *
+     * @param out           Where to write the tree
+     * @param maxDepth      Number of levels below the currentWorkspace to print, 0 to only print
+     *                      the currentWorkspace
+     * @param maxSiblings   Number of tasks to print under each Task. The rest are counted in a
+     *                      single line
+     * @param filter        Only nodes that match are printed, or null to print every node. The
+     *                      tasks of a node that does not match are still looked at
+     * @return              Number of nodes printed
+     * @throws IOException  If out fails
+     */
+    public long printTree(final Writer out, final int maxDepth, final int maxSiblings, final Criteria filter) throws IOException {
+        long printed = new TreePrinter(out, maxDepth, maxSiblings, filter).print(currentWorkspace);
+        out.flush();
+        return printed;
+    }
     /**
      * Creates a string representing the  currentWorkspace. If current workspace is a Task, it
      * will first add all its sub tasks.
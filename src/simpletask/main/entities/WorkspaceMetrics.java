@@ -0,0 +1,375 @@
+package simpletask.main.entities;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts and times what the WorkspaceManager does, so it can be watched over JMX once register()
+ * has been called. The metrics are kept for the whole process rather than for one
+ * WorkspaceManager, so they carry on across loads.
+ * <p>
+ * Everything is recorded with LongAdders, which threads can add to without contending with each
+ * other, so recording costs little more than reading the clock. Latencies are kept in buckets that
+ * double in size, so the percentiles are accurate to within a factor of two.
+ *
+ * @author Matthew Taggart
+ */
+public final class WorkspaceMetrics implements WorkspaceMetricsMXBean {
+    //#region [Fields]
+    /**
+     * Name the metrics are registered under.
+     */
+    public static final String OBJECT_NAME = "simpletask:type=WorkspaceMetrics";
+    /**
+     * Number of latency buckets. Bucket 0 holds latencies under a microsecond, bucket i those from
+     * 2^(i-1) up to 2^i microseconds, and the last bucket everything longer.
+     */
+    static final int BUCKETS = 32;
+    /**
+     * Number of nanoseconds in a microsecond.
+     */
+    private static final long NANOS_PER_MICRO = 1_000;
+    /**
+     * Number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /**
+     * Nodes added.
+     */
+    static final Operation ADD = new Operation();
+    /**
+     * Nodes moved.
+     */
+    static final Operation MOVE = new Operation();
+    /**
+     * Nodes deleted.
+     */
+    static final Operation DELETE = new Operation();
+    /**
+     * Searches of the workspace.
+     */
+    static final Operation SEARCH = new Operation();
+    /**
+     * Saves of the workspace.
+     */
+    static final Operation SAVE = new Operation();
+    /**
+     * Loads of the workspace.
+     */
+    static final Operation LOAD = new Operation();
+    /**
+     * Number of nodes in the workspace, not including the root.
+     */
+    private static final LongAdder NODES = new LongAdder();
+    /**
+     * Depth of the deepest node.
+     */
+    private static final LongAccumulator DEPTH = new LongAccumulator(Math::max, 0);
+    /**
+     * Time taken by the last successful save, in nanoseconds.
+     */
+    private static volatile long lastSaveNanos;
+    /**
+     * Number of bytes written by the last successful save.
+     */
+    private static volatile long lastSaveBytes;
+    /**
+     * The only instance of WorkspaceMetrics.
+     */
+    private static final WorkspaceMetrics INSTANCE = new WorkspaceMetrics();
+    //#endregion [Fields]
+
+    /**
+     * Private constructor as this is a singleton.
+     */
+    private WorkspaceMetrics() {
+
+    }
+    /**
+     * Returns the only instance of WorkspaceMetrics.
+     *
+     * @return  The WorkspaceMetrics instance
+     */
+    public static WorkspaceMetrics getInstance() {
+        return INSTANCE;
+    }
+    /**
+     * Registers the metrics with the platform MBeanServer under OBJECT_NAME. Registering more than
+     * once does nothing.
+     *
+     * @return  True if the metrics are registered
+     */
+    public static boolean register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            return true;
+        } catch (InstanceAlreadyExistsException e) {
+            return true;
+        } catch (JMException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    //#region [Recording]
+    /**
+     * Sets the size of the workspace after it has been walked, e.g. when it is loaded.
+     *
+     * @param nodes Number of nodes, not including the root
+     * @param depth Depth of the deepest node
+     */
+    static void measured(final long nodes, final long depth) {
+        NODES.reset();
+        NODES.add(nodes);
+        DEPTH.reset();
+        DEPTH.accumulate(depth);
+    }
+    /**
+     * Records a node being added.
+     *
+     * @param depth Depth of the new node
+     */
+    static void added(final long depth) {
+        NODES.increment();
+        DEPTH.accumulate(depth);
+    }
+    /**
+     * Records nodes being deleted. The depth is not lowered until the workspace is next measured,
+     * as finding the new deepest node means walking the whole workspace.
+     *
+     * @param nodes Number of nodes deleted
+     */
+    static void removed(final long nodes) {
+        NODES.add(-nodes);
+    }
+    /**
+     * Records a successful save.
+     *
+     * @param start Time, from System.nanoTime(), that the save started
+     * @param bytes Number of bytes written
+     */
+    static void saved(final long start, final long bytes) {
+        lastSaveNanos = SAVE.record(start, true);
+        lastSaveBytes = bytes;
+    }
+    //#endregion [Recording]
+
+    //#region [Getters]
+    @Override
+    public Operation getAdd() {
+        return ADD;
+    }
+    @Override
+    public Operation getMove() {
+        return MOVE;
+    }
+    @Override
+    public Operation getDelete() {
+        return DELETE;
+    }
+    @Override
+    public Operation getSearch() {
+        return SEARCH;
+    }
+    @Override
+    public Operation getSave() {
+        return SAVE;
+    }
+    @Override
+    public Operation getLoad() {
+        return LOAD;
+    }
+    @Override
+    public long[] getBucketBoundsMicros() {
+        long[] bounds = new long[BUCKETS - 1];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = 1L << i;
+        }
+        return bounds;
+    }
+    @Override
+    public long getNodeCount() {
+        return NODES.sum();
+    }
+    @Override
+    public long getTreeDepth() {
+        return DEPTH.get();
+    }
+    @Override
+    public double getLastSaveMillis() {
+        return lastSaveNanos / NANOS_PER_MILLI;
+    }
+    @Override
+    public long getLastSaveBytes() {
+        return lastSaveBytes;
+    }
+    @Override
+    public int getIdIndexSize() {
+        WorkspaceManager workspace = WorkspaceManager.getInstance();
+        return null == workspace ? 0 : workspace.idIndexSize();
+    }
+    @Override
+    public int getStringPoolSize() {
+        return StringPool.size();
+    }
+    @Override
+    public int getDirtyShardCount() {
+        WorkspaceManager workspace = WorkspaceManager.getInstance();
+        return null == workspace ? 0 : workspace.getDirtyShards().size();
+    }
+    //#endregion [Getters]
+
+    /**
+     * The count, failures and latencies of one kind of operation. Read over JMX, each getter
+     * becomes an item of a composite.
+     */
+    public static final class Operation {
+        /**
+         * Number of times the operation was run.
+         */
+        private final LongAdder count = new LongAdder();
+        /**
+         * Number of times the operation failed.
+         */
+        private final LongAdder failures = new LongAdder();
+        /**
+         * Sum of the latencies, in nanoseconds.
+         */
+        private final LongAdder totalNanos = new LongAdder();
+        /**
+         * Longest latency, in nanoseconds.
+         */
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        /**
+         * Number of latencies in each bucket.
+         */
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        /**
+         * Creates an Operation that has not been run.
+         */
+        Operation() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+        /**
+         * Records the operation being run.
+         *
+         * @param start     Time, from System.nanoTime(), that the operation started
+         * @param succeeded False if the operation failed
+         * @return          Time the operation took, in nanoseconds
+         */
+        long record(final long start, final boolean succeeded) {
+            long elapsed = System.nanoTime() - start;
+            count.increment();
+            if (!succeeded) {
+                failures.increment();
+            }
+            totalNanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+            int bucket = Long.SIZE - Long.numberOfLeadingZeros(elapsed / NANOS_PER_MICRO);
+            buckets[Math.min(bucket, BUCKETS - 1)].increment();
+            return elapsed;
+        }
+        /**
+         * Returns the number of times the operation was run.
+         *
+         * @return  Number of operations
+         */
+        public long getCount() {
+            return count.sum();
+        }
+        /**
+         * Returns the number of times the operation failed.
+         *
+         * @return  Number of failures
+         */
+        public long getFailures() {
+            return failures.sum();
+        }
+        /**
+         * Returns the mean latency.
+         *
+         * @return  Mean latency in microseconds, 0 if the operation has not been run
+         */
+        public double getMeanMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) totalNanos.sum() / NANOS_PER_MICRO / n;
+        }
+        /**
+         * Returns the longest latency.
+         *
+         * @return  Longest latency in microseconds
+         */
+        public long getMaxMicros() {
+            return maxNanos.get() / NANOS_PER_MICRO;
+        }
+        /**
+         * Returns the median latency.
+         *
+         * @return  Median latency in microseconds
+         */
+        public long getP50Micros() {
+            return percentile(50);
+        }
+        /**
+         * Returns the 99th percentile latency.
+         *
+         * @return  99th percentile in microseconds
+         */
+        public long getP99Micros() {
+            return percentile(99);
+        }
+        /**
+         * Returns the 99.9th percentile latency.
+         *
+         * @return  99.9th percentile in microseconds
+         */
+        public long getP999Micros() {
+            return percentile(99.9);
+        }
+        /**
+         * Returns the number of latencies in each bucket, see WorkspaceMetrics.BUCKETS.
+         *
+         * @return  Count of each bucket
+         */
+        public long[] getBuckets() {
+            long[] res = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                res[i] = buckets[i].sum();
+            }
+            return res;
+        }
+        /**
+         * Finds the bucket a percentile of the latencies fall in.
+         *
+         * @param p The percentile, from 0 to 100
+         * @return  The upper bound of the bucket in microseconds, or the longest latency if that
+         *          is lower
+         */
+        private long percentile(final double p) {
+            long[] counts = getBuckets();
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            long rank = (long) Math.ceil(total * p / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(1L << i, getMaxMicros());
+                }
+            }
+            return getMaxMicros();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package simpletask.main.entities;
+
+/**
+ * What WorkspaceMetrics exposes over JMX. Each operation is returned as a composite of its count,
+ * failures and latencies, so it can be read in one request.
+ *
+ * @author Matthew Taggart
+ */
+public interface WorkspaceMetricsMXBean {
+    /**
+     * Returns the nodes added by addWorkspace.
+     *
+     * @return  Counts and latencies of adds
+     */
+    WorkspaceMetrics.Operation getAdd();
+    /**
+     * Returns the calls to moveCurrentWorkspace and moveWorkspaces.
+     *
+     * @return  Counts and latencies of moves
+     */
+    WorkspaceMetrics.Operation getMove();
+    /**
+     * Returns the calls to deleteWorkspace and deleteCurrentWorkspace.
+     *
+     * @return  Counts and latencies of deletes
+     */
+    WorkspaceMetrics.Operation getDelete();
+    /**
+     * Returns the calls to searchWorkspaces and findByName.
+     *
+     * @return  Counts and latencies of searches
+     */
+    WorkspaceMetrics.Operation getSearch();
+    /**
+     * Returns the saves, both those asked for and those made by an AutoSaver.
+     *
+     * @return  Counts and latencies of saves
+     */
+    WorkspaceMetrics.Operation getSave();
+    /**
+     * Returns the loads of a workspace from a store.
+     *
+     * @return  Counts and latencies of loads
+     */
+    WorkspaceMetrics.Operation getLoad();
+    /**
+     * Returns the upper bound of each latency bucket, in microseconds. The last bucket has no
+     * upper bound.
+     *
+     * @return  Upper bounds of the buckets
+     */
+    long[] getBucketBoundsMicros();
+    /**
+     * Returns the number of nodes in the workspace, not including the root. It is measured when the
+     * workspace is loaded or autosaved and kept up to date as nodes are added and deleted in
+     * between.
+     *
+     * @return  Number of nodes
+     */
+    long getNodeCount();
+    /**
+     * Returns the depth of the deepest node, with the tasks of the root at depth 1. It is measured
+     * when the workspace is loaded or autosaved and raised as nodes are added in between, so deletes
+     * and moves only show once the workspace is next autosaved.
+     *
+     * @return  Depth of the workspace
+     */
+    long getTreeDepth();
+    /**
+     * Returns the time taken by the last successful save.
+     *
+     * @return  Time in milliseconds
+     */
+    double getLastSaveMillis();
+    /**
+     * Returns the number of bytes written by the last successful save.
+     *
+     * @return  Number of bytes
+     */
+    long getLastSaveBytes();
+    /**
+     * Returns the number of nodes in the index used to find nodes by id, 0 if it is not built yet.
+     *
+     * @return  Size of the id index
+     */
+    int getIdIndexSize();
+    /**
+     * Returns the number of distinct names and descriptions shared between nodes.
+     *
+     * @return  Size of the string pool
+     */
+    int getStringPoolSize();
+    /**
+     * Returns the number of top level tasks changed since the workspace was last committed.
+     *
+     * @return  Number of dirty shards
+     */
+    int getDirtyShardCount();
+}
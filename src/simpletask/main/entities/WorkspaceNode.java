@@ -3,7 +3,9 @@ package simpletask.main.entities;
 import java.io.InvalidClassException;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A WorkspaceNode is the template node of the Workspace multi-node tree. It contains
@@ -25,6 +27,16 @@ abstract class WorkspaceNode implements Serializable {
      * Minimum value of importance for a WorkspaceNode.
      */
     protected static final int MINIMPORTANCE = 0;
+    /**
+     * The id that will be given to the next WorkspaceNode that is created.
+     */
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+    /**
+     * Id of WorkspaceNode. It is unique amongst all nodes in the application and is kept when the
+     * workspace is saved. Workspaces saved before ids were introduced load with an id of 0 and are
+     * given new ids when loaded (see assignIds).
+     */
+    long id = NEXT_ID.getAndIncrement();
     /**
      * Name of WorkspaceNode.
      */
@@ -53,12 +65,21 @@ abstract class WorkspaceNode implements Serializable {
 
     //#region [Getters]
     /**
-     * Returns a copy of the name of the WorkspaceNode.
+     * Returns the id of the WorkspaceNode.
+     *
+     * @return  Id of WorkspaceNode
+     */
+    protected long getId() {
+        return this.id;
+    }
+    /**
+     * Returns the name of the WorkspaceNode. Strings cannot be modified, so there is no need to
+     * return a copy.
      *
      *  @return Name of WorkspaceNode as string
      */
     protected String getName() {
-        return new String(this.name);
+        return this.name;
     }
     /**
      * Returns the user definied priority of WorkspaceNode.
@@ -100,6 +121,23 @@ abstract class WorkspaceNode implements Serializable {
     protected WorkspaceNode getParent() {
         return this.parent;
     }
+    /**
+     * Removes current WorkspaceNode from the list of tasks of its parent. Nodes are equal by value,
+     * so the list is searched by identity, otherwise an equal sibling before this node could be
+     * removed in its place.
+     *
+     * @return  True if it was in the list of tasks of its parent
+     */
+    protected boolean removeFromParent() {
+        ArrayList<WorkspaceNode> siblings = getParent().getTasks();
+        for (int i = 0; i < siblings.size(); i++) {
+            if (siblings.get(i) == this) {
+                siblings.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
     /**
      * Used to get the list of nodes that the current node is a parent of. This method
      * is abstract since not all nodes will maintain a list of other nodes (e.g. Action).
@@ -123,6 +161,7 @@ abstract class WorkspaceNode implements Serializable {
             case TASKS:       res = String.valueOf(getTasks().size()); break;
             case DUEDATE:     res = getDueDate().toString();           break;
             case COMPLETE:    res = String.valueOf(getComplete());     break;
+            case ID:          res = String.valueOf(getId());           break;
             default:          res = "No Value Set";                    break;
         }
         return res;
@@ -131,20 +170,23 @@ abstract class WorkspaceNode implements Serializable {
 
     //#region [Setters]
     /**
-     * Renames WorkspaceNode.
+     * Renames WorkspaceNode. The name is shared with any other node with the same name.
      *
      * @param name  Name of WorkspaceNode
+     * @see         StringPool
      */
     protected void setName(final String name) {
-        this.name = name;
+        this.name = StringPool.intern(name);
     }
     /**
-     * Sets the description attribute.
+     * Sets the description attribute. The description is shared with any other node with the same
+     * description.
      *
      * @param description the description to set
+     * @see               StringPool
      */
     protected void setDescription(final String description) {
-        this.description = description;
+        this.description = StringPool.intern(description);
     }
     /**
      * Sets the due date of the WorkspaceNode.
@@ -263,6 +305,66 @@ abstract class WorkspaceNode implements Serializable {
      * @throws InvalidClassException    If you cannot convert to an Action
      */
     protected abstract WorkspaceNode asAction() throws InvalidClassException;
+    /**
+     * Creates a new node of the same type with the same attributes as this one. The copy has
+     * no sub tasks and is its own parent, so it can be adopted by any Task.
+     *
+     * @return  A detached copy of this node
+     */
+    protected abstract WorkspaceNode copy();
     //#endregion [Abstract]
+    /**
+     * Copies the user editable attributes of this node into another node. Used by the
+     * implementations of copy().
+     *
+     * @param target    The node to copy the attributes into
+     * @return          The target node
+     */
+    protected WorkspaceNode copyAttributesTo(final WorkspaceNode target) {
+        target.id = this.id;
+        target.name = this.name;
+        target.description = this.description;
+        target.dueDate = this.dueDate;
+        target.complete = this.complete;
+        target.priority = this.priority;
+        return target;
+    }
+    /**
+     * Ensures that no node created from now on is given an id that is already in use by a loaded
+     * node. Nodes without an id (i.e. saved before ids existed) are given one.
+     *
+     * @param root  Root of the loaded workspace
+     */
+    static void assignIds(final WorkspaceNode root) {
+        ArrayDeque<WorkspaceNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        long max = 0;
+        while (!stack.isEmpty()) {
+            WorkspaceNode node = stack.pop();
+            max = Math.max(max, node.id);
+            for (WorkspaceNode child : node.getTasks()) {
+                stack.push(child);
+            }
+        }
+        reserveId(max);
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            WorkspaceNode node = stack.pop();
+            if (node.id <= 0) {
+                node.id = NEXT_ID.getAndIncrement();
+            }
+            for (WorkspaceNode child : node.getTasks()) {
+                stack.push(child);
+            }
+        }
+    }
+    /**
+     * Marks an id as being used, so that no new node will be given it.
+     *
+     * @param used  An id that is in use
+     */
+    static void reserveId(final long used) {
+        NEXT_ID.accumulateAndGet(used + 1, Math::max);
+    }
     //#endregion [Implementation]
 }
@@ -0,0 +1,141 @@
+package simpletask.main.entities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.Executor;
+
+/**
+ * Somewhere a workspace can be saved to and loaded from. The WorkspaceManager does not know how or
+ * where its workspace is stored, it just hands itself to a store. This allows the storage engine
+ * to be chosen for each deployment, e.g. a compact binary file for the GUI and newline delimited JSON
+ * when the workspace needs to be read by other tools.
+ * <p>
+ * Unlike the convenience methods on WorkspaceManager, stores report failures by throwing, so the
+ * caller decides how to handle them.
+ *
+ * @author Matthew Taggart
+ */
+public interface WorkspaceStore extends AutoCloseable {
+    /**
+     * Loads the stored workspace. The returned WorkspaceManager becomes the one returned by
+     * WorkspaceManager.getInstance().
+     *
+     * @return              The WorkspaceManager that manages the loaded workspace
+     * @throws IOException  If the workspace cannot be read or is not valid
+     */
+    WorkspaceManager load() throws IOException;
+    /**
+     * Saves the whole workspace, replacing whatever was stored before. A failed save never leaves a
+     * half written workspace behind.
+     *
+     * @param workspace     The workspace to save
+     * @return              The number of bytes written
+     * @throws IOException  If the workspace could not be written
+     */
+    long save(WorkspaceManager workspace) throws IOException;
+    /**
+     * Saves the changes made to the workspace since it was last saved or committed. Stores that can
+     * only write the whole workspace at once simply save it.
+     *
+     * @param workspace     The workspace to commit
+     * @return              The number of bytes written
+     * @throws IOException  If the changes could not be written
+     */
+    default long commit(final WorkspaceManager workspace) throws IOException {
+        return save(workspace);
+    }
+    /**
+     * Returns where the workspace is stored, e.g. the path of the file.
+     *
+     * @return  Location of the store
+     */
+    String getLocation();
+    /**
+     * Returns the total size of the stored workspace.
+     *
+     * @return              Size in bytes, or 0 if nothing has been stored yet
+     * @throws IOException  If the size cannot be read
+     */
+    long size() throws IOException;
+    /**
+     * Releases anything held by the store. The store cannot be used afterwards.
+     *
+     * @throws IOException  If the store could not be closed cleanly
+     */
+    @Override
+    default void close() throws IOException {
+
+    }
+
+    //#region [Factories]
+    /**
+     * Store that saves the workspace to a single file using WorkspaceCodec. Workspaces saved with
+     * Java serialisation can also be loaded from it. This is the default store.
+     *
+     * @param path  Path of the file
+     * @return      The store
+     */
+    static WorkspaceStore binary(final String path) {
+        return new BinaryStore(path);
+    }
+    /**
+     * Store that saves the workspace to a single file using Java serialisation, as older versions
+     * of SimpleTasks did. Very deep workspaces cannot be saved this way.
+     *
+     * @param path  Path of the file
+     * @return      The store
+     */
+    static WorkspaceStore serialized(final String path) {
+        return new SerializedStore(path);
+    }
+    /**
+     * Store that saves the workspace to a single file as newline delimited JSON.
+     *
+     * @param path  Path of the file
+     * @return      The store
+     * @see         WorkspaceManager#exportJson(java.io.Writer)
+     */
+    static WorkspaceStore json(final String path) {
+        return new JsonStore(path);
+    }
+    /**
+     * Store that saves the workspace to a directory, with each of the roots tasks in its own file.
+     * Only the files whose tasks have changed are written on a commit.
+     *
+     * @param path  Path of the directory
+     * @return      The store
+     */
+    static WorkspaceStore sharded(final String path) {
+        return new ShardedStore(path, WorkspaceCodec.getExecutor());
+    }
+    /**
+     * Chooses a store based on the path. Directories (or paths ending in a separator) use the
+     * sharded store, files ending in ".json" or ".ndjson" use the JSON store and everything else
+     * uses the binary store, which can also read serialised workspaces.
+     *
+     * @param path  Path of the workspace
+     * @return      The store
+     */
+    static WorkspaceStore forPath(final String path) {
+        if (path.endsWith("/") || path.endsWith(File.separator) || Files.isDirectory(Paths.get(path))) {
+            return sharded(path);
+        }
+        String lower = path.toLowerCase();
+        if (lower.endsWith(".json") || lower.endsWith(".ndjson")) {
+            return json(path);
+        }
+        return binary(path);
+    }
+    /**
+     * Sets the executor that workspaces are read and written on by the stores created after this is
+     * called. By default the common ForkJoinPool is used.
+     *
+     * @param executor  The executor to use
+     */
+    static void setExecutor(final Executor executor) {
+        WorkspaceCodec.setExecutor(executor);
+    }
+    //#endregion [Factories]
+}
@@ -0,0 +1,63 @@
+package simpletask.main.gui;
+
+import javafx.event.EventHandler;
+import javafx.scene.control.ListCell;
+import javafx.scene.input.MouseEvent;
+import simpletask.main.entities.NodeData;
+
+/**
+ * A cell in the horizontal strip of cards that shows the subtasks of the current workspace.
+ * The strip is a ListView, so only the cells in view are created and they are reused as the
+ * strip is scrolled. Whenever a cell is given a new task, its card is bound to that task by the
+ * Manager, which fetches the tasks subtasks. An empty cell gives its card back to be reused.
+ *
+ * @author Matthew Taggart
+ */
+public class CardCell extends ListCell<NodeData> {
+    /**
+     * The card shown by this cell, or null if the cell is empty.
+     */
+    private VBoxWrapper card;
+    /**
+     * Handler for clicks on the list of the card.
+     */
+    private final EventHandler<MouseEvent> onListClicked;
+
+    /**
+     * Creates an empty cell.
+     *
+     * @param onListClicked Handler for clicks on the list of the card
+     */
+    public CardCell(final EventHandler<MouseEvent> onListClicked) {
+        this.onListClicked = onListClicked;
+    }
+
+    @Override
+    protected void updateItem(final NodeData item, final boolean empty) {
+        super.updateItem(item, empty);
+        setText(null);
+        if (empty || null == item) {
+            if (null != card) {
+                Manager.getInstance().unbindCard(card);
+                card = null;
+            }
+            setGraphic(null);
+            return;
+        }
+        card = Manager.getInstance().bindCard(card, getIndex(), item);
+        if (null == card) {
+            setGraphic(null);
+            return;
+        }
+        card.getListView().setOnMouseClicked(onListClicked);
+        setGraphic(card.getVBox());
+    }
+    /**
+     * Tasks are compared by identity, not by their details, so a cell is always rebound when it is
+     * given a freshly fetched task. Its subtasks may have changed even if its details have not.
+     */
+    @Override
+    protected boolean isItemChanged(final NodeData oldItem, final NodeData newItem) {
+        return oldItem != newItem;
+    }
+}
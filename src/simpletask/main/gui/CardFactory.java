@@ -0,0 +1,139 @@
+package simpletask.main.gui;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import simpletask.main.app.Config;
+import simpletask.main.app.ConfigKeys;
+import simpletask.main.entities.NodeData;
+
+/**
+ * Singleton class that creates the cards shown in the workspace. Card.fxml is only parsed once,
+ * the first time a card is needed, and is kept as a prototype. Each card after that is built in
+ * code by copying the layout of the prototype, so no XML is parsed and no reflection is used.
+ * <p>
+ * Cards that are no longer shown can be handed back with release(), and are reused by the next
+ * call to newCard(). At most CARD_CACHE_SIZE cards are kept.
+ * <p>
+ * A card is a VBox with the title of the task as its first child and the list of the tasks
+ * subtasks as its second.
+ *
+ * @author Matthew Taggart
+ */
+public final class CardFactory {
+    //#region [Fields]
+    /**
+     * Location of the card template, relative to this class.
+     */
+    public static final String TEMPLATE = "resources/Card.fxml";
+    /**
+     * The sole CardFactory instance.
+     */
+    private static final CardFactory FACTORY = new CardFactory();
+    /**
+     * The card parsed from TEMPLATE. Null until the first card is needed.
+     */
+    private VBox prototype;
+    /**
+     * Cards that have been released, without their lists.
+     */
+    private final ArrayDeque<VBox> pool = new ArrayDeque<>();
+    //#endregion [Fields]
+
+    /**
+     * Private no-args constructor. The template is parsed when it is first needed.
+     */
+    private CardFactory() {
+
+    }
+    /**
+     * Gets the instance of this singleton.
+     *
+     * @return  The instance of CardFactory
+     */
+    public static CardFactory getInstance() {
+        return FACTORY;
+    }
+
+    //#region [Cards]
+    /**
+     * Creates a card holding the given list. A released card is reused if there is one, otherwise
+     * a new one is built from the prototype. The title of the card is left for the caller to set.
+     *
+     * @param list  The list to show on the card
+     * @return      The card, or null if the template could not be loaded
+     */
+    public VBoxWrapper newCard(final ListView<NodeData> list) {
+        VBox card = pool.poll();
+        if (null == card) {
+            card = buildCard();
+            if (null == card) {
+                return null;
+            }
+        }
+        card.getChildren().add(list);
+        return new VBoxWrapper(card, list);
+    }
+    /**
+     * Takes the list off a card that is no longer shown and keeps the card to be reused, if
+     * fewer than CARD_CACHE_SIZE cards are already kept. The list is left for the caller.
+     *
+     * @param card  The card to release
+     */
+    public void release(final VBoxWrapper card) {
+        card.getVBox().getChildren().remove(card.getListView());
+        ((Text) card.getVBox().getChildren().get(0)).setText("");
+        if (pool.size() < Config.getInstance().getInt(ConfigKeys.CARD_CACHE_SIZE)) {
+            pool.push(card.getVBox());
+        }
+    }
+    /**
+     * Builds an empty card, with only its title, by copying the layout of the prototype.
+     *
+     * @return  The card, or null if the template could not be loaded
+     */
+    public VBox buildCard() {
+        if (null == prototype && !loadPrototype()) {
+            return null;
+        }
+        VBox card = new VBox();
+        card.setAlignment(prototype.getAlignment());
+        card.setSpacing(prototype.getSpacing());
+        card.setPadding(prototype.getPadding());
+        card.setMinSize(prototype.getMinWidth(), prototype.getMinHeight());
+        card.setPrefSize(prototype.getPrefWidth(), prototype.getPrefHeight());
+        card.setMaxSize(prototype.getMaxWidth(), prototype.getMaxHeight());
+        card.setStyle(prototype.getStyle());
+        card.getStyleClass().setAll(prototype.getStyleClass());
+
+        Text template = (Text) prototype.getChildren().get(0);
+        Text title = new Text();
+        title.setFont(template.getFont());
+        title.setStrokeType(template.getStrokeType());
+        title.setStrokeWidth(template.getStrokeWidth());
+        title.setStyle(template.getStyle());
+        title.getStyleClass().setAll(template.getStyleClass());
+        card.getChildren().add(title);
+        return card;
+    }
+    /**
+     * Parses TEMPLATE into the prototype.
+     *
+     * @return  True if the template was loaded, false otherwise
+     */
+    private boolean loadPrototype() {
+        try {
+            prototype = StallMonitor.time("FXML Card", () -> FXMLLoader.load(getClass().getResource(TEMPLATE)));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Unable to load FXML");
+            e.printStackTrace();
+            return false;
+        }
+    }
+    //#endregion [Cards]
+}
@@ -1,18 +1,19 @@
 package simpletask.main.gui;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
+import javafx.event.Event;
 import javafx.event.EventHandler;
-import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ContextMenu;
@@ -21,6 +22,7 @@ import javafx.scene.control.DialogPane;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.input.ClipboardContent;
 import javafx.scene.input.DataFormat;
 import javafx.scene.input.DragEvent;
@@ -33,7 +35,8 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import javafx.util.Callback;
-import simpletask.main.app.AppGUI;
+import simpletask.main.app.Config;
+import simpletask.main.app.ConfigKeys;
 import simpletask.main.entities.NodeData;
 import simpletask.main.entities.NodeKeys;
 import simpletask.main.entities.WorkspaceManager;
@@ -49,30 +52,41 @@ import simpletask.main.gui.controllers.NewNodeDialogController;
  * Since the Manager is only a view of the workspace, only the top three levels of
  * the current workspace are shown. i.e. the name of the workspace, it's subtasks and
  * the subtasks subtasks.
+
+ * <p>
+ * The subtasks are shown as a strip of cards, which only creates cards for the subtasks
+ * in view (see CardCell). The Manager binds those cards to their tasks and only holds
+ * the lists of the cards that are shown.
  *
  * @author Matthew Taggart
  */
 public final class Manager {
     /**
-     * A list of subtasks for the current workspace. Each item in this list is itself
-     * a list of subtasks.
+     * The cards currently shown, keyed on the index of their task in the current workspace.
+     * Only the cards in view are created, so this holds a handful of cards however many
+     * subtasks the current workspace has.
      */
-    @FXML
-    private List<ListView<NodeData>> workspace;
+    private final Map<Integer, VBoxWrapper> shown = new HashMap<>();
     /**
      * The sole Manager instance.
      */
     private static final Manager MANAGER = new Manager();
     /**
-     * DataFormat used to store the node data of a cell during a drag and drop.
+     * DataFormat used to store the positions of the dragged cells in their list during a
+     * drag and drop.
      */
-    private DataFormat df = new DataFormat("WorkspaceNode");
+    private DataFormat selection = new DataFormat("Selection");
     /**
      * DataFormat used to store the position of a cell during a drag and drop. The
      * position is needed the Manager knows which list to drop the cell into in the
      * workspace.
      */
     private DataFormat position = new DataFormat("Position");
+    /**
+     * DataFormat used to store the version of the workspace when a drag started. The positions of
+     * the dragged cells are only valid if the workspace has not changed since.
+     */
+    private DataFormat version = new DataFormat("Version");
     /**
      * Data used to populate the summary section for the selected task's parent.
      */
@@ -102,10 +116,57 @@ public final class Manager {
      */
     private final int comboDropDown = 5;
     /**
-     * Private no-args constructor. Ensures that the workspace is correctly initialised.
+     * Handles clicks on every cell, see onCellClicked.
+     */
+    private final EventHandler<MouseEvent> cellClicked = StallMonitor.wrap("Manager.onCellClicked", this::onCellClicked);
+    /**
+     * Starts dragging any cell, see onDragDetected.
+     */
+    private final EventHandler<MouseEvent> dragDetected = StallMonitor.wrap("Manager.onDragDetected", this::onDragDetected);
+    /**
+     * Accepts drags over any cell, see onDragOver.
+     */
+    private final EventHandler<DragEvent> dragOver = StallMonitor.wrap("Manager.onDragOver", this::onDragOver);
+    /**
+     * Handles drags entering any cell.
+     */
+    private final EventHandler<DragEvent> dragEntered = event -> {
+        /* the drag-and-drop gesture entered the target */
+        System.out.println("onDragEntered");
+        event.consume();
+    };
+    /**
+     * Handles drags leaving any cell.
+     */
+    private final EventHandler<DragEvent> dragExited = event -> {
+        System.out.println("onDragExited");
+        event.consume();
+    };
+    /**
+     * Handles drops on any cell, see onDragDropped.
+     */
+    private final EventHandler<DragEvent> dragDropped = StallMonitor.wrap("Manager.onDragDropped", this::onDragDropped);
+    /**
+     * Finishes dragging any cell, see onDragDone.
+     */
+    private final EventHandler<DragEvent> dragDone = StallMonitor.wrap("Manager.onDragDone", this::onDragDone);
+    /**
+     * The loads filling the lists of the cards that are shown, keyed on the list.
+     */
+    private final Map<ListView<NodeData>, Task<Integer>> loads = new HashMap<>();
+    /**
+     * Lists that are not being shown, kept so they can be reused. Holds at most LIST_CACHE_SIZE lists.
+     */
+    private final ArrayDeque<ListView<NodeData>> listPool = new ArrayDeque<>();
+    /**
+     * Redraws the main window after the current workspace has changed. Set by the MainController.
+     */
+    private Runnable redraw = () -> { };
+    /**
+     * Private no-args constructor.
      */
     private Manager() {
-        workspace = new ArrayList<>();
+
     };
     /**
      * Gets the instance of this singleton.
@@ -132,87 +193,151 @@ public final class Manager {
         return subTaskData;
     }
     /**
-     * Adds a new ObservableList to the workspace.
+     * Sets what is run to redraw the main window when the current workspace changes, e.g. after
+     * stepping into a task. The window is redrawn in place rather than loading a new scene.
      *
-     * @param   obsList List to add
+     * @param redraw    Redraws the main window
      */
-    public void addList(final ListView<NodeData> obsList) {
-        workspace.add(obsList);
+    public void setRedraw(final Runnable redraw) {
+        this.redraw = redraw;
     }
-
     /**
-     * Adds the element to the ObservableList in the workspace.
+     * Binds a card to the task at index in the current workspace. The cards title is set to the
+     * name of the task and its list is filled with the tasks subtasks, which are only fetched from
+     * the WorkspaceManager now that the card is shown. They are fetched in the background by a
+     * TaskLoader, and any load still filling the card for its previous task is cancelled.
      *
-     * @param element   Element to add to the ObservableList
-     * @param obsList   The list to add to
+     * @param card  The card to bind, or null to get a new one
+     * @param index Index of the task in the current workspace
+     * @param task  The task
+     * @return      The bound card, or null if one could not be created
      */
-    public void addToList(final ListView<NodeData> obsList, final NodeData element) {
-        workspace.get(workspace.indexOf(obsList)).getItems().add(element);
+    public VBoxWrapper bindCard(final VBoxWrapper card, final int index, final NodeData task) {
+        VBoxWrapper bound = null == card ? acquireCard() : card;
+        if (null == bound) {
+            return null;
+        }
+        shown.values().remove(bound);
+        shown.put(index, bound);
+        ((Text) bound.getVBox().getChildren().get(0)).setText(task.getAttr(NodeKeys.NAME));
+        cancelLoad(bound.getListView());
+        ArrayList<Integer> path = WorkspaceManager.getInstance().getPath();
+        path.add(index);
+        loads.put(bound.getListView(), TaskLoader.load(path, bound.getListView()));
+        return bound;
     }
     /**
-     * Sets up the workspace based off the current Workspace in WorkspaceManager. For each
-     * subtask in the WorkspaceManager, a card is created (based of the Card.fxml). This card
-     * contains a list of that tasks subtasks.
-     * <p>
-     * It will then set the title of each card to the name of the task.
+     * Unbinds a card that is no longer shown, so it can be reused.
+     *
+     * @param card  The card to unbind
+     */
+    public void unbindCard(final VBoxWrapper card) {
+        shown.values().remove(card);
+        cancelLoad(card.getListView());
+        releaseCard(card);
+    }
+    /**
+     * Cancels the load filling a list, if there is one.
      *
-     * @return  A list for VBoxes representing the cards
-     */
-    public ArrayList<VBoxWrapper> loadWorkspace() {
-        workspace.clear();
-        ArrayList<VBoxWrapper> vBoxs = new ArrayList<>();
-        for (NodeData w: WorkspaceManager.getInstance().getTasks()) {
-            ListView<NodeData> newList = Manager.getInstance().addNewList();
-            VBox card;
-            try {
-                card = FXMLLoader.load(getClass().getResource("resources/Card.fxml"));
-            } catch (IOException e) {
-                System.err.println("Unable to load FXML");
-                e.printStackTrace();
-                return null;
+     * @param obsList   The list
+     */
+    private void cancelLoad(final ListView<NodeData> obsList) {
+        Task<Integer> load = loads.remove(obsList);
+        if (null != load) {
+            load.cancel();
+        }
+    }
+    /**
+     * Checks whether a list is still being filled by a TaskLoader.
+     *
+     * @param obsList   The list
+     * @return          True if its items are not all there yet
+     */
+    private boolean isLoading(final ListView<NodeData> obsList) {
+        Task<Integer> load = loads.get(obsList);
+        return null != load && !load.isDone();
+    }
+    /**
+     * Returns the index of the task whose subtasks are shown in a list.
+     *
+     * @param obsList   The list
+     * @return          Index of its task in the current workspace, or -1 if it is not shown
+     */
+    private int indexOf(final ListView<NodeData> obsList) {
+        for (Map.Entry<Integer, VBoxWrapper> entry : shown.entrySet()) {
+            if (entry.getValue().getListView() == obsList) {
+                return entry.getKey();
             }
-            ((Text) card.getChildren().get(0)).setText(w.getAttr(NodeKeys.NAME));
-            card.getChildren().remove(1);   // Removes the empty ListView from the card
-            //TODO: Try to get list view to grow
-            VBox.setVgrow(newList, Priority.ALWAYS);
-            newList.setMaxSize(minCardWidth, Double.MAX_VALUE);
-            newList.setMinSize(minCardWidth, minCardHeight);
-            card.getChildren().add(newList);
-            vBoxs.add(new VBoxWrapper(card, newList));
         }
-        return vBoxs;
+        return -1;
+    }
+    /**
+     * Returns the list showing the subtasks of the task at index.
+     *
+     * @param index Index of the task in the current workspace
+     * @return      The list, or null if the task is not shown
+     */
+    private ListView<NodeData> listAt(final int index) {
+        VBoxWrapper card = shown.get(index);
+        return null == card ? null : card.getListView();
     }
     /**
-     * Adds a new empty list to the workspace.
+     * Gets a card from the CardFactory, with a list from the pool or a new list if the pool is empty.
      *
-     * @return  The list of NodeData that is added to workspace.
+     * @return  An empty card, or null if one could not be created
      */
-    private ListView<NodeData> addNewList() {
+    private VBoxWrapper acquireCard() {
+        ListView<NodeData> list = listPool.poll();
+        if (null == list) {
+            list = addNewList();
+        }
+        return CardFactory.getInstance().newCard(list);
+    }
+    /**
+     * Hands a card that is no longer shown back to the CardFactory, then empties its list and
+     * puts it in the pool, if the pool is not full.
+     *
+     * @param card  The card to put away
+     */
+    private void releaseCard(final VBoxWrapper card) {
+        ListView<NodeData> list = card.getListView();
+        CardFactory.getInstance().release(card);
+        list.getSelectionModel().clearSelection();
+        list.getItems().clear();
+        if (listPool.size() < Config.getInstance().getInt(ConfigKeys.LIST_CACHE_SIZE)) {
+            listPool.push(list);
+        }
+    }
+    /**
+     * Creates a new empty list with its context menu and cell factory, sized to fill a card.
+     * The cards use these lists, but it is public so the lists can be measured on their own.
+     *
+     * @return  The new list
+     */
+    public ListView<NodeData> addNewList() {
         ListView<NodeData> obsList = new ListView<>();
 
+        // TODO: Needs to be handled better. Ideally set in one place with options blurred out if they are invalid
         addContextMenu(obsList);
         addCellFactory(obsList);
+        obsList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
-        workspace.add(obsList);
+        //TODO: Try to get list view to grow
+        VBox.setVgrow(obsList, Priority.ALWAYS);
+        obsList.setMaxSize(minCardWidth, Double.MAX_VALUE);
+        obsList.setMinSize(minCardWidth, minCardHeight);
         return obsList;
     }
     /**
-     * Adds a Task node to the WorkspaceManager and an empty card to represent
-     * the new node.
+     * Adds a Task node to the WorkspaceManager. Its card is created when it is scrolled into view.
      *
      * @param name  Name of the new workspace
-     * @return      The list of NodeData representing the new node
+     * @return      The details of the new node
      */
-    public ListView<NodeData> addToWorkspace(final String name) {
+    public NodeData addToWorkspace(final String name) {
         WorkspaceManager.getInstance().addWorkspace(name, "Task");
-        ListView<NodeData> obsList = new ListView<>();
-
-        // TODO: Needs to be handled better. Ideally set in one place with options blurred out if they are invalid
-        addContextMenu(obsList);
-        addCellFactory(obsList);
-
-        workspace.add(obsList);
-        return obsList;
+        ArrayList<NodeData> tasks = WorkspaceManager.getInstance().getTasks();
+        return tasks.get(tasks.size() - 1);
     }
     /**
      * Adds a context menu to a ListView that is representing a list of tasks. The menu
@@ -252,239 +377,307 @@ public final class Manager {
     }
     /**
      * Addes a cell factory to the inputted obsList. Each cell will displayed using the name
-     * of the tasks it represents. They will also all have their own context menu to add, delete
-     * and edit cells.
+     * of the tasks it represents. They will also all have a context menu to add, delete and
+     * edit cells. The menu is created once for the list and acts on the selected cell, so every
+     * cell in the list shares it.
      * <p>
      * On double click, you will move into the cells parent, as in you will move your current
-     * workspace. There is also drag and drop logic used to move cells between lists.
+     * workspace. There is also drag and drop logic used to move cells between lists. The
+     * handlers for these are shared by every cell in every list, and find the cell they act on
+     * from the event. Creating a cell while scrolling only creates the cell itself.
      *
      * @param obsList   The list to add the cell factory to
      */
     private void addCellFactory(final ListView<NodeData> obsList) {
+        ContextMenu itemContextMenu = new ContextMenu();
+        MenuItem deleteMenuItem = new MenuItem("Delete");
+        deleteMenuItem.setOnAction(new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(final ActionEvent event) {
+                System.out.println("Delete Item");
+                deleteItem(obsList);
+            }
+        });
+        MenuItem editMenuItem = new MenuItem("Edit");
+        editMenuItem.setOnAction(new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(final ActionEvent event) {
+                System.out.println("Edit Item");
+                editItem(obsList);
+            }
+        });
+        MenuItem addMenuItem = new MenuItem("Add");
+        addMenuItem.setOnAction(new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(final ActionEvent event) {
+                System.out.println("Add");
+                addItemToList(obsList, event);
+            }
+        });
+        itemContextMenu.getItems().addAll(addMenuItem, deleteMenuItem, editMenuItem);
+
         obsList.setCellFactory(new Callback<ListView<NodeData>, ListCell<NodeData>>() {
             @Override
             public ListCell<NodeData> call(final ListView<NodeData> param) {
-                ListCell<NodeData> cell = new ListCell<NodeData>() {
-                    @Override
-                    protected void updateItem(final NodeData item, final boolean empty) {
-                        super.updateItem(item, empty);
-                        if (empty) {
-                            setText(null);
-                        } else {
-                            setText(item.getAttr(NodeKeys.NAME));
-                        }
-                    }
-                    @Override
-                    public void startEdit() {
-                        setText(getListView().getSelectionModel().getSelectedItem().getAttr(NodeKeys.NAME));
-                    }
-                };
-                ContextMenu listContextMenu = new ContextMenu();
-                MenuItem deleteMenuItem = new MenuItem("Delete");
-                deleteMenuItem.setOnAction(new EventHandler<ActionEvent>() {
-                    @Override
-                    public void handle(final ActionEvent event) {
-                        System.out.println("Delete Item");
-                        deleteItem(obsList);
-                    }
-                });
-                MenuItem editMenuItem = new MenuItem("Edit");
-                editMenuItem.setOnAction(new EventHandler<ActionEvent>() {
-                    @Override
-                    public void handle(final ActionEvent event) {
-                        System.out.println("Edit Item");
-                        editItem(obsList);
-                    }
-                });
-                MenuItem addMenuItem = new MenuItem("Add");
-                addMenuItem.setOnAction(new EventHandler<ActionEvent>() {
-                    @Override
-                    public void handle(final ActionEvent event) {
-                        System.out.println("Add");
-                        addItemToList(obsList, event);
-                    }
-                });
-                listContextMenu.getItems().addAll(addMenuItem, deleteMenuItem, editMenuItem);
-
-                cell.emptyProperty().addListener(
-                    (obs, wasEmpty, isNowEmpty) -> {
-                        cell.setContextMenu(listContextMenu);
-                    }
-                );
-                // Double click logic
-                addDoubleClickLogic(cell);
-                // Drag and Drop Logic
-                addDragAndDrop(cell);
-                return cell;
+                return new TaskCell(itemContextMenu);
             }
         });
     }
     /**
-     * Adds drag and drop logic to a cell. A cell can be dragged and dropped between
+     * A cell showing a single task in a list. Every cell uses the shared handlers, so it holds
+     * nothing but the context menu of its list.
+     */
+    private final class TaskCell extends ListCell<NodeData> {
+        /**
+         * Context menu shown when the cell holds a task. Shared by every cell in the list.
+         */
+        private final ContextMenu itemContextMenu;
+
+        /**
+         * Creates an empty cell.
+         *
+         * @param itemContextMenu   Context menu shown when the cell holds a task
+         */
+        TaskCell(final ContextMenu itemContextMenu) {
+            this.itemContextMenu = itemContextMenu;
+            // Double click logic
+            setOnMouseClicked(cellClicked);
+            // Drag and Drop Logic
+            setOnDragDetected(dragDetected);
+            setOnDragOver(dragOver);
+            setOnDragEntered(dragEntered);
+            setOnDragExited(dragExited);
+            setOnDragDropped(dragDropped);
+            setOnDragDone(dragDone);
+        }
+
+        @Override
+        protected void updateItem(final NodeData item, final boolean empty) {
+            super.updateItem(item, empty);
+            if (empty) {
+                setText(null);
+                // An empty cell shows the menu of the list instead
+                setContextMenu(null);
+            } else {
+                setText(item.getAttr(NodeKeys.NAME));
+                setContextMenu(itemContextMenu);
+            }
+        }
+        @Override
+        public void startEdit() {
+            setText(getListView().getSelectionModel().getSelectedItem().getAttr(NodeKeys.NAME));
+        }
+    }
+    /**
+     * Returns the cell that an event happened on.
+     *
+     * @param event The event, whose source must be a cell created by addCellFactory
+     * @return      The cell
+     */
+    @SuppressWarnings("unchecked")
+    private static ListCell<NodeData> cellOf(final Event event) {
+        return (ListCell<NodeData>) event.getSource();
+    }
+    /**
+     * Drag and drop logic for cells. A cell can be dragged and dropped between
      * lists. This allows the user to move tasks around, changing their parent.
      * <p>
-     * Two things are copied into the clipboard during the drag and drop. The first is the
-     * actual node data, this is to know which node to move. The second is the initial
-     * position of that node, this is to make it easier to find and move the node.
+     * Dragging a selected cell drags every selected cell in its list, dragging any other cell
+     * drags only that cell. Two things are copied into the clipboard during the drag and drop.
+     * The first is the positions of the dragged cells in their list, this is to know which nodes
+     * to move. The second is the position of the list, this is to know which list they came from.
      *
-     * @param cell  The cell to add the logic to
+     * @param event The event that starts the drag
      */
-    private void addDragAndDrop(final ListCell<NodeData> cell) {
-        cell.setOnDragDetected(new EventHandler<MouseEvent>() {
-            public void handle(final MouseEvent event) {
-                /* drag was detected, start drag-and-drop gesture*/
-                System.out.println("onDragDetected");
+    private void onDragDetected(final MouseEvent event) {
+        ListCell<NodeData> cell = cellOf(event);
+        /* drag was detected, start drag-and-drop gesture*/
+        System.out.println("onDragDetected");
 
-                /* allow any transfer mode */
-                Dragboard db = cell.startDragAndDrop(TransferMode.MOVE);
+        /* allow any transfer mode */
+        Dragboard db = cell.startDragAndDrop(TransferMode.MOVE);
 
-                /* put a string on dragboard */
-                ClipboardContent content = new ClipboardContent();
+        /* put a string on dragboard */
+        ClipboardContent content = new ClipboardContent();
 
-                content.put(df, cell.getItem());
-                content.put(position, workspace.indexOf(cell.getListView()));
-                content.putString(cell.getText());
-                db.setContent(content);
+        ArrayList<Integer> dragged = new ArrayList<>();
+        if (cell.isSelected()) {
+            dragged.addAll(cell.getListView().getSelectionModel().getSelectedIndices());
+        } else {
+            dragged.add(cell.getIndex());
+        }
+        content.put(selection, dragged);
+        content.put(position, indexOf(cell.getListView()));
+        content.put(version, WorkspaceManager.getInstance().getVersion());
+        content.putString(cell.getText());
+        db.setContent(content);
 
-                event.consume();
-            }
-        });
+        event.consume();
+    }
+    /**
+     * Accepts a drag over a cell.
+     *
+     * @param event The drag event
+     */
+    private void onDragOver(final DragEvent event) {
+        /* data is dragged over the target */
+        System.out.println("onDragOver");
 
-        cell.setOnDragOver(new EventHandler<DragEvent>() {
-            public void handle(final DragEvent event) {
-                /* data is dragged over the target */
-                System.out.println("onDragOver");
+        // accept it only if it is  not dragged from the same node
+        // and if it has a string data
+        if (event.getDragboard().hasString() && !isLoading(cellOf(event).getListView())) {
+            /* allow for both copying and moving, whatever user chooses */
+            event.acceptTransferModes(TransferMode.COPY_OR_MOVE);
+        }
 
-                // accept it only if it is  not dragged from the same node
-                // and if it has a string data
-                if (event.getDragboard().hasString()) {
-                    /* allow for both copying and moving, whatever user chooses */
-                    event.acceptTransferModes(TransferMode.COPY_OR_MOVE);
+        event.consume();
+    }
+    /**
+     * Moves the dragged tasks into the list of the cell it is dropped on. The tasks are moved in
+     * the WorkspaceManager in one operation, then each list is updated with a single change, so
+     * dropping many tasks costs about the same as dropping one.
+     * <p>
+     * The lists are updated from their items rather than read again, so the drop is refused while
+     * either list is still being filled by a TaskLoader, or if the workspace has changed since the
+     * drag started, as then the items may not match the workspace.
+     *
+     * @param event The drag event
+     */
+    private void onDragDropped(final DragEvent event) {
+        ListCell<NodeData> cell = cellOf(event);
+        /* data dropped */
+        System.out.println("onDragDropped");
+        /* if there is a string data on dragboard, read it and use it */
+        Dragboard db = event.getDragboard();
+        boolean success = false;
+        ListView<NodeData> source = db.hasString() ? listAt((Integer) db.getContent(position)) : null;
+        ListView<NodeData> target = cell.getListView();
+        @SuppressWarnings("unchecked")
+        ArrayList<Integer> dragged = (ArrayList<Integer>) db.getContent(selection);
+        if (null != source && !isLoading(source) && !isLoading(target)
+            && db.getContent(version).equals(WorkspaceManager.getInstance().getVersion())
+            && dragged.stream().allMatch(i -> i < source.getItems().size())) {
+            int[] indices = dragged.stream().mapToInt(Integer::intValue).toArray();
+            ArrayList<Integer> from = new ArrayList<>(WorkspaceManager.getInstance().getPath());
+            from.add((Integer) db.getContent(position));
+            ArrayList<Integer> to = new ArrayList<>(WorkspaceManager.getInstance().getPath());
+            to.add(indexOf(target));
+            if (StallMonitor.time("WorkspaceManager.moveWorkspaces",
+                                  () -> WorkspaceManager.getInstance().moveWorkspaces(from, indices, to))) {
+                boolean[] chosen = new boolean[source.getItems().size()];
+                for (int i : indices) {
+                    chosen[i] = true;
                 }
-
-                event.consume();
-            }
-        });
-
-        cell.setOnDragEntered(new EventHandler<DragEvent>() {
-            public void handle(final DragEvent event) {
-                /* the drag-and-drop gesture entered the target */
-                System.out.println("onDragEntered");
-                event.consume();
-            }
-        });
-
-        cell.setOnDragExited(new EventHandler<DragEvent>() {
-            public void handle(final DragEvent event) {
-                System.out.println("onDragExited");
-                event.consume();
-            }
-        });
-
-        cell.setOnDragDropped(new EventHandler<DragEvent>() {
-            public void handle(final DragEvent event) {
-                /* data dropped */
-                System.out.println("onDragDropped");
-                /* if there is a string data on dragboard, read it and use it */
-                Dragboard db = event.getDragboard();
-                boolean success = false;
-                if (db.hasString()) {
-                    ArrayList<Integer> path = new ArrayList<>(WorkspaceManager.getInstance().getPath());
-                    path.add(workspace.indexOf(cell.getListView()));
-                    cell.getListView().getItems().add((NodeData) db.getContent(df));
-                    WorkspaceManager.getInstance().stepIntoWorkspace((Integer) db.getContent(position));
-                    WorkspaceManager.getInstance().stepIntoWorkspace(workspace.get((Integer) db.getContent(position))
-                                                                                    .getItems().indexOf((NodeData) db.getContent(df)));
-                    WorkspaceManager.getInstance().moveCurrentWorkspace(path);
-                    WorkspaceManager.getInstance().stepUp();
-                    WorkspaceManager.getInstance().stepUp();
-                    success = true;
+                ArrayList<NodeData> kept = new ArrayList<>();
+                ArrayList<NodeData> moved = new ArrayList<>();
+                for (int i = 0; i < chosen.length; i++) {
+                    (chosen[i] ? moved : kept).add(source.getItems().get(i));
                 }
-                /* let the source know whether the string was successfully
-                 * transferred and used */
-                event.setDropCompleted(success);
-                event.consume();
-            }
-        });
-
-        cell.setOnDragDone(new EventHandler<DragEvent>() {
-            public void handle(final DragEvent event) {
-                /* the drag-and-drop gesture ended */
-                System.out.println("onDragDone");
-                Dragboard db = event.getDragboard();
-                /* if the data was successfully moved, clear it */
-                if (event.getTransferMode() == TransferMode.MOVE) {
-                    cell.getListView().getItems().remove((NodeData) db.getContent(df));
-                    db.clear();
+                source.getSelectionModel().clearSelection();
+                if (source == target) {
+                    kept.addAll(moved);
+                    source.getItems().setAll(kept);
+                } else {
+                    source.getItems().setAll(kept);
+                    target.getItems().addAll(moved);
                 }
-                event.consume();
+                success = true;
             }
-        });
+        }
+        /* let the source know whether the string was successfully
+         * transferred and used */
+        event.setDropCompleted(success);
+        event.consume();
     }
     /**
-     * Adds click logic to the cell.
+     * Clears the clipboard once a drag has finished. The lists have already been updated by
+     * onDragDropped.
+     *
+     * @param event The drag event
+     */
+    private void onDragDone(final DragEvent event) {
+        /* the drag-and-drop gesture ended */
+        System.out.println("onDragDone");
+        /* if the data was successfully moved, clear it */
+        if (event.getTransferMode() == TransferMode.MOVE) {
+            event.getDragboard().clear();
+        }
+        event.consume();
+    }
+    /**
+     * Click logic for cells.
      * <p>
      * If there is only a single click, then the summary tabs are populated with the
      * mainTaskData and subTaskData.
      * <p>
      * If it is a double click, the current workspace is moved to the parent task of the
-     * cell. The GUI is then redrawn.
+     * cell. The GUI is then redrawn in place.
      *
-     * @param cell  The cell to add the logic to
+     * @param mouseEvent    The click
      */
-    private void addDoubleClickLogic(final ListCell<NodeData> cell) {
-        cell.setOnMouseClicked(new EventHandler<MouseEvent>() {
-            @Override
-            public void handle(final MouseEvent mouseEvent) {
-                if (mouseEvent.getButton().equals(MouseButton.PRIMARY)) {
-                    if (cell.getIndex() < cell.getListView().getItems().size()) {
-                        // Get node and parent of node (in the form of NodeData)
-                        int mainTaskIndex = workspace.indexOf(cell.getListView());
-                        ArrayList<Integer> path = new ArrayList<>();
-                        path.add(mainTaskIndex);
-                        mainTaskData = WorkspaceManager.getInstance().relativeDetailsOf(path);
-                        path = new ArrayList<>();
-                        path.add(mainTaskIndex);
-                        path.add(cell.getIndex());
-                        subTaskData = WorkspaceManager.getInstance().relativeDetailsOf(path);
-                        if (mouseEvent.getClickCount() == 2) {
-                            // Move into workspace containing this cell
-                            int index = workspace.indexOf(cell.getListView());
-                            WorkspaceManager.getInstance().stepIntoWorkspace(index);
-                            // Redraw scene
-                            FXMLLoader mainWorkspace = new FXMLLoader(getClass().getResource("resources/Workspace.fxml"));
-                            try {
-                                Parent root = mainWorkspace.load();
-                                AppGUI.getStage().setScene(new Scene(root, AppGUI.WIDTH, AppGUI.LENGTH));
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                        }
-                    }
+    private void onCellClicked(final MouseEvent mouseEvent) {
+        ListCell<NodeData> cell = cellOf(mouseEvent);
+        if (mouseEvent.getButton().equals(MouseButton.PRIMARY)) {
+            if (cell.getIndex() < cell.getListView().getItems().size()) {
+                // Get node and parent of node (in the form of NodeData)
+                int mainTaskIndex = indexOf(cell.getListView());
+                ArrayList<Integer> path = new ArrayList<>();
+                path.add(mainTaskIndex);
+                mainTaskData = WorkspaceManager.getInstance().relativeDetailsOf(path);
+                path = new ArrayList<>();
+                path.add(mainTaskIndex);
+                path.add(cell.getIndex());
+                subTaskData = WorkspaceManager.getInstance().relativeDetailsOf(path);
+                if (mouseEvent.getClickCount() == 2) {
+                    // Move into workspace containing this cell
+                    WorkspaceManager.getInstance().stepIntoWorkspace(mainTaskIndex);
+                    redraw.run();
                 }
             }
-        });
+        }
     }
 
     /**
-     * Removes the selected item in the ObservableList. It will first ask the user if they are sure
-     * they want to remove the item. If OK, then the item is removed from the underlying workspace
-     * and then the ObservableList itself.
+     * Removes the selected items in the ObservableList. It will first ask the user if they are sure
+     * they want to remove them. If OK, then the items are removed from the underlying workspace
+     * and then the ObservableList itself, in a single change.
      *
-     * @param   obsList The observable list that contains the item to be deleted
+     * @param   obsList The observable list that contains the items to be deleted
      */
     private void deleteItem(final ListView<NodeData> obsList) {
+        int[] indices = obsList.getSelectionModel().getSelectedIndices().stream()
+                               .mapToInt(Integer::intValue).sorted().toArray();
+        if (0 == indices.length) {
+            return;
+        }
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Delelte Item");
-        NodeData item = obsList.getSelectionModel().getSelectedItem();
-        alert.setHeaderText("Delete item: " + item.getAttr(NodeKeys.NAME));
+        if (1 == indices.length) {
+            alert.setHeaderText("Delete item: " + obsList.getItems().get(indices[0]).getAttr(NodeKeys.NAME));
+        } else {
+            alert.setHeaderText("Delete " + indices.length + " items");
+        }
         alert.setContentText("Are you sure? Press OK to confirm or Cancel to exit.");
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get().equals(ButtonType.OK)) {
-            WorkspaceManager.getInstance().stepIntoWorkspace(workspace.indexOf(obsList));
-            WorkspaceManager.getInstance().deleteWorkspace(obsList.getItems().indexOf(item));
+            WorkspaceManager.getInstance().stepIntoWorkspace(indexOf(obsList));
+            // From the end, so the indices still to be deleted do not move
+            for (int i = indices.length - 1; i >= 0; i--) {
+                WorkspaceManager.getInstance().deleteWorkspace(indices[i]);
+            }
             WorkspaceManager.getInstance().stepUp();
-            obsList.getItems().remove(item);
+            boolean[] deleted = new boolean[obsList.getItems().size()];
+            for (int i : indices) {
+                deleted[i] = true;
+            }
+            ArrayList<NodeData> kept = new ArrayList<>();
+            for (int i = 0; i < deleted.length; i++) {
+                if (!deleted[i]) {
+                    kept.add(obsList.getItems().get(i));
+                }
+            }
+            obsList.getSelectionModel().clearSelection();
+            obsList.getItems().setAll(kept);
         }
     }
     /**
@@ -502,7 +695,7 @@ public final class Manager {
         FXMLLoader fxmlLoader = new FXMLLoader();
         fxmlLoader.setLocation(getClass().getResource("resources/NewNodeDialog.fxml"));
         try {
-            dialog.getDialogPane().setContent(fxmlLoader.load());
+            dialog.getDialogPane().setContent(StallMonitor.time("FXML NewNodeDialog", fxmlLoader::load));
         } catch (IOException e) {
             System.out.println("Unable to load dialog");
             e.printStackTrace();
@@ -544,8 +737,8 @@ public final class Manager {
      * @param newItem   The item to take its place
      */
     private void replaceItem(final ListView<NodeData> obsList, final NodeData item, final NodeData newItem) {
-        WorkspaceManager.getInstance().stepIntoWorkspace(workspace.indexOf(obsList));
-        WorkspaceManager.getInstance().stepIntoWorkspace(workspace.get(workspace.indexOf(obsList)).getItems().indexOf(item));
+        WorkspaceManager.getInstance().stepIntoWorkspace(indexOf(obsList));
+        WorkspaceManager.getInstance().stepIntoWorkspace(obsList.getItems().indexOf(item));
         WorkspaceManager.getInstance().setName(newItem.getAttr(NodeKeys.NAME));
         WorkspaceManager.getInstance().setDescription(newItem.getAttr(NodeKeys.DESCRIPTION));
         // Don't change if unsucessful
@@ -557,9 +750,8 @@ public final class Manager {
         WorkspaceManager.getInstance().setDueDate(newItem.getAttr(NodeKeys.DUEDATE));
         WorkspaceManager.getInstance().stepUp();
         WorkspaceManager.getInstance().stepUp();
-        int index = workspace.get(workspace.indexOf(obsList)).getItems().indexOf(item);
-        workspace.get(workspace.indexOf(obsList)).getItems().remove(index);
-        workspace.get(workspace.indexOf(obsList)).getItems().add(index, newItem);
+        int index = obsList.getItems().indexOf(item);
+        obsList.getItems().set(index, newItem);
     }
     /**
      * Executed when the user clicks "Add" through the Context menu. It will add a new
@@ -577,7 +769,7 @@ public final class Manager {
         FXMLLoader fxmlLoader = new FXMLLoader();
         fxmlLoader.setLocation(getClass().getResource("resources/NewNodeDialog.fxml"));
         try {
-            dialog.getDialogPane().setContent(fxmlLoader.load());
+            dialog.getDialogPane().setContent(StallMonitor.time("FXML NewNodeDialog", fxmlLoader::load));
         } catch (IOException e) {
             System.out.println("Unable to load dialog");
             e.printStackTrace();
@@ -593,10 +785,10 @@ public final class Manager {
             NodeData newItem = controller.processInputs();
             // TODO: Need to create a DateTime Picker in JavaFX to get rid of this
             newItem.setAttr(NodeKeys.DUEDATE, newItem.getAttr(NodeKeys.DUEDATE) + "T00:00:00.000000000");
-            WorkspaceManager.getInstance().stepIntoWorkspace(workspace.indexOf(obsList));
-            WorkspaceManager.getInstance().addWorkspace(newItem);
+            WorkspaceManager.getInstance().stepIntoWorkspace(indexOf(obsList));
+            StallMonitor.time("WorkspaceManager.addWorkspace", () -> WorkspaceManager.getInstance().addWorkspace(newItem));
             WorkspaceManager.getInstance().stepUp();
-            addToList(workspace.get(workspace.indexOf(obsList)), newItem);
+            obsList.getItems().add(newItem);
         } else {
             System.out.println("Cancel pressed");
         }
@@ -614,7 +806,7 @@ public final class Manager {
         Dialog<ButtonType> dialog = new Dialog<>();
         dialog.setResizable(true);
         dialog.setTitle("Delete Item");
-        String name = WorkspaceManager.getInstance().getTasks().get(workspace.indexOf(obsList)).getAttr(NodeKeys.NAME);
+        String name = WorkspaceManager.getInstance().getTasks().get(indexOf(obsList)).getAttr(NodeKeys.NAME);
         dialog.setHeaderText("Do you want to delete " + name + "?");
 
         dialog.getDialogPane().getButtonTypes().add(ButtonType.OK);
@@ -622,16 +814,9 @@ public final class Manager {
 
         Optional<ButtonType> result = dialog.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            WorkspaceManager.getInstance().deleteWorkspace(workspace.indexOf(obsList));
-            workspace.remove(obsList);
-            // Redraw scene
-            FXMLLoader mainWorkspace = new FXMLLoader(getClass().getResource("resources/Workspace.fxml"));
-            try {
-                Parent root = mainWorkspace.load();
-                AppGUI.getStage().setScene(new Scene(root, AppGUI.WIDTH, AppGUI.LENGTH));
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            int index = indexOf(obsList);
+            StallMonitor.time("WorkspaceManager.deleteWorkspace", () -> WorkspaceManager.getInstance().deleteWorkspace(index));
+            redraw.run();
         } else {
             System.out.println("Cancel pressed");
         }
@@ -639,13 +824,17 @@ public final class Manager {
     /**
      * Replaces the data at index with the item. It assumes that you are editing through the
      * GUI, so the item you are editing is two levels down. As a result, it will only try to
-     * edit those that are 2 levels below the current.
+     * edit those that are 2 levels below the current. If the card is not shown, there is
+     * nothing to update as its list is fetched when it is next shown.
      *
      * @param index Path to node to replace
      * @param item  Node to replace it with
      */
     public void editAtIndex(final int[] index, final NodeData item) {
-        ListView<NodeData> obsList = workspace.get(index[0]);
+        ListView<NodeData> obsList = listAt(index[0]);
+        if (null == obsList) {
+            return;
+        }
         if (index.length == 2) {
             replaceItem(obsList, obsList.getItems().get(index[1]), item);
         } else {
@@ -0,0 +1,182 @@
+package simpletask.main.gui;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeCell;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceListener;
+import simpletask.main.entities.WorkspaceManager;
+
+/**
+ * Outline of the whole workspace shown in a TreeView, which can be used to browse and navigate
+ * the hierarchy. The tasks of a node are only fetched from the WorkspaceManager the first time
+ * the node is expanded, and the TreeView only creates cells for the rows in view, so only the
+ * nodes that have been expanded are ever held.
+ * <p>
+ * The outline listens to the WorkspaceManager and, when a node changes, only updates that node.
+ * Nodes that have not been fetched yet are ignored, as they will be up to date when they are.
+ * Nodes that are kept when a list of tasks changes keep their state, e.g. whether they are expanded.
+ *
+ * @author Matthew Taggart
+ */
+public final class Outline implements WorkspaceListener {
+    //#region [Fields]
+    /**
+     * The TreeView that shows the outline.
+     */
+    private final TreeView<NodeData> view;
+    //#endregion [Fields]
+
+    /**
+     * Shows the outline of the current WorkspaceManager in view. A double click on a node calls
+     * onOpen with the path, from the rootWorkspace, of that node.
+     *
+     * @param view      The TreeView to show the outline in
+     * @param onOpen    Called with the path of a node when it is double clicked
+     */
+    public Outline(final TreeView<NodeData> view, final Consumer<List<Integer>> onOpen) {
+        this.view = view;
+        WorkspaceManager workspace = WorkspaceManager.getInstance();
+        OutlineItem root = new OutlineItem(workspace.detailsOf(new ArrayList<>()));
+        root.setExpanded(true);
+        view.setRoot(root);
+        view.setCellFactory(tree -> new TreeCell<NodeData>() {
+            @Override
+            protected void updateItem(final NodeData item, final boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || null == item ? null : item.getAttr(NodeKeys.NAME));
+            }
+        });
+        view.setOnMouseClicked((MouseEvent event) -> {
+            TreeItem<NodeData> selected = view.getSelectionModel().getSelectedItem();
+            if (event.getButton().equals(MouseButton.PRIMARY) && event.getClickCount() == 2 && null != selected) {
+                onOpen.accept(pathOf(selected));
+            }
+        });
+        workspace.addWorkspaceListener(this);
+    }
+
+    //#region [Updates]
+    /**
+     * Updates the node at path, if it has been fetched. Its details are fetched again, and if its
+     * tasks have been fetched they are too.
+     */
+    @Override
+    public void workspaceChanged(final List<Integer> path) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> workspaceChanged(path));
+            return;
+        }
+        OutlineItem item = (OutlineItem) view.getRoot();
+        for (int i = 0; i < path.size(); i++) {
+            if (!item.loaded) {
+                return;
+            }
+            ObservableList<TreeItem<NodeData>> children = item.getChildren();
+            if (path.get(i) >= children.size()) {
+                // The outline is behind the workspace, so fetch the whole list again
+                item.reload();
+                return;
+            }
+            item = (OutlineItem) children.get(path.get(i));
+        }
+        item.setValue(WorkspaceManager.getInstance().detailsOf(new ArrayList<>(path)));
+        item.reload();
+    }
+    /**
+     * Stops listening to the WorkspaceManager.
+     */
+    public void dispose() {
+        WorkspaceManager.getInstance().removeWorkspaceListener(this);
+    }
+    //#endregion [Updates]
+
+    /**
+     * Finds the path from the rootWorkspace to an item in the outline.
+     *
+     * @param item  The item
+     * @return      Path to the item
+     */
+    private static ArrayList<Integer> pathOf(final TreeItem<NodeData> item) {
+        ArrayDeque<Integer> path = new ArrayDeque<>();
+        TreeItem<NodeData> child = item;
+        while (null != child.getParent()) {
+            path.push(child.getParent().getChildren().indexOf(child));
+            child = child.getParent();
+        }
+        return new ArrayList<>(path);
+    }
+
+    /**
+     * A node in the outline. Its tasks are fetched the first time they are asked for, which the
+     * TreeView only does once the node has been expanded.
+     */
+    private static final class OutlineItem extends TreeItem<NodeData> {
+        /**
+         * Whether the tasks of this node have been fetched.
+         */
+        private boolean loaded = false;
+
+        /**
+         * Creates a node whose tasks have not been fetched.
+         *
+         * @param data  Details of the node
+         */
+        OutlineItem(final NodeData data) {
+            super(data);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return "0".equals(getValue().getAttr(NodeKeys.TASKS));
+        }
+        @Override
+        public ObservableList<TreeItem<NodeData>> getChildren() {
+            if (!loaded) {
+                loaded = true;
+                List<TreeItem<NodeData>> items = new ArrayList<>();
+                for (NodeData data : WorkspaceManager.getInstance().taskDetailsOf(pathOf(this))) {
+                    items.add(new OutlineItem(data));
+                }
+                super.getChildren().setAll(items);
+            }
+            return super.getChildren();
+        }
+        /**
+         * Fetches the tasks of this node again, if they have been fetched before. Tasks that are
+         * still there keep their items, matched on their ID, so what is expanded stays expanded.
+         */
+        void reload() {
+            if (!loaded) {
+                return;
+            }
+            Map<String, TreeItem<NodeData>> old = new HashMap<>();
+            for (TreeItem<NodeData> child : super.getChildren()) {
+                old.put(child.getValue().getAttr(NodeKeys.ID), child);
+            }
+            List<TreeItem<NodeData>> items = new ArrayList<>();
+            for (NodeData data : WorkspaceManager.getInstance().taskDetailsOf(pathOf(this))) {
+                TreeItem<NodeData> item = old.get(data.getAttr(NodeKeys.ID));
+                if (null == item) {
+                    item = new OutlineItem(data);
+                } else {
+                    item.setValue(data);
+                }
+                items.add(item);
+            }
+            super.getChildren().setAll(items);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package simpletask.main.gui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceManager;
+
+/**
+ * Java Flight Recorder event for the main window being redrawn after the current workspace
+ * changes. The event only covers the work done on the JavaFX application thread. Most of the cards
+ * are added in later batches.
+ * <p>
+ * Like the events of the WorkspaceManager, it is disabled by default and costs nothing until a
+ * recording turns it on.
+ *
+ * @author Matthew Taggart
+ */
+@Name("simpletask.SceneRebuild")
+@Label("Scene Rebuild")
+@Category({"SimpleTask", "GUI"})
+@Description("Redrawing the main window for the current workspace")
+@Enabled(false)
+public final class SceneRebuildEvent extends Event {
+    /**
+     * Depth of the workspace being shown.
+     */
+    @Label("Path Depth")
+    private int pathDepth;
+    /**
+     * Number of tasks in the workspace being shown.
+     */
+    @Label("Tasks")
+    private int tasks;
+
+    /**
+     * Ends the event, then fills it in and commits it if it is enabled and long enough to be
+     * recorded.
+     *
+     * @param shown Details of the workspace being shown
+     */
+    public void commit(final NodeData shown) {
+        end();
+        if (shouldCommit()) {
+            pathDepth = WorkspaceManager.getInstance().getPath().size();
+            tasks = Integer.parseInt(shown.getAttr(NodeKeys.TASKS));
+            commit();
+        }
+    }
+}
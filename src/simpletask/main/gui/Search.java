@@ -0,0 +1,283 @@
+package simpletask.main.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import simpletask.main.app.Config;
+import simpletask.main.app.ConfigKeys;
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceManager;
+
+/**
+ * Search as you type over the whole workspace. Every key typed into the search box cancels the
+ * search in progress and schedules a new one once the user has stopped typing for SEARCH_DELAY
+ * milliseconds, so a burst of typing only searches once.
+ * <p>
+ * Searches run on a background thread with WorkspaceManager.findByName, which does not move the
+ * current workspace. Matches are added to the results list as they are found, BATCH_SIZE at a
+ * time or as soon as FLUSH_NANOS has passed since the last batch, so the first matches are shown
+ * straight away however large the workspace is. The results list only creates cells for the rows
+ * in view. A double click on a result calls onOpen with its path.
+ * <p>
+ * The workspace may be edited while it is searched, so each batch carries the version of the
+ * workspace (see WorkspaceManager.getVersion()) the search started at. If the version has changed
+ * by the time a batch reaches the application thread, the matches may be missing nodes or have the
+ * wrong paths, so they are dropped and the search is started again.
+ *
+ * @author Matthew Taggart
+ */
+public final class Search {
+    //#region [Fields]
+    /**
+     * Maximum number of matches added to the results in a single change.
+     */
+    public static final int BATCH_SIZE = 256;
+    /**
+     * Longest time, in nanoseconds, that matches are held before they are added to the results.
+     */
+    private static final long FLUSH_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+    /**
+     * Shown by the results while a search is running and nothing has been found yet.
+     */
+    private static final String SEARCHING = "Searching...";
+    /**
+     * Shown by the results once a search has finished without finding anything.
+     */
+    private static final String NO_MATCHES = "No matches";
+    /**
+     * The thread that searches the WorkspaceManager. A single thread means a new search always
+     * waits for a cancelled one to stop.
+     */
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "gui-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * The list the matches are shown in.
+     */
+    private final ListView<Hit> results;
+    /**
+     * The search waiting to start or running, or null if there is none.
+     */
+    private Future<?> pending = null;
+    /**
+     * Number of searches started. A search stops, and its matches are dropped, once this has
+     * moved on. Only changed on the JavaFX application thread.
+     */
+    private volatile long generation = 0;
+    //#endregion [Fields]
+
+    /**
+     * Searches the workspace for whatever is typed into box, showing the matches in results. A
+     * double click on a match calls onOpen with the path, from the rootWorkspace, of that node.
+     *
+     * @param box       The search box
+     * @param results   The list to show the matches in
+     * @param onOpen    Called with the path of a match when it is double clicked
+     */
+    public Search(final TextField box, final ListView<Hit> results, final Consumer<List<Integer>> onOpen) {
+        this.results = results;
+        results.setCellFactory(view -> new ListCell<Hit>() {
+            @Override
+            protected void updateItem(final Hit item, final boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || null == item ? null : item.getDetails().getAttr(NodeKeys.NAME));
+            }
+        });
+        results.setOnMouseClicked((MouseEvent event) -> {
+            Hit selected = results.getSelectionModel().getSelectedItem();
+            if (event.getButton().equals(MouseButton.PRIMARY) && event.getClickCount() == 2 && null != selected) {
+                List<Integer> path = pathOf(selected);
+                if (null == path) {
+                    search(box.getText().trim());     // The node has been deleted since
+                } else {
+                    onOpen.accept(path);
+                }
+            }
+        });
+        box.textProperty().addListener((observable, oldText, newText) -> search(newText.trim()));
+    }
+
+    //#region [Searching]
+    /**
+     * Cancels the search in progress and schedules a search for query. An empty query only clears
+     * the results. Must be called on the JavaFX application thread.
+     *
+     * @param query Text the names of the matches have to contain
+     */
+    public void search(final String query) {
+        long current = ++generation;
+        if (null != pending) {
+            pending.cancel(false);
+        }
+        results.getItems().clear();
+        if (query.isEmpty()) {
+            results.setPlaceholder(null);
+            pending = null;
+            return;
+        }
+        results.setPlaceholder(new Label(SEARCHING));
+        pending = EXECUTOR.schedule(() -> run(query, current),
+                                    Config.getInstance().getLong(ConfigKeys.SEARCH_DELAY), TimeUnit.MILLISECONDS);
+    }
+    /**
+     * Searches the workspace and adds the matches to the results in batches. Runs on the search
+     * thread and stops as soon as a newer search has been started.
+     *
+     * @param query     Text the names of the matches have to contain
+     * @param current   The generation of this search
+     */
+    private void run(final String query, final long current) {
+        WorkspaceManager workspace = WorkspaceManager.getInstance();
+        long version = workspace.getVersion();
+        ArrayList<Hit> batch = new ArrayList<>();
+        long[] flushed = {System.nanoTime()};
+        boolean finished;
+        try {
+            finished = workspace.findByName(query, (path, details) -> {
+                if (current != generation) {
+                    return false;
+                }
+                batch.add(new Hit(new ArrayList<>(path), details, version));
+                if (batch.size() >= BATCH_SIZE || System.nanoTime() - flushed[0] >= FLUSH_NANOS) {
+                    show(new ArrayList<>(batch), query, current, workspace, version, false);
+                    batch.clear();
+                    flushed[0] = System.nanoTime();
+                }
+                return true;
+            });
+        } catch (RuntimeException ex) {
+            Platform.runLater(() -> {
+                if (current != generation) {
+                    return;
+                }
+                if (isCurrent(workspace, version)) {
+                    // Nothing was edited, so searching again would fail the same way
+                    ex.printStackTrace();
+                    results.setPlaceholder(new Label(NO_MATCHES));
+                } else {
+                    search(query);
+                }
+            });
+            return;
+        }
+        if (finished) {
+            show(batch, query, current, workspace, version, true);
+        }
+    }
+    /**
+     * Adds a batch of matches to the results on the JavaFX application thread, unless a newer
+     * search has been started by then. If the workspace has been edited since the search started,
+     * the matches are dropped and the search is started again.
+     *
+     * @param batch     The matches
+     * @param query     Text the names of the matches have to contain
+     * @param current   The generation of the search that found them
+     * @param workspace The workspace that was searched
+     * @param version   Version of the workspace when the search started
+     * @param last      Whether this is the last batch of the search
+     */
+    private void show(final List<Hit> batch, final String query, final long current,
+                      final WorkspaceManager workspace, final long version, final boolean last) {
+        Platform.runLater(() -> {
+            if (current != generation) {
+                return;
+            }
+            if (!isCurrent(workspace, version)) {
+                search(query);
+                return;
+            }
+            results.getItems().addAll(batch);
+            if (last) {
+                results.setPlaceholder(new Label(NO_MATCHES));
+            }
+        });
+    }
+    /**
+     * Checks whether a workspace is still the one being edited, and has not been edited since it
+     * was at version. Must be called on the JavaFX application thread.
+     *
+     * @param workspace The workspace
+     * @param version   The version it was at
+     * @return          True if nothing has changed
+     */
+    private static boolean isCurrent(final WorkspaceManager workspace, final long version) {
+        return WorkspaceManager.getInstance() == workspace && workspace.getVersion() == version;
+    }
+    /**
+     * Finds the path of a match as the workspace is now. If the workspace has changed since the
+     * match was found, the path is looked up again from the nodes id.
+     *
+     * @param hit   The match
+     * @return      Path to the node from the rootWorkspace, or null if it is no longer there
+     */
+    private static List<Integer> pathOf(final Hit hit) {
+        WorkspaceManager workspace = WorkspaceManager.getInstance();
+        if (workspace.getVersion() == hit.version) {
+            return hit.path;
+        }
+        return workspace.pathOfId(Long.parseLong(hit.details.getAttr(NodeKeys.ID)));
+    }
+    //#endregion [Searching]
+
+    /**
+     * A node that matched a search.
+     */
+    public static final class Hit {
+        /**
+         * Path to the node from the rootWorkspace, at the time of the search.
+         */
+        private final List<Integer> path;
+        /**
+         * Details of the node.
+         */
+        private final NodeData details;
+        /**
+         * Version of the workspace that path is valid for.
+         */
+        private final long version;
+
+        /**
+         * Creates a match.
+         *
+         * @param path      Path to the node
+         * @param details   Details of the node
+         * @param version   Version of the workspace when the node was found
+         */
+        Hit(final List<Integer> path, final NodeData details, final long version) {
+            this.path = path;
+            this.details = details;
+            this.version = version;
+        }
+        /**
+         * Returns the path to the node from the rootWorkspace, at the time of the search.
+         *
+         * @return  Path to the node
+         */
+        public List<Integer> getPath() {
+            return path;
+        }
+        /**
+         * Returns the details of the node.
+         *
+         * @return  Details of the node
+         */
+        public NodeData getDetails() {
+            return details;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package simpletask.main.gui;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.event.Event;
+import javafx.event.EventHandler;
+import simpletask.main.entities.WorkspaceMetrics;
+
+/**
+ * Times the work done on the JavaFX application thread, so the handlers that freeze the window
+ * can be found. It is off unless STALL_THRESHOLD is set, and while it is off the wrapped handlers
+ * and timed operations only check a flag.
+ * <p>
+ * Event handlers are wrapped with wrap(), and FXML loads and WorkspaceManager calls are run through
+ * time(). Each is recorded against its name in a histogram of how long it took. Anything that
+ * takes longer than the threshold is reported on System.err as a stall, along with the number of
+ * nodes in the workspace. The number is read from WorkspaceMetrics rather than counted, so
+ * reporting a stall does not walk the workspace on the thread that stalled. The gap between pulses is recorded as "pulse", which catches stalls in
+ * code that has not been wrapped. The histograms are printed by report().
+ *
+ * @author Matthew Taggart
+ */
+public final class StallMonitor {
+    //#region [Fields]
+    /**
+     * Name the gaps between pulses are recorded under.
+     */
+    public static final String PULSE = "pulse";
+    /**
+     * Number of buckets in each histogram. Bucket i counts durations of less than 2^i
+     * microseconds, with the last bucket counting everything longer.
+     */
+    private static final int BUCKETS = 25;
+    /**
+     * Number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /**
+     * The sole StallMonitor instance.
+     */
+    private static final StallMonitor MONITOR = new StallMonitor();
+    /**
+     * Whether anything is being recorded.
+     */
+    private volatile boolean enabled = false;
+    /**
+     * Durations longer than this, in nanoseconds, are reported as stalls.
+     */
+    private volatile long thresholdNanos = Long.MAX_VALUE;
+    /**
+     * Histograms of the durations recorded, keyed on the name of the operation.
+     */
+    private final Map<String, Histogram> histograms = new TreeMap<>();
+    /**
+     * Records the gap between pulses while the monitor is on.
+     */
+    private AnimationTimer pulses = null;
+    //#endregion [Fields]
+
+    /**
+     * Private constructor as this is a singleton.
+     */
+    private StallMonitor() {
+
+    }
+    /**
+     * Returns the StallMonitor.
+     *
+     * @return  The StallMonitor
+     */
+    public static StallMonitor getInstance() {
+        return MONITOR;
+    }
+
+    //#region [Recording]
+    /**
+     * Starts recording. Must be called on the JavaFX application thread.
+     *
+     * @param thresholdMillis   Durations longer than this, in milliseconds, are reported as stalls
+     */
+    public void start(final long thresholdMillis) {
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        enabled = true;
+        if (null == pulses) {
+            pulses = new AnimationTimer() {
+                private long last = 0;
+
+                @Override
+                public void handle(final long now) {
+                    if (0 != last) {
+                        record(PULSE, now - last);
+                    }
+                    last = now;
+                }
+            };
+            pulses.start();
+        }
+    }
+    /**
+     * Stops recording. What has been recorded is kept. Must be called on the JavaFX application
+     * thread.
+     */
+    public void stop() {
+        enabled = false;
+        if (null != pulses) {
+            pulses.stop();
+            pulses = null;
+        }
+    }
+    /**
+     * Returns whether the monitor is recording.
+     *
+     * @return  True if it is recording
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+    /**
+     * Wraps an event handler so each event it handles is timed under name.
+     *
+     * @param <T>       The type of event
+     * @param name      Name to record the handler under
+     * @param handler   The handler
+     * @return          The wrapped handler
+     */
+    public static <T extends Event> EventHandler<T> wrap(final String name, final EventHandler<T> handler) {
+        return event -> {
+            if (!MONITOR.enabled) {
+                handler.handle(event);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                handler.handle(event);
+            } finally {
+                MONITOR.record(name, System.nanoTime() - start);
+            }
+        };
+    }
+    /**
+     * Runs an operation, timing it under name if it is run on the JavaFX application thread.
+     *
+     * @param <T>           The type of the result
+     * @param <E>           The type of exception the operation throws
+     * @param name          Name to record the operation under
+     * @param operation     The operation
+     * @return              The result of the operation
+     * @throws E            If the operation does
+     */
+    public static <T, E extends Exception> T time(final String name, final Operation<T, E> operation) throws E {
+        if (!MONITOR.enabled || !Platform.isFxApplicationThread()) {
+            return operation.run();
+        }
+        long start = System.nanoTime();
+        try {
+            return operation.run();
+        } finally {
+            MONITOR.record(name, System.nanoTime() - start);
+        }
+    }
+    /**
+     * Runs an operation that returns nothing, timing it under name if it is run on the JavaFX
+     * application thread.
+     *
+     * @param name      Name to record the operation under
+     * @param operation The operation
+     */
+    public static void run(final String name, final Runnable operation) {
+        time(name, () -> {
+            operation.run();
+            return null;
+        });
+    }
+    /**
+     * Records a duration under name, reporting it if it is a stall.
+     *
+     * @param name      Name of the operation
+     * @param nanos     How long it took, in nanoseconds
+     */
+    private void record(final String name, final long nanos) {
+        Histogram histogram;
+        synchronized (histograms) {
+            histogram = histograms.computeIfAbsent(name, key -> new Histogram());
+        }
+        histogram.add(nanos);
+        if (nanos > thresholdNanos) {
+            System.err.printf("Stall: %s took %.1f ms with %d nodes in the workspace%n",
+                              name, nanos / NANOS_PER_MILLI, WorkspaceMetrics.getInstance().getNodeCount());
+        }
+    }
+    //#endregion [Recording]
+
+    //#region [Reporting]
+    /**
+     * Prints the histogram of every operation recorded so far. Each operation is followed by the
+     * number of times it took less than each power of two microseconds, skipping empty buckets.
+     *
+     * @param out   Where to print the histograms
+     */
+    public void report(final PrintStream out) {
+        synchronized (histograms) {
+            out.printf("%-40s %8s %10s %10s%n", "operation", "count", "mean ms", "max ms");
+            for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                entry.getValue().print(entry.getKey(), out);
+            }
+        }
+    }
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        synchronized (histograms) {
+            histograms.clear();
+        }
+    }
+    //#endregion [Reporting]
+
+    /**
+     * An operation that returns a result and may throw a checked exception, e.g. an FXML load.
+     *
+     * @param <T>   The type of the result
+     * @param <E>   The type of exception thrown
+     */
+    @FunctionalInterface
+    public interface Operation<T, E extends Exception> {
+        /**
+         * Runs the operation.
+         *
+         * @return      The result
+         * @throws E    If the operation fails
+         */
+        T run() throws E;
+    }
+
+    /**
+     * Histogram of the durations of one operation, in power of two buckets of microseconds.
+     */
+    private static final class Histogram {
+        /**
+         * Number of durations in each bucket.
+         */
+        private final long[] buckets = new long[BUCKETS];
+        /**
+         * Number of durations recorded.
+         */
+        private long count = 0;
+        /**
+         * Sum of the durations recorded, in nanoseconds.
+         */
+        private long total = 0;
+        /**
+         * Longest duration recorded, in nanoseconds.
+         */
+        private long max = 0;
+
+        /**
+         * Adds a duration.
+         *
+         * @param nanos The duration, in nanoseconds
+         */
+        synchronized void add(final long nanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int bucket = Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(micros));
+            buckets[bucket]++;
+            count++;
+            total += nanos;
+            max = Math.max(max, nanos);
+        }
+        /**
+         * Prints the histogram.
+         *
+         * @param name  Name of the operation
+         * @param out   Where to print it
+         */
+        synchronized void print(final String name, final PrintStream out) {
+            out.printf("%-40s %8d %10.2f %10.2f%n", name, count, total / NANOS_PER_MILLI / count, max / NANOS_PER_MILLI);
+            for (int i = 0; i < BUCKETS; i++) {
+                if (0 != buckets[i]) {
+                    String bound = i == BUCKETS - 1 ? ">= " + (1L << (i - 1)) : "< " + (1L << i);
+                    out.printf("    %14s us %10d%n", bound, buckets[i]);
+                }
+            }
+        }
+    }
+}
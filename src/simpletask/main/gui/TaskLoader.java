@@ -0,0 +1,183 @@
+package simpletask.main.gui;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import simpletask.main.entities.NodeData;
+import simpletask.main.entities.WorkspaceManager;
+
+/**
+ * Fills lists with the subtasks of a task without blocking the JavaFX application thread. The
+ * subtasks are read from the WorkspaceManager on a background thread, BATCH_SIZE at a time, and
+ * each batch is added to the list in a single change on the application thread. The list shows a
+ * placeholder until the first batch arrives, so a task with a very large number of subtasks opens
+ * straight away and fills in as it is read.
+ * <p>
+ * Loads are done one at a time, in the order they are started. A load that is no longer wanted,
+ * e.g. because the user has moved to another workspace, should be cancelled. Once cancelled, none
+ * of its remaining batches are added.
+ *
+ * @author Matthew Taggart
+ */
+public final class TaskLoader {
+    //#region [Fields]
+    /**
+     * Number of subtasks read and added in each batch.
+     */
+    public static final int BATCH_SIZE = 256;
+    /**
+     * Shown by a list while its first batch is read.
+     */
+    private static final String LOADING = "Loading...";
+    /**
+     * Shown by a list once it has been filled, if there is nothing in it.
+     */
+    private static final String EMPTY = "No tasks";
+    /**
+     * The thread that reads the WorkspaceManager.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "gui-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //#endregion [Fields]
+
+    /**
+     * Private constructor as this class only has static methods.
+     */
+    private TaskLoader() {
+
+    }
+    /**
+     * Empties a list and starts filling it with the subtasks of the task at path. Must be called
+     * on the JavaFX application thread.
+     * <p>
+     * The workspace is only read on the background thread, while the application thread may be
+     * editing it. So each batch carries the version of the workspace (see
+     * WorkspaceManager.getVersion()) it was read at, and is only added if the version is still the
+     * same when it reaches the application thread. Otherwise the batch, and any that follow it, are
+     * thrown away and the list is read again from the start. The first batch of each read replaces
+     * whatever the list held, so the list never ends up with batches missing or repeated.
+     *
+     * @param path  Path, from the root, of the task whose subtasks fill the list
+     * @param view  The list to fill
+     * @return      The load, which can be cancelled
+     */
+    public static Task<Integer> load(final ArrayList<Integer> path, final ListView<NodeData> view) {
+        view.getItems().clear();
+        view.setPlaceholder(new Label(LOADING));
+        WorkspaceManager workspace = WorkspaceManager.getInstance();
+        Task<Integer> load = new Task<Integer>() {
+            /**
+             * Number of times a stale batch has been found. Only changed on the application
+             * thread, a batch read before the latest change is thrown away.
+             */
+            private volatile int restarts;
+
+            @Override
+            protected Integer call() throws InterruptedException, ExecutionException {
+                while (!isCancelled()) {
+                    int pass = restarts;
+                    int loaded = 0;
+                    while (!isCancelled() && pass == restarts) {
+                        long version = workspace.getVersion();
+                        ArrayList<NodeData> batch = read(workspace, path, loaded);
+                        int from = loaded;
+                        CompletableFuture<Boolean> added = new CompletableFuture<>();
+                        Platform.runLater(() -> {
+                            try {
+                                added.complete(add(pass, version, from, batch));
+                            } catch (RuntimeException ex) {
+                                added.completeExceptionally(ex);    // Fails the load, see setOnFailed
+                            }
+                        });
+                        if (null != batch && batch.size() == BATCH_SIZE) {
+                            loaded += BATCH_SIZE;
+                            continue;
+                        }
+                        // Only finish once the last batch is known to have been added
+                        if (added.get()) {
+                            return from + (null == batch ? 0 : batch.size());
+                        }
+                        break;
+                    }
+                }
+                return 0;
+            }
+            /**
+             * Adds a batch to the list if it is still up to date. Runs on the application thread.
+             *
+             * @param pass      The value of restarts when the batch was read
+             * @param version   Version of the workspace when the batch was read
+             * @param from      Index of the first subtask in the batch
+             * @param batch     The batch, or null if it could not be read
+             * @return          True if the load is finished with, false if it has to read again
+             */
+            private boolean add(final int pass, final long version, final int from, final ArrayList<NodeData> batch) {
+                // Cancelling happens on this thread, so nothing is added once it has been
+                if (isCancelled()) {
+                    return true;
+                }
+                if (WorkspaceManager.getInstance() != workspace) {
+                    cancel();       // A different workspace was loaded, which redraws everything
+                    return true;
+                }
+                if (pass != restarts) {
+                    return false;
+                }
+                if (workspace.getVersion() != version) {
+                    restarts++;
+                    return false;
+                }
+                if (null == batch) {
+                    // Read while nothing was changed, so the task is not there
+                    view.getItems().clear();
+                } else if (0 == from) {
+                    view.getItems().setAll(batch);
+                } else {
+                    view.getItems().addAll(batch);
+                }
+                return true;
+            }
+        };
+        load.setOnSucceeded(event -> view.setPlaceholder(new Label(EMPTY)));
+        load.setOnFailed(event -> {
+            System.err.println("Unable to load tasks in the background, loading them now");
+            load.getException().printStackTrace();
+            try {
+                view.getItems().setAll(WorkspaceManager.getInstance().taskDetailsOf(path));
+            } catch (IndexOutOfBoundsException ex) {
+                // The task is no longer there, whatever moved it will redraw the list
+                view.getItems().clear();
+            }
+            view.setPlaceholder(new Label(EMPTY));
+        });
+        EXECUTOR.execute(load);
+        return load;
+    }
+    /**
+     * Reads a batch of subtasks. Runs on the background thread, so the workspace may be changed
+     * while it is read.
+     *
+     * @param workspace The workspace to read
+     * @param path      Path of the task
+     * @param from      Index of the first subtask to read
+     * @return          The batch, or null if the workspace could not be read
+     */
+    private static ArrayList<NodeData> read(final WorkspaceManager workspace, final ArrayList<Integer> path,
+                                            final int from) {
+        try {
+            return workspace.taskDetailsOf(path, from, from + BATCH_SIZE);
+        } catch (RuntimeException ex) {
+            return null;    // Either changed while being read or not there, add() can tell which
+        }
+    }
+}
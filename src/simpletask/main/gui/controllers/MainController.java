@@ -2,9 +2,10 @@ package simpletask.main.gui.controllers;
 
 import java.io.IOException;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
+import javafx.concurrent.Task;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -14,23 +15,29 @@ import javafx.scene.control.ComboBox;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.SplitPane;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
+import javafx.scene.control.TreeView;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
+import simpletask.main.app.AppGUI;
 import simpletask.main.app.Config;
 import simpletask.main.app.ConfigKeys;
 import simpletask.main.entities.NodeData;
 import simpletask.main.entities.NodeKeys;
 import simpletask.main.entities.WorkspaceManager;
 import simpletask.main.gui.Manager;
-import simpletask.main.gui.VBoxWrapper;
+import simpletask.main.gui.Outline;
+import simpletask.main.gui.SceneRebuildEvent;
+import simpletask.main.gui.Search;
+import simpletask.main.gui.StallMonitor;
+import simpletask.main.gui.TaskLoader;
+import simpletask.main.gui.CardCell;
 
 /**
  * Controller for main window.
@@ -48,10 +55,31 @@ public class MainController {
     @FXML
     private BorderPane mainBorderPane;
     /**
-     * Reference to the HBox in the main window.
+     * The strip of cards in the main window, one for each subtask of the current workspace. Only
+     * the cards in view are created.
      */
     @FXML
-    private HBox mainHBox;
+    private ListView<NodeData> cardStrip;
+    /**
+     * The load filling cardStrip with the subtasks of the current workspace, or null if there
+     * has not been one yet.
+     */
+    private Task<Integer> loading;
+    /**
+     * Outline of the whole workspace in the main window.
+     */
+    @FXML
+    private TreeView<NodeData> outline;
+    /**
+     * The search box in the main window.
+     */
+    @FXML
+    private TextField searchBox;
+    /**
+     * Matches for what is in the search box.
+     */
+    @FXML
+    private ListView<Search.Hit> searchResults;
     /**
      * Reference to SplitPane in main window.
      */
@@ -142,42 +170,57 @@ public class MainController {
      */
     private final int dateLenth = 10;
     /**
-     * No args constructor that will set the config to be based of the .config file. If
-     * it does not exist, one will be created.
+     * Shows the clicked on task in the summary pane. Shared by every card's list.
+     */
+    private final EventHandler<MouseEvent> summaryClick = StallMonitor.wrap("MainController.summaryClick", new EventHandler<MouseEvent>() {
+        @Override
+        public void handle(final MouseEvent mouseEvent) {
+            if (mouseEvent.getButton().equals(MouseButton.PRIMARY)) {
+                if (mouseEvent.getClickCount() == 1) {
+                    populateSummaryUI();
+                }
+            }
+        }
+    });
+    /**
+     * No args constructor that will set the config to the one shared by the application. The
+     * config file is only read once, so creating a controller does not touch the disk.
      */
     public MainController() {
-        config = new Config(".config");
+        config = Config.getInstance();
     }
     /**
-     * Actions to take on initialisation. Loads the workspace into the gui.
+     * Actions to take on initialisation. Loads the workspace into the gui. The scene is only
+     * loaded once, moving between workspaces redraws it with refresh().
      */
-    // @SuppressWarnings({"unchecked"})
     @FXML
     public void initialize() {
         clearWorkspace();
-        ArrayList<VBoxWrapper> vboxs = Manager.getInstance().loadWorkspace();
-        workspaceName.setText(WorkspaceManager.getInstance().getCurrentWorkspaceDetails().getAttr(NodeKeys.NAME));
-        for (VBoxWrapper b : vboxs) {
-            mainHBox.getChildren().add(b.getVBox());
-            WorkspaceManager.getInstance().stepIntoWorkspace(mainHBox.getChildren().indexOf(b.getVBox()));
-            for (NodeData item : WorkspaceManager.getInstance().getTasks()) {
-                b.getListView().getItems().add(item);
-            }
-            WorkspaceManager.getInstance().stepUp();
-            b.getListView().setOnMouseClicked(new EventHandler<MouseEvent>() {
-                @Override
-                public void handle(final MouseEvent mouseEvent) {
-                    if (mouseEvent.getButton().equals(MouseButton.PRIMARY)) {
-                        if (mouseEvent.getClickCount() == 1) {
-                            populateSummaryUI();
-                        }
-                    }
-                }
-            });
-        }
         mainNodeType.getItems().addAll("Task", "Action");
         subNodeType.getItems().addAll("Task", "Action");
+        cardStrip.setCellFactory(strip -> new CardCell(summaryClick));
+        new Outline(outline, this::open);
+        new Search(searchBox, searchResults, this::open);
+        Manager.getInstance().setRedraw(this::refresh);
+        refresh();
+    }
+    /**
+     * Redraws the workspace after the current workspace has changed. The subtasks of the current
+     * workspace are read in the background and added to the strip in batches, so the window stays
+     * responsive however many there are. Only the cards in view fetch their own subtasks. Any load
+     * still filling the strip for the previous workspace is cancelled.
+     */
+    public void refresh() {
+        SceneRebuildEvent event = new SceneRebuildEvent();
+        event.begin();
+        NodeData current = WorkspaceManager.getInstance().getCurrentWorkspaceDetails();
+        workspaceName.setText(current.getAttr(NodeKeys.NAME));
+        if (null != loading) {
+            loading.cancel();
+        }
+        loading = StallMonitor.time("TaskLoader.load", () -> TaskLoader.load(WorkspaceManager.getInstance().getPath(), cardStrip));
         populateSummaryUI();
+        event.commit(current);
     }
 
     /**
@@ -247,7 +290,7 @@ public class MainController {
         FXMLLoader fxmlLoader = new FXMLLoader();
         fxmlLoader.setLocation(getClass().getResource("../resources/NewCardDialog.fxml"));
         try {
-            dialog.getDialogPane().setContent(fxmlLoader.load());
+            dialog.getDialogPane().setContent(StallMonitor.time("FXML NewCardDialog", fxmlLoader::load));
         } catch (IOException e) {
             System.out.println("Unable to load dialog");
             e.printStackTrace();
@@ -260,19 +303,46 @@ public class MainController {
         Optional<ButtonType> result = dialog.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
             NewCardDialogController controller = fxmlLoader.getController();
-            VBox card = controller.processInput();
-            mainHBox.getChildren().add(card);
+            NodeData added = controller.processInput();
+            if (loading.isRunning()) {
+                // The new task may or may not be in the batches still to come
+                refresh();
+            } else {
+                cardStrip.getItems().add(added);
+                cardStrip.scrollTo(cardStrip.getItems().size() - 1);
+            }
         }
     }
 
     /**
-     * Used to save workspace.
+     * Used to save workspace. The save happens in the background so the GUI does not freeze while
+     * a large workspace is written.
      */
     @FXML
     public void saveWorkspace() {
         System.out.println("Saving Workspace...");
-        WorkspaceManager.getInstance().save(config.getConfig(ConfigKeys.DIR));
-        System.out.println("Saved");
+        if (null != AppGUI.getAutoSaver()) {
+            AppGUI.getAutoSaver().saveNow();
+        } else {
+            WorkspaceManager.getInstance().save(config.getConfig(ConfigKeys.DIR));
+            System.out.println("Saved");
+        }
+    }
+    /**
+     * Moves the current workspace to the node at path and redraws the scene. An Action has no
+     * tasks to show, so its parent is moved to instead.
+     *
+     * @param path  Path, from the root, of the node to move to
+     */
+    public void open(final List<Integer> path) {
+        WorkspaceManager.getInstance().home();
+        for (int i : path) {
+            WorkspaceManager.getInstance().stepIntoWorkspace(i);
+        }
+        if ("Action".equals(WorkspaceManager.getInstance().getCurrentWorkspaceDetails().getAttr(NodeKeys.TYPE))) {
+            WorkspaceManager.getInstance().stepUp();
+        }
+        refresh();
     }
     /**
      * Moves the current workspace up a level and redraws the scene.
@@ -280,7 +350,7 @@ public class MainController {
     @FXML
     public void moveUp() {
         WorkspaceManager.getInstance().stepUp();
-        initialize();
+        refresh();
     }
     /**
      * Moves the current workspace to the root level and redraws the scene.
@@ -288,14 +358,14 @@ public class MainController {
     @FXML
     public void moveHome() {
         WorkspaceManager.getInstance().home();
-        initialize();
+        refresh();
     }
 
     /**
      * Clears current workspace.
      */
     public void clearWorkspace() {
-        mainHBox.getChildren().clear();
+        cardStrip.getItems().clear();
     }
     /**
      * Saves the main task from the summary pane. The WorkspaceManager will save the actual workspace. Note that when
@@ -306,17 +376,19 @@ public class MainController {
         int editIndex = WorkspaceManager.getInstance().getTasks().indexOf(Manager.getInstance().getMainTaskData());
         WorkspaceManager.getInstance().stepIntoWorkspace(editIndex);
         // Save Workspace
-        WorkspaceManager.getInstance().setName(mainNodeName.getText().trim());
-        WorkspaceManager.getInstance().setDescription(mainNodeDesc.getText().trim());
-        WorkspaceManager.getInstance().setPriority(mainNodePriority.getText());
-        WorkspaceManager.getInstance().setComplete(String.valueOf(mainNodeComplete.isSelected()));
-        WorkspaceManager.getInstance().setDueDate(mainNodeDueDate.getValue().toString());
-        WorkspaceManager.getInstance().setType(mainNodeType.getValue());
+        StallMonitor.run("WorkspaceManager edit", () -> {
+            WorkspaceManager.getInstance().setName(mainNodeName.getText().trim());
+            WorkspaceManager.getInstance().setDescription(mainNodeDesc.getText().trim());
+            WorkspaceManager.getInstance().setPriority(mainNodePriority.getText());
+            WorkspaceManager.getInstance().setComplete(String.valueOf(mainNodeComplete.isSelected()));
+            WorkspaceManager.getInstance().setDueDate(mainNodeDueDate.getValue().toString());
+            WorkspaceManager.getInstance().setType(mainNodeType.getValue());
+        });
 
         WorkspaceManager.getInstance().stepUp();
 
         // Save GUI version
-        ((Text) ((VBox) mainHBox.getChildren().get(editIndex)).getChildren().get(0)).setText(mainNodeName.getText().trim());
+        cardStrip.getItems().set(editIndex, WorkspaceManager.getInstance().getTasks().get(editIndex));
     }
     /**
      * Saves the sub task from the summary pane. The WorkspaceManager will update the underlying workspace and then the
@@ -328,12 +400,14 @@ public class MainController {
         int subEditIndex = WorkspaceManager.getInstance().getTasks().indexOf(Manager.getInstance().getSubTaskData());
         WorkspaceManager.getInstance().stepIntoWorkspace(subEditIndex);
         // Save Workspace
-        WorkspaceManager.getInstance().setName(subNodeName.getText().trim());
-        WorkspaceManager.getInstance().setDescription(subNodeDesc.getText().trim());
-        WorkspaceManager.getInstance().setPriority(subNodePriority.getText());
-        WorkspaceManager.getInstance().setComplete(String.valueOf(subNodeComplete.isSelected()));
-        WorkspaceManager.getInstance().setDueDate(subNodeDueDate.getValue().toString());
-        WorkspaceManager.getInstance().setType(subNodeType.getValue());
+        StallMonitor.run("WorkspaceManager edit", () -> {
+            WorkspaceManager.getInstance().setName(subNodeName.getText().trim());
+            WorkspaceManager.getInstance().setDescription(subNodeDesc.getText().trim());
+            WorkspaceManager.getInstance().setPriority(subNodePriority.getText());
+            WorkspaceManager.getInstance().setComplete(String.valueOf(subNodeComplete.isSelected()));
+            WorkspaceManager.getInstance().setDueDate(subNodeDueDate.getValue().toString());
+            WorkspaceManager.getInstance().setType(subNodeType.getValue());
+        });
 
         WorkspaceManager.getInstance().stepUp();
         WorkspaceManager.getInstance().stepUp();
@@ -0,0 +1,114 @@
+package simpletask.test.app;
+
+import simpletask.main.app.Batch;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class to test the behaviour of a Batch instance.
+ */
+public class BatchTest {
+    /**
+     * File the workspace is saved to at the end of each batch.
+     */
+    private Path file;
+    /**
+     * Workspace the commands are applied to.
+     */
+    private WorkspaceManager wm;
+    /**
+     * Executes before each test method. Creates an empty workspace and a file to save it to.
+     *
+     * @throws IOException  If the file cannot be created
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        wm = WorkspaceManager.initialise("Workspace");
+        file = Files.createTempFile("batch", ".ws");
+    }
+    /**
+     * Executed after each test. Deletes the saved workspace.
+     *
+     * @throws IOException  If it cannot be deleted
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        wm = null;
+    }
+    /**
+     * Runs a script against the workspace.
+     *
+     * @param script        The commands
+     * @return              The batch, once it has run
+     * @throws IOException  If the script cannot be read
+     */
+    private Batch run(final String script) throws IOException {
+        Batch batch = new Batch(wm, file.toString(), new PrintStream(new ByteArrayOutputStream()), 0);
+        batch.run(new BufferedReader(new StringReader(script)));
+        return batch;
+    }
+    /**
+     * Tests that deleting through a path that does not exist fails, rather than deleting a node
+     * under whatever node the previous command went to.
+     *
+     * @throws IOException  If the script cannot be read
+     */
+    @Test
+    public void testDeleteBadPath() throws IOException {
+        // Arrange
+        String script = "ADD / Task Task A\n"
+                      + "ADD / Task Task B\n"
+                      + "ADD /1 Action Action 1\n"
+                      + "ADD /1 Action Action 2\n";
+
+        // Act
+        Batch batch = run(script + "DELETE /7/1\n");
+
+        // Assert
+        assertEquals(5, batch.getCommands(), "Ensure every command is run");
+        assertEquals(1, batch.getFailures(), "Ensure the delete is reported as failing");
+        assertEquals("2", wm.detailsOf(new ArrayList<>(Arrays.asList(1))).getAttr(NodeKeys.TASKS),
+                     "Ensure nothing is deleted from the node the last command used");
+    }
+    /**
+     * Tests that a delete through a valid path or id removes that node only.
+     *
+     * @throws IOException  If the script cannot be read
+     */
+    @Test
+    public void testDelete() throws IOException {
+        // Arrange
+        String script = "ADD / Task Task A\n"
+                      + "ADD /0 Action Action 1\n"
+                      + "ADD /0 Action Action 2\n";
+        run(script);
+        String id = wm.detailsOf(new ArrayList<>(Arrays.asList(0, 0))).getAttr(NodeKeys.ID);
+
+        // Act
+        Batch batch = run("DELETE #" + id + "\nDELETE #" + id + "\n");
+
+        // Assert
+        assertEquals(1, batch.getFailures(), "Ensure a deleted id can not be deleted again");
+        assertEquals("1", wm.detailsOf(new ArrayList<>(Arrays.asList(0))).getAttr(NodeKeys.TASKS), "Ensure one action is deleted");
+        assertFalse("Action 1".equals(wm.detailsOf(new ArrayList<>(Arrays.asList(0, 0))).getAttr(NodeKeys.NAME)),
+                    "Ensure the action with that id is the one deleted");
+    }
+}
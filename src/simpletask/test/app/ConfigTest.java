@@ -0,0 +1,120 @@
+package simpletask.test.app;
+
+import simpletask.main.app.Config;
+import simpletask.main.app.ConfigKeys;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class to test the behaviour of a Config instance.
+ */
+public class ConfigTest {
+    /**
+     * Directory the config file is kept in.
+     */
+    private Path dir;
+    /**
+     * The config file.
+     */
+    private Path file;
+    /**
+     * Executes before each test method. Creates an empty directory for the config file.
+     *
+     * @throws IOException  If the directory cannot be created
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("config");
+        file = dir.resolve(".config");
+    }
+    /**
+     * Executed after each test. Deletes the config file and its directory.
+     *
+     * @throws IOException  If they cannot be deleted
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+    /**
+     * Tests that keys missing from the file and values that are not numbers use the defaults.
+     *
+     * @throws IOException  If the config file cannot be written
+     */
+    @Test
+    public void testDefaults() throws IOException {
+        // Arrange
+        Files.write(file, "search_delay=soon\nnot_a_key=1\n".getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        Config config = new Config(file.toString());
+
+        // Assert
+        assertNull(config.getConfig(ConfigKeys.DIR), "Ensure a missing key uses its default");
+        assertEquals(Long.parseLong(ConfigKeys.SEARCH_DELAY.getDefault()), config.getLong(ConfigKeys.SEARCH_DELAY),
+                     "Ensure an invalid number uses the default");
+    }
+    /**
+     * Tests that saved settings are read back by a new Config, and that no temporary file is left
+     * behind.
+     */
+    @Test
+    public void testSaveCurrentSettings() {
+        // Arrange
+        Config config = new Config(file.toString());
+        config.setValue(ConfigKeys.DIR, "workspace.ws");
+        config.setValue(ConfigKeys.AUTOSAVE_DELAY, "500");
+
+        // Act
+        boolean saved = config.saveCurrentSettings();
+        Config reloaded = new Config(file.toString());
+
+        // Assert
+        assertTrue(saved, "Ensure the settings save");
+        assertEquals("workspace.ws", reloaded.getConfig(ConfigKeys.DIR), "Ensure strings are saved");
+        assertEquals(500, reloaded.getLong(ConfigKeys.AUTOSAVE_DELAY), "Ensure numbers are saved");
+        assertFalse(Files.exists(dir.resolve(".config.tmp")), "Ensure the temporary file is moved over the config");
+    }
+    /**
+     * Tests that a watched Config reloads the file when something else changes it, and runs its
+     * listeners afterwards.
+     *
+     * @throws IOException          If the config file cannot be written
+     * @throws InterruptedException If the test is interrupted while waiting for the reload
+     */
+    @Test
+    public void testHotReload() throws IOException, InterruptedException {
+        // Arrange
+        Config config = new Config(file.toString());
+        CountDownLatch reloaded = new CountDownLatch(1);
+        config.addListener(reloaded::countDown);
+        config.watch();
+
+        // Act
+        try {
+            Files.write(file, "stall_threshold=40\n".getBytes(StandardCharsets.UTF_8));
+            boolean notified = reloaded.await(10, TimeUnit.SECONDS);
+
+            // Assert
+            assertTrue(notified, "Ensure the listener is run after the file changes");
+            assertEquals(40, config.getLong(ConfigKeys.STALL_THRESHOLD), "Ensure the new value is read");
+        } finally {
+            config.close();
+        }
+    }
+}
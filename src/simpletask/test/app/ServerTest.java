@@ -0,0 +1,196 @@
+package simpletask.test.app;
+
+import simpletask.main.app.Server;
+import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class to test the behaviour of a Server instance.
+ */
+public class ServerTest {
+    /**
+     * Number of clients reading, and the number sending batches, at once.
+     */
+    private static final int CLIENTS = 4;
+    /**
+     * Number of requests each client sends.
+     */
+    private static final int REQUESTS = 25;
+    /**
+     * File the workspace is saved to when the server stops.
+     */
+    private Path file;
+    /**
+     * Workspace being served.
+     */
+    private WorkspaceManager wm;
+    /**
+     * The server being tested.
+     */
+    private Server server;
+    /**
+     * Client the requests are sent with.
+     */
+    private HttpClient client;
+    /**
+     * Id of the only top level task.
+     */
+    private String inbox;
+    /**
+     * Executes before each test method. Serves a workspace with a single task on any free port.
+     *
+     * @throws IOException  If the file cannot be created or the port listened on
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        wm = WorkspaceManager.initialise("Workspace");
+        wm.addWorkspace("Inbox", "Task");
+        inbox = wm.detailsOf(new ArrayList<>(Arrays.asList(0))).getAttr(NodeKeys.ID);
+        file = Files.createTempFile("server", ".ws");
+        server = new Server(wm, file.toString(), 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+    /**
+     * Executed after each test. Stops the server and deletes the saved workspace.
+     *
+     * @throws IOException  If it cannot be deleted
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.stop(0);
+        Files.deleteIfExists(file);
+        wm = null;
+    }
+    /**
+     * Sends a GET request.
+     *
+     * @param path          Path of the endpoint, with any query
+     * @return              The response
+     * @throws Exception    If the request cannot be sent
+     */
+    private HttpResponse<String> get(final String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+    /**
+     * Sends a POST request.
+     *
+     * @param path          Path of the endpoint
+     * @param body          The body
+     * @return              The response
+     * @throws Exception    If the request cannot be sent
+     */
+    private HttpResponse<String> post(final String path, final String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                                         .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+    /**
+     * Tests that nodes can be read by path and by id while batches are adding to them, and that
+     * every edit in every batch is applied.
+     *
+     * @throws Exception    If a request fails
+     */
+    @Test
+    public void testConcurrentReadsAndBatches() throws Exception {
+        // Arrange
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS * 2);
+        String batch = "[{\"op\":\"add\",\"path\":\"/0\",\"NAME\":\"By path\",\"TYPE\":\"Action\"},"
+                     + "{\"op\":\"add\",\"path\":\"#" + inbox + "\",\"NAME\":\"By id\",\"TYPE\":\"Action\"}]";
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        // Act
+        for (int c = 0; c < CLIENTS; c++) {
+            results.add(clients.submit(() -> {
+                boolean ok = true;
+                for (int i = 0; i < REQUESTS; i++) {
+                    ok &= post("/batch", batch).body().endsWith("\"applied\":2}");
+                }
+                return ok;
+            }));
+            results.add(clients.submit(() -> {
+                boolean ok = true;
+                for (int i = 0; i < REQUESTS; i++) {
+                    HttpResponse<String> byPath = get("/nodes/0");
+                    HttpResponse<String> byId = get("/ids/" + inbox);
+                    HttpResponse<String> tasks = get("/nodes/0/tasks?from=0&to=10");
+                    ok &= byPath.statusCode() == 200 && byPath.body().contains("\"NAME\":\"Inbox\"");
+                    ok &= byId.statusCode() == 200 && byId.body().contains("\"path\":\"/0\"");
+                    ok &= tasks.statusCode() == 200 && tasks.body().startsWith("[");
+                }
+                return ok;
+            }));
+        }
+        boolean ok = true;
+        for (Future<Boolean> result : results) {
+            ok &= result.get();
+        }
+        clients.shutdown();
+
+        // Assert
+        assertTrue(ok, "Ensure every request succeeds");
+        assertTrue(get("/nodes/0").body().contains("\"TASKS\":\"" + CLIENTS * REQUESTS * 2 + "\""),
+                   "Ensure every edit is applied");
+    }
+    /**
+     * Tests that nodes and endpoints that do not exist are sent 404.
+     *
+     * @throws Exception    If a request fails
+     */
+    @Test
+    public void testNotFound() throws Exception {
+        // Act
+        HttpResponse<String> path = get("/nodes/7/1");
+        HttpResponse<String> tasks = get("/nodes/7/tasks");
+        HttpResponse<String> id = get("/ids/" + Long.MAX_VALUE);
+        HttpResponse<String> endpoint = get("/nothing");
+
+        // Assert
+        assertEquals(404, path.statusCode(), "Ensure a path that does not exist is not found");
+        assertEquals(404, tasks.statusCode(), "Ensure the tasks of a node that does not exist are not found");
+        assertEquals(404, id.statusCode(), "Ensure an id that does not exist is not found");
+        assertEquals(404, endpoint.statusCode(), "Ensure an unknown endpoint is not found");
+    }
+    /**
+     * Tests that malformed requests are sent 400, and leave the workspace as it was.
+     *
+     * @throws Exception    If a request fails
+     */
+    @Test
+    public void testBadRequest() throws Exception {
+        // Act
+        HttpResponse<String> id = get("/ids/inbox");
+        HttpResponse<String> search = get("/search");
+        HttpResponse<String> range = get("/nodes/0/tasks?from=first");
+        HttpResponse<String> batch = post("/batch", "[{\"op\":\"add\",\"path\":\"/0\",\"NAME\":\"Milk\"");
+
+        // Assert
+        assertEquals(400, id.statusCode(), "Ensure an id that is not a number is rejected");
+        assertEquals(400, search.statusCode(), "Ensure a search without a name is rejected");
+        assertEquals(400, range.statusCode(), "Ensure a range that is not a number is rejected");
+        assertEquals(400, batch.statusCode(), "Ensure a batch that is not valid JSON is rejected");
+        assertTrue(get("/nodes/0").body().contains("\"TASKS\":\"0\""), "Ensure nothing is added");
+    }
+}
@@ -1,15 +1,49 @@
 package simpletask.test.entities;
 
 import simpletask.main.entities.WorkspaceManager;
+import simpletask.main.entities.AutoSaver;
 import simpletask.main.entities.Criteria;
 import simpletask.main.entities.InvalidPriorityException;
 import simpletask.main.entities.NodeData;
 import simpletask.main.entities.NodeKeys;
+import simpletask.main.entities.WorkspaceGenerator;
+import simpletask.main.entities.WorkspaceMetrics;
+import simpletask.main.entities.WorkspaceStore;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -302,6 +336,273 @@ public class WorkspaceManagerTest {
         assertEquals(totalSubWS, Integer.parseInt(wm.getTasks().get(1).getAttr(NodeKeys.TASKS)), "Ensure workspaces are in second task");
         assertEquals(0, Integer.parseInt(wm.getTasks().get(0).getAttr(NodeKeys.TASKS)), "Ensure workspaces are not in original task");
     }
+    /**
+     * Tests that workspace listeners are told the path of each node that changes.
+     */
+    @Test
+    public void testWorkspaceListener() {
+        // Arrange
+        wm.addWorkspace("First", task);
+        wm.addWorkspace("Second", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Sub Task", task);
+        wm.home();
+        ArrayList<List<Integer>> changes = new ArrayList<>();
+        wm.addWorkspaceListener(changes::add);
+
+        ArrayList<Integer> path = new ArrayList<>();
+        path.add(1);
+        // Act
+        wm.stepIntoWorkspace(0);
+        wm.setDescription("Changed");
+        wm.stepIntoWorkspace(0);
+        wm.moveCurrentWorkspace(path);
+        wm.home();
+
+        // Assert
+        assertEquals(3, changes.size(), "Ensure a change is reported for the edit and both parents of the move");
+        assertEquals(Arrays.asList(0), changes.get(0), "Ensure the edited node is reported");
+        assertEquals(Arrays.asList(0), changes.get(1), "Ensure the old parent is reported");
+        assertEquals(Arrays.asList(1), changes.get(2), "Ensure the new parent is reported");
+    }
+    /**
+     * Tests to see if several tasks can be moved to another task in one operation.
+     */
+    @Test
+    public void testMoveWorkspacesBatch() {
+        // Arrange
+        wm.addWorkspace("Source", task);
+        wm.addWorkspace("Target", task);
+        wm.stepIntoWorkspace(0);
+        for (int i = 0; i < 5; i++) {
+            wm.addWorkspace("Task " + i, task);
+        }
+        wm.home();
+        ArrayList<List<Integer>> changes = new ArrayList<>();
+        wm.addWorkspaceListener(changes::add);
+
+        // Act
+        boolean moved = wm.moveWorkspaces(Arrays.asList(0), new int[] {3, 1, 4}, Arrays.asList(1));
+        boolean cycle = wm.moveWorkspaces(Arrays.asList(), new int[] {0}, Arrays.asList(0, 0));
+        boolean invalid = wm.moveWorkspaces(Arrays.asList(0), new int[] {5}, Arrays.asList(1));
+
+        // Assert
+        assertTrue(moved, "Ensure the tasks are moved");
+        assertFalse(cycle, "Ensure a task cannot be moved into its own tasks");
+        assertFalse(invalid, "Ensure an invalid position is rejected");
+        wm.stepIntoWorkspace(0);
+        assertEquals(2, wm.getTasks().size(), "Ensure the moved tasks are removed from the source");
+        assertEquals("Task 0", wm.getTasks().get(0).getAttr(NodeKeys.NAME), "Ensure the kept tasks keep their order");
+        assertEquals("Task 2", wm.getTasks().get(1).getAttr(NodeKeys.NAME), "Ensure the kept tasks keep their order");
+        wm.home();
+        wm.stepIntoWorkspace(1);
+        assertEquals(3, wm.getTasks().size(), "Ensure the moved tasks are added to the target");
+        assertEquals("Task 1", wm.getTasks().get(0).getAttr(NodeKeys.NAME), "Ensure the moved tasks keep their order");
+        assertEquals("Task 4", wm.getTasks().get(2).getAttr(NodeKeys.NAME), "Ensure the moved tasks keep their order");
+        assertEquals(2, changes.size(), "Ensure only the source and target are reported, once each");
+    }
+    /**
+     * Tests to see if the workspace can be searched by name without moving the current workspace,
+     * and if the search can be stopped part way through.
+     */
+    @Test
+    public void testFindByName() {
+        // Arrange
+        wm.addWorkspace("Shopping", task);
+        wm.addWorkspace("Work", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Buy milk", "Action");
+        wm.addWorkspace("Shop list", task);
+        wm.stepIntoWorkspace(1);
+        wm.addWorkspace("Milk", "Action");
+        wm.home();
+        wm.stepIntoWorkspace(1);
+        ArrayList<List<Integer>> paths = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+
+        // Act
+        boolean finished = wm.findByName("MILK", (path, details) -> {
+            paths.add(new ArrayList<>(path));
+            names.add(details.getAttr(NodeKeys.NAME));
+            return true;
+        });
+        boolean stopped = wm.findByName("shop", (path, details) -> false);
+
+        // Assert
+        assertTrue(finished, "Ensure the whole workspace is searched");
+        assertFalse(stopped, "Ensure the search stops when asked to");
+        assertEquals(Arrays.asList(Arrays.asList(0, 0), Arrays.asList(0, 1, 0)), paths, "Ensure the matches are found in order");
+        assertEquals(Arrays.asList("Buy milk", "Milk"), names, "Ensure the details of the matches are given");
+        assertEquals(Arrays.asList(1), wm.getPath(), "Ensure the current workspace is not moved");
+    }
+    /**
+     * Tests to see if every node in the workspace is counted, wherever the current workspace is.
+     */
+    @Test
+    public void testCountNodes() {
+        // Arrange
+        wm.addWorkspace("First", task);
+        wm.addWorkspace("Second", "Action");
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Sub Task", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Sub Action", "Action");
+
+        // Act
+        int count = wm.countNodes();
+
+        // Assert
+        assertEquals(4, count, "Ensure every node below the root is counted");
+    }
+    /**
+     * Tests to see if a node can be found by its id and stepped to directly, including when it has
+     * a sibling with the same details.
+     */
+    @Test
+    public void testPathOfIdAndStepTo() {
+        // Arrange
+        wm.addWorkspace("Same", task);
+        wm.addWorkspace("Same", task);
+        wm.stepIntoWorkspace(1);
+        wm.addWorkspace("Child", "Action");
+        String id = wm.getTasks().get(0).getAttr(NodeKeys.ID);
+        wm.home();
+        ArrayList<Integer> secondPath = new ArrayList<>(Arrays.asList(1));
+        String secondId = wm.detailsOf(secondPath).getAttr(NodeKeys.ID);
+
+        // Act
+        List<Integer> childPath = wm.pathOfId(Long.parseLong(id));
+        List<Integer> samePath = wm.pathOfId(Long.parseLong(secondId));
+        boolean stepped = wm.stepTo(childPath);
+        boolean invalid = wm.stepTo(Arrays.asList(5));
+
+        // Assert
+        assertEquals(Arrays.asList(1, 0), childPath, "Ensure the path of the id is found");
+        assertEquals(Arrays.asList(1), samePath, "Ensure nodes with the same details are told apart");
+        assertTrue(stepped, "Ensure a valid path can be stepped to");
+        assertFalse(invalid, "Ensure an invalid path is rejected");
+        assertEquals(Arrays.asList(1, 0), wm.getPath(), "Ensure an invalid path does not move the current workspace");
+        assertEquals("Child", wm.getCurrentWorkspaceDetails().getAttr(NodeKeys.NAME), "Ensure the current workspace is moved");
+    }
+    /**
+     * Tests that the id index follows the workspace once it is built: deleted nodes and everything
+     * below them are dropped from it, and nodes keep being found after being converted.
+     */
+    @Test
+    public void testPathOfIdAfterChanges() {
+        // Arrange
+        wm.addWorkspace("Task 1", task);
+        wm.addWorkspace("Task 2", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Action 1", action);
+        long child = Long.parseLong(wm.getTasks().get(0).getAttr(NodeKeys.ID));
+        wm.home();
+        long second = Long.parseLong(wm.getTasks().get(1).getAttr(NodeKeys.ID));
+        wm.pathOfId(second);
+        int indexed = WorkspaceMetrics.getInstance().getIdIndexSize();
+
+        // Act
+        wm.deleteWorkspace(0);
+        List<Integer> deleted = wm.pathOfId(child);
+        wm.stepIntoWorkspace(0);
+        wm.setType(action);
+        wm.home();
+        List<Integer> converted = wm.pathOfId(second);
+
+        // Assert
+        assertEquals(4, indexed, "Ensure every node, including the root, is indexed");
+        assertEquals(null, deleted, "Ensure a deleted node is not found");
+        assertEquals(2, WorkspaceMetrics.getInstance().getIdIndexSize(), "Ensure the deleted task and its action are dropped");
+        assertEquals(Arrays.asList(0), converted, "Ensure a converted node is still found");
+        assertEquals(action, wm.detailsOf(new ArrayList<>(converted)).getAttr(NodeKeys.TYPE), "Ensure the converted node is found");
+    }
+    /**
+     * Tests that deleting one of two equal siblings, with the same name and due date, deletes that
+     * sibling and not the first one equal to it.
+     */
+    @Test
+    public void testDeleteEqualSibling() {
+        // Arrange
+        wm.addWorkspace("Milk", action);
+        wm.addWorkspace("Milk", action);
+        for (int i = 0; i < 2; i++) {
+            wm.stepIntoWorkspace(i);
+            wm.setDueDate(2024, 1, 1, 9, 0);
+            wm.stepUp();
+        }
+        long first = Long.parseLong(wm.getTasks().get(0).getAttr(NodeKeys.ID));
+        long second = Long.parseLong(wm.getTasks().get(1).getAttr(NodeKeys.ID));
+        wm.pathOfId(first);
+
+        // Act
+        boolean deleted = wm.deleteWorkspace(1);
+
+        // Assert
+        assertTrue(deleted, "Ensure the delete succeeds");
+        assertEquals(1, wm.getTasks().size(), "Ensure only one node is deleted");
+        assertEquals(String.valueOf(first), wm.getTasks().get(0).getAttr(NodeKeys.ID), "Ensure the first node is kept");
+        assertEquals(Arrays.asList(0), wm.pathOfId(first), "Ensure the kept node is still found");
+        assertEquals(null, wm.pathOfId(second), "Ensure the deleted node is not found");
+    }
+    /**
+     * Tests to see if the workspace is printed as a tree, limited by depth and number of tasks, and
+     * filtered by a Criteria.
+     */
+    @Test
+    public void testPrintTree() throws IOException {
+        // Arrange
+        wm.addWorkspace("First", task);
+        wm.addWorkspace("Second", "Action");
+        wm.addWorkspace("Third", "Action");
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Sub Task", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Deep", "Action");
+        wm.home();
+        StringWriter all = new StringWriter();
+        StringWriter limited = new StringWriter();
+        StringWriter filtered = new StringWriter();
+
+        // Act
+        long printedAll = wm.printTree(all, Integer.MAX_VALUE, Integer.MAX_VALUE, null);
+        wm.printTree(limited, 1, 2, null);
+        long printedFiltered = wm.printTree(filtered, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                                            new Criteria().addAttr(NodeKeys.TYPE, "Action"));
+
+        // Assert
+        assertEquals(6, printedAll, "Ensure every node is printed");
+        assertTrue(all.toString().contains("\n      Deep (Action)\n"), "Ensure nodes are indented by depth");
+        assertFalse(limited.toString().contains("Sub Task"), "Ensure the depth limit is kept to");
+        assertTrue(limited.toString().endsWith("  ... 1 more\n"), "Ensure the tasks over the limit are counted");
+        assertEquals(3, printedFiltered, "Ensure only the nodes that match are printed");
+    }
+    /**
+     * Tests that filtering the tree on a value some nodes do not have, such as the description of a
+     * node that was added without one, skips that value for those nodes as searches do.
+     */
+    @Test
+    public void testPrintTreeFilterMissingValue() throws IOException {
+        // Arrange
+        wm.addWorkspace("Described", task);
+        wm.addWorkspace("Other", task);
+        wm.addWorkspace("Undescribed", task);
+        wm.stepIntoWorkspace(0);
+        wm.setDescription("Notes");
+        wm.home();
+        wm.stepIntoWorkspace(1);
+        wm.setDescription("Something else");
+        wm.home();
+        StringWriter filtered = new StringWriter();
+
+        // Act
+        wm.printTree(filtered, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                     new Criteria().addAttr(NodeKeys.DESCRIPTION, "notes"));
+
+        // Assert
+        assertTrue(filtered.toString().contains("Described"), "Ensure the node that matches is printed");
+        assertFalse(filtered.toString().contains("Other"), "Ensure the node that does not match is left out");
+        assertTrue(filtered.toString().contains("Undescribed"), "Ensure the node without a description is not compared");
+    }
     /**
      * Tests to see if workspace search for Task objects works.
      */
@@ -501,4 +802,660 @@ public class WorkspaceManagerTest {
         assertEquals("Task 2", data1.getAttr(NodeKeys.NAME), "Ensure that the correct task is returned from details");
         assertEquals("Action 2", data2.getAttr(NodeKeys.NAME), "Ensure that the correct task is returned from details");
     }
+
+    /**
+     * Tests that the tasks of a workspace can be read a batch at a time
+     */
+    @Test
+    public void testTaskDetailsOfBatch() {
+        // Arrange
+        wm.addWorkspace("Task 1", task);
+        wm.stepIntoWorkspace(0);
+        for (int i = 0; i < 5; i++) {
+            wm.addWorkspace("Action " + i, action);
+        }
+        wm.home();
+
+        ArrayList<Integer> path = new ArrayList<>();
+        path.add(0);
+        // Act
+        ArrayList<NodeData> first = wm.taskDetailsOf(path, 0, 3);
+        ArrayList<NodeData> rest = wm.taskDetailsOf(path, 3, 6);
+        ArrayList<NodeData> none = wm.taskDetailsOf(path, 6, 9);
+
+        // Assert
+        assertEquals(3, first.size(), "Ensure that a full batch is returned");
+        assertEquals("Action 0", first.get(0).getAttr(NodeKeys.NAME), "Ensure that the batch starts at from");
+        assertEquals(2, rest.size(), "Ensure that the last batch stops at the last task");
+        assertEquals("Action 4", rest.get(1).getAttr(NodeKeys.NAME), "Ensure that the last batch ends at the last task");
+        assertEquals(0, none.size(), "Ensure that nothing is returned past the last task");
+    }
+
+    /**
+     * Tests that a workspace exported as NDJSON can be imported again with the same structure.
+     *
+     * @throws IOException  If the export or import fails
+     */
+    @Test
+    public void testExportImportJson() throws IOException {
+        // Arrange
+        String t1 = "Task \"1\"";
+        String a1 = "Action\n1";
+        wm.addWorkspace(t1, task);
+        wm.addWorkspace("Task 2", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace(a1, action);
+        wm.setPriority("3");
+        wm.home();
+        StringWriter out = new StringWriter();
+
+        // Act
+        long written = wm.exportJson(out);
+        WorkspaceManager imported = WorkspaceManager.importJson(new StringReader(out.toString()));
+
+        // Assert
+        assertEquals(4, written, "Ensure one line is written per node");
+        assertEquals(2, imported.getTasks().size(), "Ensure root has the same number of tasks");
+        assertEquals(t1, imported.getTasks().get(0).getAttr(NodeKeys.NAME), "Ensure names are unescaped");
+        assertEquals("3", imported.getTasks().get(0).getAttr(NodeKeys.PRIORITY), "Ensure priority is kept");
+        imported.stepIntoWorkspace(0);
+        assertEquals(a1, imported.getTasks().get(0).getAttr(NodeKeys.NAME), "Ensure nested node is imported");
+        assertEquals(action, imported.getTasks().get(0).getAttr(NodeKeys.TYPE), "Ensure type is kept");
+    }
+    /**
+     * Tests that an imported file cannot force a large allocation with its "tasks" value, and that
+     * nodes sharing an id are given distinct ids.
+     *
+     * @throws IOException  If the import fails
+     */
+    @Test
+    public void testImportJsonUntrusted() throws IOException {
+        // Arrange
+        String json = "{\"id\":1,\"parent\":null,\"name\":\"Root\",\"tasks\":2147483647,\"type\":\"Task\"}\n"
+                    + "{\"id\":7,\"parent\":1,\"name\":\"Task 1\",\"type\":\"Task\"}\n"
+                    + "{\"id\":7,\"parent\":1,\"name\":\"Task 2\",\"type\":\"Task\"}\n";
+
+        // Act
+        WorkspaceManager imported = WorkspaceManager.importJson(new StringReader(json));
+        String first = imported.getTasks().get(0).getAttr(NodeKeys.ID);
+        String second = imported.getTasks().get(1).getAttr(NodeKeys.ID);
+
+        // Assert
+        assertEquals(2, imported.getTasks().size(), "Ensure both tasks are imported");
+        assertEquals("7", first, "Ensure the first use of an id is kept");
+        assertFalse(first.equals(second), "Ensure the repeated id is replaced");
+        assertEquals(List.of(1), imported.pathOfId(Long.parseLong(second)), "Ensure the new id finds the second task");
+    }
+    /**
+     * Tests that nodes with the same name share one copy of it, and that names no node uses any
+     * more are dropped from the pool once the workspace holding them is replaced.
+     */
+    @Test
+    public void testStringPool() {
+        // Arrange
+        final int count = 1000;
+        WorkspaceMetrics metrics = WorkspaceMetrics.getInstance();
+        System.gc();
+        int before = metrics.getStringPoolSize();
+
+        // Act
+        for (int i = 0; i < count; i++) {
+            wm.addWorkspace(new String("Shared " + i % 10), task);
+            wm.addWorkspace("Unique " + i, task);
+        }
+        int filled = metrics.getStringPoolSize();
+        String first = wm.getTasks().get(0).getAttr(NodeKeys.NAME);
+        String second = wm.getTasks().get(20).getAttr(NodeKeys.NAME);
+        wm = WorkspaceManager.initialise(workspaceName);
+        int after = filled;
+        for (int i = 0; i < 10 && after > before + 10; i++) {
+            System.gc();
+            after = metrics.getStringPoolSize();
+        }
+
+        // Assert
+        assertTrue(first == second, "Ensure equal names share one copy");
+        assertTrue(filled - before <= count + 10, "Ensure the repeated names are only pooled once");
+        assertTrue(after <= before + 10, "Ensure names of the replaced workspace are released");
+    }
+    /**
+     * Tests that a workspace with many top level tasks, each saved as its own chunk, is loaded the
+     * same when its chunks are decoded on several threads, and that a single corrupt chunk fails the
+     * whole load rather than leaving a task out.
+     *
+     * @throws IOException  If the temporary file cannot be written
+     */
+    @Test
+    public void testBinaryChunksParallel() throws IOException {
+        // Arrange
+        final int tasks = 50;
+        for (int i = 0; i < tasks; i++) {
+            wm.addWorkspace("Task " + i, task);
+            wm.stepIntoWorkspace(i);
+            wm.addWorkspace(i == tasks / 2 ? "Broken" : "Action", action);
+            wm.home();
+        }
+        Path file = Files.createTempFile("chunks", ".ws");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        WorkspaceStore.setExecutor(pool);
+        try {
+            WorkspaceStore store = WorkspaceStore.binary(file.toString());
+            store.save(wm);
+
+            // Act
+            WorkspaceManager loaded = store.load();
+            byte[] bytes = Files.readAllBytes(file);
+            String text = new String(bytes, StandardCharsets.ISO_8859_1);
+            bytes[text.indexOf("Broken") - 1] = Byte.MAX_VALUE;      // String length past the end of its chunk
+            Files.write(file, bytes);
+
+            // Assert
+            assertEquals(tasks, loaded.getTasks().size(), "Ensure every chunk is loaded");
+            for (int i = 0; i < tasks; i++) {
+                assertEquals("Task " + i, loaded.getTasks().get(i).getAttr(NodeKeys.NAME), "Ensure chunks are attached in order");
+            }
+            loaded.stepIntoWorkspace(tasks / 2);
+            assertEquals("Broken", loaded.getTasks().get(0).getAttr(NodeKeys.NAME), "Ensure chunks keep their subtrees");
+            assertThrows(IOException.class, store::load, "Ensure a corrupt chunk fails the load");
+        } finally {
+            WorkspaceStore.setExecutor(ForkJoinPool.commonPool());
+            pool.shutdown();
+            Files.deleteIfExists(file);
+        }
+    }
+    /**
+     * Tests that the version goes up with every change, but not when the workspace is only read
+     * or moved around in, so a background reader can tell whether what it read is still current.
+     */
+    @Test
+    public void testVersion() {
+        // Arrange
+        long start = wm.getVersion();
+        wm.addWorkspace("Task 1", task);
+        wm.addWorkspace("Task 2", task);
+        long added = wm.getVersion();
+
+        // Act
+        wm.stepIntoWorkspace(0);
+        wm.taskDetailsOf(new ArrayList<>(), 0, 10);
+        wm.home();
+        long read = wm.getVersion();
+        wm.deleteWorkspace(1);
+
+        // Assert
+        assertEquals(start + 2, added, "Ensure each add changes the version");
+        assertEquals(added, read, "Ensure reading and stepping do not change the version");
+        assertEquals(read + 1, wm.getVersion(), "Ensure a delete changes the version");
+    }
+    /**
+     * Tests that a chain of a million nested Tasks can be saved and loaded without overflowing the stack.
+     *
+     * @throws IOException  If the temporary file cannot be created
+     */
+    @Test
+    public void testSaveLoadDeepChain() throws IOException {
+        // Arrange
+        final int depth = 1_000_000;
+        for (int i = 0; i < depth; i++) {
+            wm.addWorkspace("Level " + i, task);
+            wm.stepIntoWorkspace(0);
+        }
+        Path file = Files.createTempFile("deep", ".ws");
+
+        // Act
+        boolean saved = wm.save(file.toString());
+        WorkspaceManager loaded = WorkspaceManager.loadWorkspace(file.toString());
+        Files.deleteIfExists(file);
+
+        // Assert
+        assertTrue(saved, "Ensure deep workspace saves");
+        assertNotNull(loaded, "Ensure deep workspace loads");
+        for (int i = 0; i < depth - 1; i++) {
+            loaded.stepIntoWorkspace(0);
+        }
+        assertEquals("Level " + (depth - 1), loaded.getTasks().get(0).getAttr(NodeKeys.NAME), "Ensure deepest task is loaded");
+        assertEquals("0", loaded.getTasks().get(0).getAttr(NodeKeys.TASKS), "Ensure deepest task has no sub tasks");
+    }
+    /**
+     * Tests that a file with a valid header but a corrupt string length, negative or larger than
+     * the file, fails to load rather than throwing or allocating the length.
+     *
+     * @throws IOException  If the files cannot be written
+     */
+    @Test
+    public void testLoadCorruptLength() throws IOException {
+        // Arrange
+        byte[] header = {'S', 'T', 'W', 'S', 3, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1};
+        byte[] negative = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+        byte[] huge = {(byte) 0xF0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 'M', 'i', 'l', 'k'};
+        Path negativeFile = Files.createTempFile("negative", ".ws");
+        Path hugeFile = Files.createTempFile("huge", ".ws");
+        Files.write(negativeFile, header);
+        Files.write(negativeFile, negative, StandardOpenOption.APPEND);
+        Files.write(hugeFile, header);
+        Files.write(hugeFile, huge, StandardOpenOption.APPEND);
+
+        // Act
+        WorkspaceManager negativeLoaded = WorkspaceManager.loadWorkspace(negativeFile.toString());
+        WorkspaceManager hugeLoaded = WorkspaceManager.loadWorkspace(hugeFile.toString());
+        Files.deleteIfExists(negativeFile);
+        Files.deleteIfExists(hugeFile);
+
+        // Assert
+        assertNull(negativeLoaded, "Ensure a negative length is rejected");
+        assertNull(hugeLoaded, "Ensure a length longer than the file is rejected");
+    }
+    /**
+     * Tests that a burst of changes made within the delay is saved by a single autosave, and that
+     * the save holds every change.
+     *
+     * @throws InterruptedException If the test is interrupted while waiting for the save
+     */
+    @Test
+    public void testAutoSaverCoalesces() throws InterruptedException {
+        // Arrange
+        CountingStore store = new CountingStore(false);
+        AutoSaver saver = new AutoSaver(store, 200, Runnable::run);
+
+        // Act
+        wm.addWorkspace("Task 1", task);
+        wm.addWorkspace("Task 2", task);
+        wm.addWorkspace("Task 3", task);
+        boolean saved = store.firstSave.await(10, TimeUnit.SECONDS);
+        saver.close();
+
+        // Assert
+        assertTrue(saved, "Ensure the changes are saved");
+        assertEquals(1, saver.getSaveCount(), "Ensure the burst of changes only causes one save");
+        assertEquals(2, saver.getCoalescedCount(), "Ensure the later changes are folded into the first save");
+        assertEquals(3, store.lastNodes, "Ensure the save holds every change");
+        assertEquals(0, saver.getFailureCount(), "Ensure nothing failed");
+    }
+    /**
+     * Tests that changes made after an AutoSaver is closed are not autosaved, but are saved by
+     * flush(), and that a flush picks up edits made since the last snapshot.
+     */
+    @Test
+    public void testAutoSaverFlushAfterClose() {
+        // Arrange
+        CountingStore store = new CountingStore(false);
+        AutoSaver saver = new AutoSaver(store, 0, Runnable::run);
+        saver.close();
+        wm.addWorkspace("Task 1", task);
+        wm.addWorkspace("Task 2", task);
+        boolean first = saver.flush();
+        wm.stepIntoWorkspace(1);
+        wm.addWorkspace("Action 1", action);
+        wm.home();
+
+        // Act
+        boolean second = saver.flush();
+
+        // Assert
+        assertTrue(first && second, "Ensure both flushes succeed");
+        assertEquals(2, store.saves, "Ensure only the flushes saved, as the AutoSaver was closed");
+        assertEquals(2, saver.getSaveCount(), "Ensure both flushes are counted");
+        assertEquals(3, store.lastNodes, "Ensure the second flush holds the action added to the second task");
+    }
+    /**
+     * Tests that edits made to a node after it is moved are picked up by the next snapshot, so the
+     * autosave does not keep the node as it was before the edit.
+     */
+    @Test
+    public void testAutoSaverAfterMove() {
+        // Arrange
+        CountingStore store = new CountingStore(false);
+        AutoSaver saver = new AutoSaver(store, 0, Runnable::run);
+        wm.addWorkspace("First", task);
+        wm.addWorkspace("Second", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Milk", action);
+        wm.stepIntoWorkspace(0);
+        wm.moveCurrentWorkspace(new ArrayList<>(Arrays.asList(1)));
+        saver.flush();
+
+        // Act
+        wm.setName("Bread");
+        boolean flushed = saver.flush();
+
+        // Assert
+        assertTrue(flushed, "Ensure the flush succeeds");
+        assertEquals("Bread", store.lastSaved.detailsOf(new ArrayList<>(Arrays.asList(1, 0))).getAttr(NodeKeys.NAME),
+                     "Ensure the snapshot holds the new name of the moved node");
+        assertEquals(0, Integer.parseInt(store.lastSaved.detailsOf(new ArrayList<>(Arrays.asList(0))).getAttr(NodeKeys.TASKS)),
+                     "Ensure the snapshot does not hold the node in its old place");
+        saver.close();
+    }
+    /**
+     * Tests that failed saves are counted, and are not counted as saves.
+     *
+     * @throws InterruptedException If the test is interrupted while waiting for the save
+     */
+    @Test
+    public void testAutoSaverFailure() throws InterruptedException {
+        // Arrange
+        CountingStore store = new CountingStore(true);
+        AutoSaver saver = new AutoSaver(store, 0, Runnable::run);
+
+        // Act
+        wm.addWorkspace("Task 1", task);
+        boolean attempted = store.firstSave.await(10, TimeUnit.SECONDS);
+        saver.close();
+        boolean flushed = saver.flush();
+
+        // Assert
+        assertTrue(attempted, "Ensure the autosave is attempted");
+        assertFalse(flushed, "Ensure the flush reports the failure");
+        assertEquals(2, saver.getFailureCount(), "Ensure both the autosave and the flush are counted as failures");
+        assertEquals(0, saver.getSaveCount(), "Ensure no save is counted");
+    }
+    /**
+     * Tests that every WorkspaceStore loads back the workspace it saved.
+     *
+     * @throws IOException  If the temporary file cannot be created or the store fails
+     */
+    @Test
+    public void testStoresRoundTrip() throws IOException {
+        // Arrange
+        wm.addWorkspace("Task 1", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Action 1", action);
+        wm.home();
+        Path file = Files.createTempFile("store", ".ws");
+        WorkspaceStore[] stores = {
+            WorkspaceStore.binary(file.toString()),
+            WorkspaceStore.serialized(file.toString()),
+            WorkspaceStore.json(file.toString())
+        };
+
+        for (WorkspaceStore store : stores) {
+            // Act
+            long bytes = store.save(wm);
+            WorkspaceManager loaded = store.load();
+
+            // Assert
+            assertEquals(bytes, store.size(), "Ensure the number of bytes written is returned");
+            assertEquals("Task 1", loaded.getTasks().get(0).getAttr(NodeKeys.NAME), "Ensure task is loaded");
+            loaded.stepIntoWorkspace(0);
+            assertEquals("Action 1", loaded.getTasks().get(0).getAttr(NodeKeys.NAME), "Ensure nested node is loaded");
+        }
+        Files.deleteIfExists(file);
+    }
+    /**
+     * Tests that a sharded workspace still loads when one of its shards is corrupt, and that a commit
+     * only writes what has changed.
+     *
+     * @throws IOException  If the temporary directory cannot be used or the store fails
+     */
+    @Test
+    public void testShardedStore() throws IOException {
+        // Arrange
+        wm.addWorkspace("Project 1", task);
+        wm.addWorkspace("Project 2", task);
+        wm.stepIntoWorkspace(1);
+        wm.addWorkspace("Action 1", action);
+        wm.home();
+        Path dir = Files.createTempDirectory("shards");
+        WorkspaceStore store = WorkspaceStore.sharded(dir.toString());
+        store.save(wm);
+
+        // Act
+        long unchanged = store.commit(wm);
+        WorkspaceManager loaded = store.load();
+        loaded.stepIntoWorkspace(1);
+        loaded.setName("Renamed");
+        long changed = store.commit(loaded);
+        Path shard;
+        try (Stream<Path> files = Files.list(dir)) {
+            shard = files.filter(f -> f.toString().endsWith(".shard")).sorted().findFirst().get();
+        }
+        Files.write(shard, new byte[] {1, 2, 3});
+        WorkspaceManager recovered = store.load();
+        Files.write(shard, new byte[] {4, 5, 6});
+        store.load();
+
+        // Assert
+        assertEquals(0, unchanged, "Ensure nothing is written when nothing has changed");
+        assertTrue(changed > 0 && changed < store.size(), "Ensure only the changed shard is written");
+        assertEquals(2, recovered.getTasks().size(), "Ensure a corrupt shard does not stop the workspace loading");
+        assertTrue(Files.exists(Path.of(shard + ".corrupt")), "Ensure the corrupt shard is kept");
+        assertTrue(Files.exists(Path.of(shard + ".corrupt.1")), "Ensure a second corruption does not replace the first");
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toArray(Path[]::new)) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+    /**
+     * Tests that a generated workspace has the requested number of nodes and shape, and that the same
+     * seed always generates the same workspace.
+     *
+     * @throws IOException  If the tree cannot be printed
+     */
+    @Test
+    public void testWorkspaceGenerator() throws IOException {
+        // Arrange
+        StringWriter first = new StringWriter();
+        StringWriter second = new StringWriter();
+        StringWriter other = new StringWriter();
+
+        // Act
+        WorkspaceManager generated = new WorkspaceGenerator(7).shape(WorkspaceGenerator.Shape.ZIPF).nodes(500).generate();
+        int count = generated.countNodes();
+        generated.printTree(first, Integer.MAX_VALUE, Integer.MAX_VALUE, null);
+        new WorkspaceGenerator(7).shape(WorkspaceGenerator.Shape.ZIPF).nodes(500).generate()
+            .printTree(second, Integer.MAX_VALUE, Integer.MAX_VALUE, null);
+        new WorkspaceGenerator(8).shape(WorkspaceGenerator.Shape.ZIPF).nodes(500).generate()
+            .printTree(other, Integer.MAX_VALUE, Integer.MAX_VALUE, null);
+        WorkspaceManager fanOut = new WorkspaceGenerator(7).shape(WorkspaceGenerator.Shape.FAN_OUT).nodes(50).generate();
+        int fanOutTasks = fanOut.getTasks().size();
+        WorkspaceManager chain = new WorkspaceGenerator(7).shape(WorkspaceGenerator.Shape.CHAIN).nodes(50).generate();
+        int depth = 0;
+        while (chain.getTasks().size() > 0 && "Task".equals(chain.getTasks().get(0).getAttr(NodeKeys.TYPE))) {
+            chain.stepIntoWorkspace(0);
+            depth++;
+        }
+
+        // Assert
+        assertEquals(500, count, "Ensure the requested number of nodes is generated");
+        assertEquals(first.toString(), second.toString(), "Ensure the same seed generates the same workspace");
+        assertFalse(first.toString().equals(other.toString()), "Ensure a different seed generates a different workspace");
+        assertEquals(50, fanOutTasks, "Ensure every node of FAN_OUT is under the root");
+        assertTrue(depth > 10, "Ensure CHAIN nests its Tasks");
+    }
+    /**
+     * Tests that adds and deletes are counted, that the node count and depth follow them, and that
+     * the metrics can be read over JMX.
+     *
+     * @throws JMException  If the metrics cannot be read from the MBeanServer
+     */
+    @Test
+    public void testWorkspaceMetrics() throws JMException {
+        // Arrange
+        WorkspaceMetrics metrics = WorkspaceMetrics.getInstance();
+        long adds = metrics.getAdd().getCount();
+        long deletes = metrics.getDelete().getCount();
+        wm.addWorkspace("Task 1", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Action 1", action);
+        wm.addWorkspace("Action 2", action);
+        int depth = (int) metrics.getTreeDepth();
+        wm.home();
+
+        // Act
+        wm.deleteWorkspace(0);
+        long deleted = metrics.getNodeCount();
+        boolean registered = WorkspaceMetrics.register();
+        CompositeData add = (CompositeData) ManagementFactory.getPlatformMBeanServer()
+            .getAttribute(new ObjectName(WorkspaceMetrics.OBJECT_NAME), "Add");
+
+        // Assert
+        assertEquals(adds + 3, metrics.getAdd().getCount(), "Ensure each add is counted");
+        assertEquals(deletes + 1, metrics.getDelete().getCount(), "Ensure the delete is counted");
+        assertEquals(2, depth, "Ensure the depth follows the deepest node added");
+        assertEquals(0, deleted, "Ensure the deleted Task and its actions are no longer counted");
+        assertTrue(registered, "Ensure the metrics are registered");
+        assertEquals(metrics.getAdd().getCount(), add.get("count"), "Ensure the metrics can be read over JMX");
+    }
+    /**
+     * Tests that a delete is recorded by Java Flight Recorder once its event is turned on, with the
+     * number of nodes deleted.
+     *
+     * @throws IOException  If the recording cannot be written or read
+     */
+    @Test
+    public void testDeleteEvent() throws IOException {
+        // Arrange
+        wm.addWorkspace("Task 1", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Action 1", action);
+        wm.addWorkspace("Action 2", action);
+        wm.home();
+        Path file = Files.createTempFile("events", ".jfr");
+        List<RecordedEvent> events;
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable("simpletask.Delete").withThreshold(Duration.ZERO);
+            recording.start();
+            wm.deleteWorkspace(0);
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        // Assert
+        assertEquals(1, events.size(), "Ensure the delete is recorded");
+        assertEquals(3, events.get(0).getLong("nodes"), "Ensure the Task and its actions are counted");
+        assertTrue(events.get(0).getBoolean("succeeded"), "Ensure the delete is recorded as succeeding");
+        Files.deleteIfExists(file);
+    }
+    /**
+     * Tests that a search is recorded by Java Flight Recorder once its event is turned on, with the
+     * number of nodes compared and matched.
+     *
+     * @throws IOException  If the recording cannot be written or read
+     */
+    @Test
+    public void testSearchEvent() throws IOException {
+        // Arrange
+        wm.addWorkspace("Task 1", task);
+        wm.addWorkspace("Action 1", action);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Action 2", action);
+        wm.home();
+        Path file = Files.createTempFile("events", ".jfr");
+        List<RecordedEvent> events;
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable("simpletask.Search").withThreshold(Duration.ZERO);
+            recording.start();
+            wm.searchWorkspaces(new Criteria().addAttr(NodeKeys.TYPE, action));
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        // Assert
+        assertEquals(1, events.size(), "Ensure the search is recorded");
+        assertEquals(3, events.get(0).getLong("nodesVisited"), "Ensure every node below the root is compared");
+        assertEquals(2, events.get(0).getInt("results"), "Ensure both actions match");
+        Files.deleteIfExists(file);
+    }
+    /**
+     * Tests that saves are recorded by Java Flight Recorder with the number of nodes written, both
+     * by save() and by an autosave, after a Task with actions has been deleted.
+     *
+     * @throws IOException  If the recording cannot be written or read
+     */
+    @Test
+    public void testSaveEvent() throws IOException {
+        // Arrange
+        wm.addWorkspace("Task 1", task);
+        wm.addWorkspace("Task 2", task);
+        wm.stepIntoWorkspace(0);
+        wm.addWorkspace("Action 1", action);
+        wm.addWorkspace("Action 2", action);
+        wm.home();
+        wm.deleteWorkspace(0);
+        Path file = Files.createTempFile("events", ".jfr");
+        List<RecordedEvent> events;
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable("simpletask.Save").withThreshold(Duration.ZERO);
+            recording.start();
+            wm.save(new CountingStore(false));
+            new AutoSaver(new CountingStore(false), 0, Runnable::run).flush();
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        // Assert
+        assertEquals(2, events.size(), "Ensure both saves are recorded");
+        assertEquals(1, events.get(0).getLong("nodes"), "Ensure save() records the nodes left after the delete");
+        assertEquals(1, events.get(1).getLong("nodes"), "Ensure the autosave records the nodes in its snapshot");
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * A WorkspaceStore that keeps nothing, but counts its saves and can be made to fail.
+     */
+    private static final class CountingStore implements WorkspaceStore {
+        /**
+         * Whether every save fails.
+         */
+        private final boolean fail;
+        /**
+         * Released when the first save is attempted.
+         */
+        private final CountDownLatch firstSave = new CountDownLatch(1);
+        /**
+         * Number of saves attempted.
+         */
+        private volatile int saves;
+        /**
+         * Number of nodes in the last workspace saved.
+         */
+        private volatile int lastNodes;
+        /**
+         * The last workspace saved.
+         */
+        private volatile WorkspaceManager lastSaved;
+
+        /**
+         * Creates a CountingStore.
+         *
+         * @param fail  Whether every save fails
+         */
+        CountingStore(final boolean fail) {
+            this.fail = fail;
+        }
+        @Override
+        public WorkspaceManager load() throws IOException {
+            throw new IOException("Nothing stored");
+        }
+        @Override
+        public long save(final WorkspaceManager workspace) throws IOException {
+            saves++;
+            firstSave.countDown();
+            if (fail) {
+                throw new IOException("Save failed");
+            }
+            lastNodes = workspace.countNodes();
+            lastSaved = workspace;
+            return 0;
+        }
+        @Override
+        public String getLocation() {
+            return "counting";
+        }
+        @Override
+        public long size() {
+            return 0;
+        }
+    }
 }